@@ -0,0 +1,57 @@
+package yadong0305.algorithms.ST;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * 在一张含有size个偶数键的BinarySearchST上插入batch个随机的奇数键：逐个put()和一次putAll()的比较。
+ * 每次调用前都重新构造这张表，因此只适合单次调用在毫秒级别的规模
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+public class BinarySearchSTBatchBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"100", "10000"})
+    int batch;
+
+    Integer[] tableKeys;
+    Integer[] batchKeys;
+    BinarySearchST<Integer, Integer> st;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        tableKeys = new Integer[size];
+        for (int i = 0; i < size; i++) tableKeys[i] = 2 * i;
+        Random random = new Random(42);
+        batchKeys = new Integer[batch];
+        for (int i = 0; i < batch; i++) batchKeys[i] = 2 * random.nextInt(size) + 1;
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        st = BinarySearchST.fromSorted(tableKeys, tableKeys);
+    }
+
+    @Benchmark
+    public BinarySearchST<Integer, Integer> put() {
+        for (Integer key : batchKeys) st.put(key, key);
+        return st;
+    }
+
+    @Benchmark
+    public BinarySearchST<Integer, Integer> putAll() {
+        st.putAll(batchKeys, batchKeys);
+        return st;
+    }
+}
@@ -0,0 +1,80 @@
+package yadong0305.algorithms.ST;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 均匀随机的rank()：freeze()之前和之后的比较。
+ *   BinarySearchST：用fromUnsorted()装载，同时建立稀疏索引和学习型索引（LearnedIndex），learned为false时去掉学习型索引，只用稀疏索引；
+ *     spacing为EVEN时键是等距的，整个分布只有一段，RANDOM时键是均匀随机的int；
+ *   IntBinarySearchST：有序数组中的二分查找和冻结之后的Eytzinger布局。
+ * 10M个键的keys[]远大于L2缓存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class BinarySearchSTLookupBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    int size;
+
+    @Param({"false", "true"})
+    boolean frozen;
+
+    @Param({"false", "true"})
+    boolean learned;
+
+    @Param({"EVEN", "RANDOM"})
+    String spacing;
+
+    BinarySearchST<Integer, Integer> st;
+    IntBinarySearchST<Integer> primitive;
+    Integer[] queries;
+    int[] primitiveQueries;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int[] k = new int[size];
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) k[i] = spacing.equals("EVEN") ? 2 * i : random.nextInt();
+        Arrays.sort(k);
+        Integer[] keys = new Integer[size];
+        primitive = new IntBinarySearchST<>(size);
+        for (int i = 0; i < size; i++) {
+            keys[i] = k[i];
+            primitive.put(k[i], keys[i]);
+        }
+        st = BinarySearchST.fromUnsorted(keys, keys);
+        if (frozen) {
+            st.freeze();
+            primitive.freeze();
+        }
+        if (!learned) st.dropModel();
+        int[] q = KeyStream.UNIFORM.queries(size, 42);
+        primitiveQueries = new int[q.length];
+        queries = new Integer[q.length];
+        for (int i = 0; i < q.length; i++) {
+            primitiveQueries[i] = k[q[i]] + (i & 1);
+            queries[i] = primitiveQueries[i];
+        }
+    }
+
+    @Benchmark
+    public int rank() {
+        return st.rank(queries[next++ & (KeyStream.QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public int primitiveRank() {
+        return primitive.rank(primitiveQueries[next++ & (KeyStream.QUERIES - 1)]);
+    }
+}
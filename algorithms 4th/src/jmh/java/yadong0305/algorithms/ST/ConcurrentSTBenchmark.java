@@ -0,0 +1,101 @@
+package yadong0305.algorithms.ST;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 多个线程共享一张表，每次操作以writePercent%的概率写（put或delete各占一半），否则读（get）。
+ * LOCKED_RED_BLACK是用一把全局锁保护的RedBlackBST，SKIP_LIST是ConcurrentSkipListST。
+ * 线程数用JMH的-t参数指定，例如 java -jar build/libs/*-jmh.jar ConcurrentSTBenchmark -t 1,2,4,8,16,32 比较吞吐量随线程数的变化
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class ConcurrentSTBenchmark {
+
+    public enum Table {
+        SKIP_LIST, LOCKED_RED_BLACK
+    }
+
+    @Param({"SKIP_LIST", "LOCKED_RED_BLACK"})
+    Table table;
+
+    @Param({"0", "10", "50"})
+    int writePercent;
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    ST<Integer, Integer> st;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if (table == Table.SKIP_LIST) st = new ConcurrentSkipListST<>();
+        else st = new LockedST<>(new RedBlackBST<Integer, Integer>());
+        for (int key : KeyStream.UNIFORM.load(size, 42)) {
+            st.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public Integer mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Integer key = random.nextInt(size);
+        int dice = random.nextInt(200);
+        if (dice < writePercent) {
+            st.put(key, key);
+            return key;
+        }
+        if (dice < 2 * writePercent) {
+            st.delete(key);
+            return key;
+        }
+        return st.get(key);
+    }
+
+    /**
+     * 用一把全局锁保护任意一张符号表
+     */
+    static final class LockedST<Key, Value> extends ST<Key, Value> {
+        private final ST<Key, Value> st;
+
+        LockedST(ST<Key, Value> st) {
+            this.st = st;
+        }
+
+        public synchronized void put(Key key, Value value) {
+            st.put(key, value);
+        }
+
+        public synchronized Value get(Key key) {
+            return st.get(key);
+        }
+
+        public synchronized void delete(Key key) {
+            st.delete(key);
+        }
+
+        public synchronized boolean contains(Key key) {
+            return st.contains(key);
+        }
+
+        public synchronized boolean isEmpty() {
+            return st.isEmpty();
+        }
+
+        public synchronized int size() {
+            return st.size();
+        }
+
+        public synchronized Iterable<Key> keys() {
+            return st.keys();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package yadong0305.algorithms.ST;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 参与性能测试的符号表实现。
+ * 有些组合的装载代价是平方级别的（例如SequentialSearchST的每次put()都要遍历整个链表，BinarySearchST在乱序输入下每次put()都要移动数组的尾部，BST在有序输入下退化为链表），
+ * maxSize()给出了每种组合在合理时间内能够装载的最大规模，超过这个规模的组合在@Setup中直接失败，JMH会跳过它并继续运行其余的组合。
+ */
+public enum Implementation {
+
+    SEQUENTIAL {
+        ST<Integer, Integer> create() {
+            return new SequentialSearchST<>();
+        }
+
+        int maxSize(KeyStream stream) {
+            return 100_000;
+        }
+    },
+
+    MOVE_TO_FRONT {
+        ST<Integer, Integer> create() {
+            return new SequentialSearchST<>(true);
+        }
+
+        int maxSize(KeyStream stream) {
+            return 100_000;
+        }
+    },
+
+    BINARY_SEARCH {
+        ST<Integer, Integer> create() {
+            return new BinarySearchST<>(2);
+        }
+
+        int maxSize(KeyStream stream) {
+            return stream == KeyStream.SORTED ? Integer.MAX_VALUE : 100_000;
+        }
+
+        ST<Integer, Integer> bulkLoad(Integer[] keys, Integer[] values) {
+            return BinarySearchST.fromUnsorted(keys, values);
+        }
+    },
+
+    PACKED_MEMORY_ARRAY {
+        ST<Integer, Integer> create() {
+            return new PackedMemoryArrayST<>();
+        }
+
+        int maxSize(KeyStream stream) {
+            return Integer.MAX_VALUE;
+        }
+
+        ST<Integer, Integer> bulkLoad(Integer[] keys, Integer[] values) {
+            return PackedMemoryArrayST.fromUnsorted(keys, values);
+        }
+    },
+
+    BST {
+        ST<Integer, Integer> create() {
+            return new BST<>();
+        }
+
+        int maxSize(KeyStream stream) {
+            return stream == KeyStream.SORTED || stream == KeyStream.REVERSE_SORTED ? 100_000 : Integer.MAX_VALUE;
+        }
+
+        ST<Integer, Integer> bulkLoad(Integer[] keys, Integer[] values) {
+            return yadong0305.algorithms.ST.BST.fromUnsorted(keys, values);
+        }
+    },
+
+    RED_BLACK {
+        ST<Integer, Integer> create() {
+            return new RedBlackBST<>();
+        }
+
+        int maxSize(KeyStream stream) {
+            return Integer.MAX_VALUE;
+        }
+
+        ST<Integer, Integer> bulkLoad(Integer[] keys, Integer[] values) {
+            return RedBlackBST.fromUnsorted(keys, values);
+        }
+    },
+
+    B_TREE {
+        ST<Integer, Integer> create() {
+            return new BTreeST<>();
+        }
+
+        int maxSize(KeyStream stream) {
+            return Integer.MAX_VALUE;
+        }
+    },
+
+    SPLAY {
+        ST<Integer, Integer> create() {
+            return new SplayBST<>();
+        }
+
+        int maxSize(KeyStream stream) {
+            return Integer.MAX_VALUE;
+        }
+    },
+
+    PERSISTENT_RED_BLACK {
+        ST<Integer, Integer> create() {
+            return new PersistentRedBlackBST<>();
+        }
+
+        int maxSize(KeyStream stream) {
+            return Integer.MAX_VALUE;
+        }
+    },
+
+    SEPARATE_CHAINING {
+        ST<Integer, Integer> create() {
+            return new SeparateChainingHashST<>();
+        }
+
+        int maxSize(KeyStream stream) {
+            return Integer.MAX_VALUE;
+        }
+    },
+
+    LINEAR_PROBING {
+        ST<Integer, Integer> create() {
+            return new LinearProbingHashST<>();
+        }
+
+        int maxSize(KeyStream stream) {
+            return Integer.MAX_VALUE;
+        }
+    };
+
+    abstract ST<Integer, Integer> create();
+
+    abstract int maxSize(KeyStream stream);
+
+    /**
+     * 用批量装载的工厂方法构造符号表，只有有序符号表支持
+     */
+    ST<Integer, Integer> bulkLoad(Integer[] keys, Integer[] values) {
+        throw new UnsupportedOperationException(this + " has no bulk load");
+    }
+
+    /**
+     * [lo..hi]之间的所有键。无序的符号表只能遍历全部的键并逐个过滤
+     */
+    Iterable<Integer> keys(ST<Integer, Integer> st, int lo, int hi) {
+        if (st instanceof OrderedST) return ((OrderedST<Integer, Integer>) st).keys(lo, hi);
+        List<Integer> keys = new ArrayList<>();
+        for (Integer key : st.keys()) {
+            if (key >= lo && key <= hi) keys.add(key);
+        }
+        return keys;
+    }
+
+    /**
+     * 按照给定的装载顺序构造一张符号表，值为键在装载顺序中的位置
+     */
+    ST<Integer, Integer> load(KeyStream stream, int[] keys) {
+        if (keys.length > maxSize(stream)) {
+            throw new IllegalStateException(this + " cannot load " + keys.length + " " + stream + " keys in reasonable time");
+        }
+        ST<Integer, Integer> st = create();
+        for (int i = 0; i < keys.length; i++) {
+            st.put(keys[i], i);
+        }
+        return st;
+    }
+}
@@ -0,0 +1,94 @@
+package yadong0305.algorithms.ST;
+
+import java.util.Random;
+
+/**
+ * 性能测试使用的键流。每种分布都同时决定两件事：
+ *   装载顺序：N个互不相同的键[0, N)以何种顺序put()进表中；
+ *   查询顺序：测试阶段get()/put()/delete()访问已有键的顺序。
+ *
+ *   UNIFORM：随机顺序装载，均匀随机查询；
+ *   SORTED：升序装载，升序循环查询（BST在这种输入下退化为链表）；
+ *   REVERSE_SORTED：降序装载，降序循环查询；
+ *   ZIPFIAN：随机顺序装载，按Zipf分布（theta = 0.99）查询，排名靠前的热点键被打散到整个键空间中。
+ */
+public enum KeyStream {
+
+    UNIFORM, SORTED, REVERSE_SORTED, ZIPFIAN;
+
+    /**
+     * 查询流的长度，取2的幂以便用掩码循环
+     */
+    static final int QUERIES = 1 << 20;
+
+    private static final double THETA = 0.99;
+
+    /**
+     * 返回N个互不相同的键的装载顺序
+     */
+    public int[] load(int N, long seed) {
+        int[] keys = new int[N];
+        switch (this) {
+            case SORTED:
+                for (int i = 0; i < N; i++) keys[i] = i;
+                break;
+            case REVERSE_SORTED:
+                for (int i = 0; i < N; i++) keys[i] = N - 1 - i;
+                break;
+            default:
+                for (int i = 0; i < N; i++) keys[i] = i;
+                shuffle(keys, new Random(seed));
+        }
+        return keys;
+    }
+
+    /**
+     * 返回长度为QUERIES的查询流，其中的键都位于[0, N)中
+     */
+    public int[] queries(int N, long seed) {
+        int[] queries = new int[QUERIES];
+        Random random = new Random(seed ^ 0x5DEECE66DL);
+        switch (this) {
+            case UNIFORM:
+                for (int i = 0; i < QUERIES; i++) queries[i] = random.nextInt(N);
+                break;
+            case SORTED:
+                for (int i = 0; i < QUERIES; i++) queries[i] = i % N;
+                break;
+            case REVERSE_SORTED:
+                for (int i = 0; i < QUERIES; i++) queries[i] = N - 1 - i % N;
+                break;
+            case ZIPFIAN:
+                int[] scramble = load(N, seed);
+                double zetan = zeta(N);
+                double alpha = 1.0 / (1.0 - THETA);
+                double eta = (1 - Math.pow(2.0 / N, 1 - THETA)) / (1 - zeta(2) / zetan);
+                for (int i = 0; i < QUERIES; i++) {
+                    double u = random.nextDouble();
+                    double uz = u * zetan;
+                    int rank;
+                    if (uz < 1.0) rank = 0;
+                    else if (uz < 1.0 + Math.pow(0.5, THETA)) rank = 1;
+                    else rank = (int) (N * Math.pow(eta * u - eta + 1, alpha));
+                    queries[i] = scramble[Math.min(rank, N - 1)];
+                }
+                break;
+        }
+        return queries;
+    }
+
+    private static double zeta(int n) {
+        double sum = 0;
+        for (int i = 1; i <= n; i++) sum += 1.0 / Math.pow(i, THETA);
+        return sum;
+    }
+
+    private static void shuffle(int[] a, Random random) {
+        for (int i = a.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package yadong0305.algorithms.ST;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 未命中的查找：表中的键都是偶数，查询的键都是奇数，并且夹在表中的键之间，每次查找都要走完整的查找路径。
+ * filtered为true时用BloomFilterST包装这张表，绝大多数查找在布隆过滤器中就返回了
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class MissBenchmark {
+
+    @Param({"SEQUENTIAL", "BINARY_SEARCH", "BST", "RED_BLACK"})
+    Implementation implementation;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"false", "true"})
+    boolean filtered;
+
+    ST<Integer, Integer> st;
+    Integer[] queries;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int[] keys = KeyStream.UNIFORM.load(size, 42);
+        for (int i = 0; i < keys.length; i++) keys[i] *= 2;
+        st = implementation.load(KeyStream.UNIFORM, keys);
+        if (filtered) st = new BloomFilterST<>(st, size, 0.01);
+        int[] q = KeyStream.UNIFORM.queries(size, 42);
+        queries = new Integer[q.length];
+        for (int i = 0; i < q.length; i++) queries[i] = 2 * q[i] + 1;
+    }
+
+    @Benchmark
+    public Integer get() {
+        return st.get(queries[next++ & (KeyStream.QUERIES - 1)]);
+    }
+}
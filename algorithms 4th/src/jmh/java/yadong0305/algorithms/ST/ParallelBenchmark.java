@@ -0,0 +1,64 @@
+package yadong0305.algorithms.ST;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整张表的扫描和重新装载，单线程和ParallelST、parallelFromUnsorted()的比较。
+ * 并行的版本使用ForkJoinPool的公共池，线程数用-Djava.util.concurrent.ForkJoinPool.common.parallelism指定
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelBenchmark {
+
+    @Param({"100000", "1000000", "10000000"})
+    int size;
+
+    Integer[] keys;
+    Integer[] values;
+    RedBlackBST<Integer, Integer> st;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int[] k = KeyStream.UNIFORM.load(size, 42);
+        keys = new Integer[size];
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = k[i];
+            values[i] = i;
+        }
+        st = RedBlackBST.fromUnsorted(keys, values);
+    }
+
+    @Benchmark
+    public long scan() {
+        long[] sum = new long[1];
+        st.forEachInRange(st.min(), st.max(), (key, value) -> sum[0] += value);
+        return sum[0];
+    }
+
+    @Benchmark
+    public long parallelScan() {
+        return ParallelST.reduce(st, 0L, (key, value) -> (long) value, Long::sum);
+    }
+
+    @Benchmark
+    public RedBlackBST<Integer, Integer> load() {
+        return RedBlackBST.fromUnsorted(keys, values);
+    }
+
+    @Benchmark
+    public RedBlackBST<Integer, Integer> parallelLoad() {
+        return RedBlackBST.parallelFromUnsorted(keys, values);
+    }
+}
@@ -0,0 +1,74 @@
+package yadong0305.algorithms.ST;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 比较键装箱的BinarySearchST、RedBlackBST和键为基本类型的IntBinarySearchST、IntToLongRedBlackBST的查找性能。
+ * 装载顺序为SORTED，BinarySearchST因此可以在线性时间内装载到千万级别；查询按stream给出的顺序进行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+public class PrimitiveSTBenchmark {
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    KeyStream stream;
+
+    @Param({"1000", "100000", "10000000"})
+    int size;
+
+    BinarySearchST<Integer, Long> boxedArray;
+    RedBlackBST<Integer, Long> boxedTree;
+    IntBinarySearchST<Long> intArray;
+    IntToLongRedBlackBST intTree;
+    int[] queries;
+    Integer[] boxedQueries;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        boxedArray = new BinarySearchST<>(size);
+        boxedTree = new RedBlackBST<>();
+        intArray = new IntBinarySearchST<>(size);
+        intTree = new IntToLongRedBlackBST(size);
+        for (int key : KeyStream.SORTED.load(size, 42)) {
+            boxedArray.put(key, (long) key);
+            boxedTree.put(key, (long) key);
+            intArray.put(key, (long) key);
+            intTree.put(key, key);
+        }
+        queries = stream.queries(size, 42);
+        boxedQueries = new Integer[queries.length];
+        for (int i = 0; i < queries.length; i++) boxedQueries[i] = queries[i];
+    }
+
+    private int nextIndex() {
+        return next++ & (KeyStream.QUERIES - 1);
+    }
+
+    @Benchmark
+    public Long boxedBinarySearchGet() {
+        return boxedArray.get(boxedQueries[nextIndex()]);
+    }
+
+    @Benchmark
+    public Long intBinarySearchGet() {
+        return intArray.get(queries[nextIndex()]);
+    }
+
+    @Benchmark
+    public Long boxedRedBlackGet() {
+        return boxedTree.get(boxedQueries[nextIndex()]);
+    }
+
+    @Benchmark
+    public long intRedBlackGet() {
+        return intTree.get(queries[nextIndex()], -1L);
+    }
+}
@@ -0,0 +1,76 @@
+package yadong0305.algorithms.ST;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 在一张已经装载了size个键的符号表上测量单次操作的性能：
+ *   get()：查找一个已有的键；
+ *   put()：更新一个已有的键的值，走完整的查找路径但不改变表的大小；
+ *   deleteThenPut()：删除一个已有的键再把它插回去，表的大小保持不变；
+ *   rangeScan()：遍历从一个已有的键开始的RANGE个键。
+ * 吞吐量（ops/s）由Throughput模式给出，p99延迟由SampleTime模式给出，每次操作的分配字节数（gc.alloc.rate.norm）由build.gradle中配置的gc profiler给出。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+public class STBenchmark {
+
+    static final int RANGE = 100;
+
+    @Param({"SEQUENTIAL", "MOVE_TO_FRONT", "BINARY_SEARCH", "PACKED_MEMORY_ARRAY", "BST", "RED_BLACK", "B_TREE", "SPLAY", "PERSISTENT_RED_BLACK", "SEPARATE_CHAINING", "LINEAR_PROBING"})
+    Implementation implementation;
+
+    @Param({"UNIFORM", "SORTED", "REVERSE_SORTED", "ZIPFIAN"})
+    KeyStream stream;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    int size;
+
+    ST<Integer, Integer> st;
+    Integer[] queries;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        st = implementation.load(stream, stream.load(size, 42));
+        int[] q = stream.queries(size, 42);
+        queries = new Integer[q.length];
+        for (int i = 0; i < q.length; i++) queries[i] = q[i];
+    }
+
+    private Integer nextQuery() {
+        return queries[next++ & (KeyStream.QUERIES - 1)];
+    }
+
+    @Benchmark
+    public Integer get() {
+        return st.get(nextQuery());
+    }
+
+    @Benchmark
+    public void put() {
+        Integer key = nextQuery();
+        st.put(key, key);
+    }
+
+    @Benchmark
+    public void deleteThenPut() {
+        Integer key = nextQuery();
+        st.delete(key);
+        st.put(key, key);
+    }
+
+    @Benchmark
+    public int rangeScan() {
+        int lo = nextQuery();
+        int count = 0;
+        for (Integer ignored : implementation.keys(st, lo, lo + RANGE - 1)) count++;
+        return count;
+    }
+}
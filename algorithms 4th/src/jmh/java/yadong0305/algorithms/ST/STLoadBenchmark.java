@@ -0,0 +1,48 @@
+package yadong0305.algorithms.ST;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 测量从空表开始按照给定的装载顺序put()全部size个键所需的时间，每次调用构造一张新表；
+ * bulkLoad()测量同样的键通过fromUnsorted()批量装载所需的时间
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+public class STLoadBenchmark {
+
+    @Param({"SEQUENTIAL", "MOVE_TO_FRONT", "BINARY_SEARCH", "PACKED_MEMORY_ARRAY", "BST", "RED_BLACK", "B_TREE", "SPLAY", "PERSISTENT_RED_BLACK", "SEPARATE_CHAINING", "LINEAR_PROBING"})
+    Implementation implementation;
+
+    @Param({"UNIFORM", "SORTED", "REVERSE_SORTED", "ZIPFIAN"})
+    KeyStream stream;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    int size;
+
+    int[] keys;
+    Integer[] boxedKeys;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = stream.load(size, 42);
+        boxedKeys = new Integer[size];
+        for (int i = 0; i < size; i++) boxedKeys[i] = keys[i];
+    }
+
+    @Benchmark
+    public ST<Integer, Integer> load() {
+        return implementation.load(stream, keys);
+    }
+
+    @Benchmark
+    public ST<Integer, Integer> bulkLoad() {
+        return implementation.bulkLoad(boxedKeys, boxedKeys);
+    }
+}
@@ -0,0 +1,77 @@
+package yadong0305.algorithms.ST;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把一张有small个键的表合并到一张有size个键的表中：逐个put()和基于join的union()、parallelUnion()的比较。
+ * union()会消耗掉两棵树，每次调用之前都要在Level.Invocation的Setup中重新构造，构造的时间不计入结果
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SetOperationsBenchmark {
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"100", "10000", "1000000"})
+    int small;
+
+    Integer[] keys;
+    Integer[] values;
+    Integer[] smallKeys;
+    Integer[] smallValues;
+    RedBlackBST<Integer, Integer> a;
+    RedBlackBST<Integer, Integer> b;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = new Integer[size];
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = 2 * i;
+            values[i] = i;
+        }
+        smallKeys = new Integer[small];
+        smallValues = new Integer[small];
+        int step = size / small;
+        for (int i = 0; i < small; i++) {
+            smallKeys[i] = 2 * step * i + (i % 2);
+            smallValues[i] = i;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void build() {
+        a = RedBlackBST.fromSorted(keys, values);
+        b = RedBlackBST.fromSorted(smallKeys, smallValues);
+    }
+
+    @Benchmark
+    public RedBlackBST<Integer, Integer> put() {
+        for (int i = 0; i < small; i++) a.put(smallKeys[i], smallValues[i]);
+        return a;
+    }
+
+    @Benchmark
+    public RedBlackBST<Integer, Integer> union() {
+        a.union(b);
+        return a;
+    }
+
+    @Benchmark
+    public RedBlackBST<Integer, Integer> parallelUnion() {
+        a.parallelUnion(b);
+        return a;
+    }
+}
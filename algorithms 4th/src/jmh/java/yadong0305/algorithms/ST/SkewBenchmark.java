@@ -0,0 +1,44 @@
+package yadong0305.algorithms.ST;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Zipf分布（theta = 0.99）的查询下自调整的结构和平衡树的比较：
+ *   SPLAY和MOVE_TO_FRONT把最近访问过的键移动到根结点（链表的开头），热点键的查找路径很短；
+ *   RED_BLACK和B_TREE中热点键的深度由装载顺序决定，每次查找都是完整的对数级别的路径。
+ * 装载顺序是随机的，MOVE_TO_FRONT只在较小的规模上运行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class SkewBenchmark {
+
+    @Param({"SPLAY", "MOVE_TO_FRONT", "RED_BLACK", "B_TREE"})
+    Implementation implementation;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    ST<Integer, Integer> st;
+    Integer[] queries;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        st = implementation.load(KeyStream.ZIPFIAN, KeyStream.ZIPFIAN.load(size, 42));
+        int[] q = KeyStream.ZIPFIAN.queries(size, 42);
+        queries = new Integer[q.length];
+        for (int i = 0; i < q.length; i++) queries[i] = q[i];
+    }
+
+    @Benchmark
+    public Integer get() {
+        return st.get(queries[next++ & (KeyStream.QUERIES - 1)]);
+    }
+}
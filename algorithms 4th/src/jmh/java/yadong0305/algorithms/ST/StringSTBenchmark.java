@@ -0,0 +1,75 @@
+package yadong0305.algorithms.ST;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * 字符串键的查找：TST和基于String.compareTo()的RedBlackBST、BinarySearchST以及散列表的比较。
+ * 键由若干个音节拼成（和单词一样有大量的共享前缀），prefix不为空时所有的键还有一个共同的长前缀（类似于URL和包名），
+ * 基于比较的树在每一层都要重新比较这个前缀，TST只比较一次
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class StringSTBenchmark {
+
+    private static final String[] SYLLABLES = {"ka", "ri", "to", "men", "sa", "lo", "ver", "in", "ex", "pre", "con", "de", "ation", "ing", "ed", "s"};
+
+    @Param({"TST", "RED_BLACK", "BINARY_SEARCH", "LINEAR_PROBING"})
+    String table;
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    @Param({"", "com.example.service.handler."})
+    String prefix;
+
+    ST<String, Integer> st;
+    String[] queries;
+    int next;
+
+    private ST<String, Integer> create() {
+        switch (table) {
+            case "TST":
+                return new TST<>();
+            case "RED_BLACK":
+                return new RedBlackBST<>();
+            default:
+                return new LinearProbingHashST<>();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            StringBuilder sb = new StringBuilder(prefix);
+            int n = 2 + random.nextInt(4);
+            for (int j = 0; j < n; j++) sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            words[i] = sb.append(i % 97).toString();
+        }
+        if (table.equals("BINARY_SEARCH")) {
+            Integer[] values = new Integer[size];
+            for (int i = 0; i < size; i++) values[i] = i;
+            st = BinarySearchST.fromUnsorted(words, values);
+        } else {
+            st = create();
+            for (int i = 0; i < size; i++) st.put(words[i], i);
+        }
+        queries = new String[KeyStream.QUERIES];
+        for (int i = 0; i < queries.length; i++) queries[i] = new String(words[random.nextInt(size)]);
+    }
+
+    @Benchmark
+    public Integer get() {
+        return st.get(queries[next++ & (KeyStream.QUERIES - 1)]);
+    }
+}
@@ -1,7 +1,14 @@
 package yadong0305.algorithms.ST;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.Queue;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
 
 /**
  * 一棵二叉查找树（BST）是一棵二叉树，其中每个结点都含有一个Comparable的键（以及相关联的值）且每个结点的键都大于其左子树中的任意结点的键而小于右子树的任意结点的键
@@ -9,10 +16,16 @@ import java.util.Queue;
  * @param <Value>
  */
 
-public class BST<Key extends Comparable<Key>, Value> extends ST<Key, Value>{
+public class BST<Key extends Comparable<Key>, Value> extends OrderedST<Key, Value> {
 
     private Node root;
 
+    /**
+     * 值的幺半群，为null时不维护聚合值；path[]是重新计算聚合值时记录的路径
+     */
+    private final Monoid<Value> monoid;
+    private Node[] path;
+
     /**
      * 嵌套定义一个私有类来表示二叉查找树上的一个结点，每个结点都含有一个键、一个值、一条左链接、一条右链接和一个结点计数器。左链接指向一棵由小于该结点的所有键组成的二叉查找树，右链接指向一棵由大于该结点的所有键组成的二叉查找树。变量N给出了以该结点为根的子树的结点总数
      */
@@ -22,12 +35,86 @@ public class BST<Key extends Comparable<Key>, Value> extends ST<Key, Value>{
         private Node left;
         private Node right;
         int N;
+        private Value agg;
 
         public Node(Key key, Value value, int N) {
             this.key = key;
             this.value = value;
             this.N = N;
+            this.agg = value;
+        }
+    }
+
+    public BST() {
+        this(null);
+    }
+
+    /**
+     * 范围聚合：每个结点再保存一个聚合值agg = left.agg ⊕ value ⊕ right.agg（⊕是monoid的combine()），aggregate(lo, hi)的算法和RedBlackBST相同。
+     * 和计数器不同，聚合值不能在向下走的时候顺便更新（删除之前不知道会失去哪个值），因此每次修改之后再沿着被修改的路径从下往上重新计算一次（repair()），
+     * 代价和修改本身一样与树高成正比；没有幺半群时不做这一步
+     */
+    @SuppressWarnings("unchecked")
+    public BST(Monoid<Value> monoid) {
+        this.monoid = monoid;
+        if (monoid != null) path = (Node[]) new BST.Node[64];
+    }
+
+    /**
+     * 批量装载：用严格递增的键构造一棵完美平衡的二叉查找树。取中间的键作为根结点，左右两半分别递归地构造左右子树，
+     * 每个键只访问一次，总时间是线性的，递归深度只有lgN
+     */
+    public static <Key extends Comparable<Key>, Value> BST<Key, Value> fromSorted(Key[] keys, Value[] values) {
+        BulkLoad.checkLengths(keys, values);
+        BulkLoad.checkSorted(keys, keys.length);
+        BST<Key, Value> st = new BST<>();
+        st.root = st.build(keys, values, 0, keys.length);
+        return st;
+    }
+
+    /**
+     * 批量装载任意顺序的键：先排序并去除重复的键，再用fromSorted()的方法构造
+     */
+    public static <Key extends Comparable<Key>, Value> BST<Key, Value> fromUnsorted(Key[] keys, Value[] values) {
+        BulkLoad.checkLengths(keys, values);
+        keys = keys.clone();
+        values = values.clone();
+        int n = BulkLoad.sortAndDedupe(keys, values);
+        BST<Key, Value> st = new BST<>();
+        st.root = st.build(keys, values, 0, n);
+        return st;
+    }
+
+    /**
+     * 并行的批量装载：并行排序，然后在ForkJoinPool中并行地构造左右子树（两棵子树的键区间互不相交），结果和fromUnsorted()相同
+     */
+    public static <Key extends Comparable<Key>, Value> BST<Key, Value> parallelFromUnsorted(Key[] keys, Value[] values) {
+        BulkLoad.checkLengths(keys, values);
+        Key[] k = keys.clone();
+        Value[] v = values.clone();
+        int n = BulkLoad.parallelSortAndDedupe(k, v);
+        BST<Key, Value> st = new BST<>();
+        st.root = ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> st.build(k, v, 0, n)));
+        return st;
+    }
+
+    /**
+     * 用keys[lo..hi)构造一棵完美平衡的子树
+     */
+    private Node build(Key[] keys, Value[] values, int lo, int hi) {
+        if (lo >= hi) return null;
+        int mid = (lo + hi) >>> 1;
+        Node x = new Node(keys[mid], values[mid], hi - lo);
+        if (hi - lo >= BulkLoad.PARALLEL_BUILD && ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask<Node> left = ForkJoinTask.adapt(() -> build(keys, values, lo, mid)).fork();
+            x.right = build(keys, values, mid + 1, hi);
+            x.left = left.join();
+        } else {
+            x.left = build(keys, values, lo, mid);
+            x.right = build(keys, values, mid + 1, hi);
         }
+        if (monoid != null) pull(x);
+        return x;
     }
 
     public int size() {
@@ -39,56 +126,133 @@ public class BST<Key extends Comparable<Key>, Value> extends ST<Key, Value>{
         return x.N;
     }
 
+    private Value agg(Node x) {
+        if (x == null) return monoid.identity();
+        return x.agg;
+    }
+
+    private void pull(Node x) {
+        x.agg = monoid.combine(monoid.combine(agg(x.left), x.value), agg(x.right));
+    }
+
+    private void push(int depth, Node x) {
+        if (depth == path.length) path = Arrays.copyOf(path, 2 * depth);
+        path[depth] = x;
+    }
+
+    /**
+     * 从下往上重新计算从根结点查找key的路径上的每个结点的聚合值
+     */
+    private void repair(Key key) {
+        int depth = 0;
+        Node x = root;
+        while (x != null) {
+            push(depth++, x);
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) break;
+            x = cmp < 0 ? x.left : x.right;
+        }
+        pullPath(depth);
+    }
+
+    /**
+     * 从下往上重新计算从x开始沿左链接（left为true）或右链接一直向下的路径上的每个结点的聚合值
+     */
+    private void repairSpine(Node x, boolean left) {
+        int depth = 0;
+        for (; x != null; x = left ? x.left : x.right) push(depth++, x);
+        pullPath(depth);
+    }
+
+    private void pullPath(int depth) {
+        while (depth > 0) {
+            pull(path[--depth]);
+            path[depth] = null;
+        }
+    }
+
     /**
-     * 递归的put()方法
+     * 非递归的put()方法
      *   如果树是空的，就返回一个含有该键值对的新结点；
      *   如果被查找的键小于根结点的键，继续在左子树中插入该键，否则在右子树中插入该键
+     *
+     * 递归实现中，递归调用前的代码沿着树向下走，递归调用后的代码沿着树向上爬，重置搜索路径上每个父结点指向子结点的链接并增加路径上每个结点中的计数器的值。
+     * 在有序输入下二叉查找树会退化为链表，递归深度等于树高，大约10^4个键时就会栈溢出。这里改用循环：
+     *   先进行一次查找，如果命中只需要更新值，树的结构和计数器都不变；
+     *   如果未命中，再沿着同一条路径向下走一次，把路径上每个结点的计数器加1，并把新结点挂在路径末端的空链接上。只有这条路径上的结点会被改写。
      * @param key
      * @param value
      */
 
     @Override
     public void put(Key key, Value value) {
-        root = put(root, key, value);
+        insert(key, value);
+        if (monoid != null) repair(key);
     }
 
-    /**
-     * 可以将递归调用前的代码想像成沿着树向下走：它会将给定的键和每个结点的键相比较并根据结果向左或者向右移动到下一个结点。然后可以将递归调用后的代码想象成沿着树向上爬。对于get()方法，这对应着一系列的返回指令，但是对于put()方法，这意味着重置搜索路径上每个父结点指向子结点的链接，并增加路径上每个结点中的计数器的值。
-     */
-    private Node put(Node x, Key key, Value value) {
-        if (x == null) return new Node(key, value, 1);
-        int cmp = key.compareTo(x.key);
-        if (cmp < 0) x.left = put(x.left, key, value);
-        else if (cmp > 0) x.right = put(x.right, key, value);
-        else x.value = value;
-        x.N = size(x.left) + size(x.right) + 1;
-        return x;
+    private void insert(Key key, Value value) {
+        Node x = node(key);
+        if (x != null) {
+            x.value = value;
+            return;
+        }
+        Node n = new Node(key, value, 1);
+        if (root == null) {
+            root = n;
+            return;
+        }
+        x = root;
+        while (true) {
+            x.N++;
+            if (key.compareTo(x.key) < 0) {
+                if (x.left == null) {
+                    x.left = n;
+                    return;
+                }
+                x = x.left;
+            } else {
+                if (x.right == null) {
+                    x.right = n;
+                    return;
+                }
+                x = x.right;
+            }
+        }
     }
 
     /**
-     * 在二叉查找树中查找一个键的递归算法：
+     * 在二叉查找树中查找一个键的算法：
      *   如果树是空的，则查找未命中；
-     *   如果被查找的键和根结点的键相等，查找命中，否则就递归的在合适的子树中继续查找。
+     *   如果被查找的键和根结点的键相等，查找命中，否则就在合适的子树中继续查找。
      *   如果被查找的键较小就选择左子树，较大则选择右子树
+     * 递归调用都是尾调用，可以直接改写为循环
      * @param key
      * @return
      */
     @Override
     public Value get(Key key) {
-        return get(root, key);
+        Node x = node(key);
+        if (x == null) return null;
+        return x.value;
     }
 
-    private Value get(Node x, Key key) {
-        if (x == null) return null;
-        int cmp = key.compareTo(x.key);
-        if (cmp<0) return get(x.left, key);
-        else if (cmp > 0) return get(x.right, key);
-        else return x.value;
+    private Node node(Key key) {
+        int depth = 0;
+        Node x = root;
+        while (x != null) {
+            depth++;
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0) x = x.left;
+            else if (cmp > 0) x = x.right;
+            else break;
+        }
+        if (STMetrics.ENABLED) STMetrics.search(depth);
+        return x;
     }
 
     @Override
     public boolean contains(Key key) {
-        return get(key) == null;
+        return node(key) != null;
     }
 
     @Override
@@ -101,12 +265,13 @@ public class BST<Key extends Comparable<Key>, Value> extends ST<Key, Value>{
      * @return
      */
     public Key min() {
+        if (root == null) return null;
         return min(root).key;
     }
 
     private Node min(Node x) {
-        if (x.left == null) return x;
-        return min(x.left);
+        while (x.left != null) x = x.left;
+        return x;
     }
 
     /**
@@ -114,54 +279,133 @@ public class BST<Key extends Comparable<Key>, Value> extends ST<Key, Value>{
      * @return
      */
     public Key max() {
+        if (root == null) return null;
         return max(root).key;
     }
 
     private Node max(Node x) {
-        if (x.right == null) return x;
-        return max(x.right);
+        while (x.right != null) x = x.right;
+        return x;
     }
 
     /**
      * 如果给定的键key小于二叉查找树的根结点的键，那么小于等于key的最大键floor(key)一定在根结点的左子树中；
      * 如果给定的键key大于二叉查找树的根结点的键，那么只有当根结点的右子树中存在小于等于key的结点时，小于等于key的最大键才会出现在右子树中，否则根结点就是小于等于key的最大键
+     * 因此只需要沿着一条路径向下走，记住最后一个经过的小于key的结点，走到空链接时它就是答案
      * @param key
      * @return
      */
     public Key floor(Key key) {
-        Node x = floor(root, key);
-        if (x == null) return null;
-        return x.key;
-    }
-
-    private Node floor(Node x, Key key) {
-        if (x == null) return null;
-        int cmp = key.compareTo(x.key);
-        if (cmp == 0) return x;
-        if (cmp < 0) return floor(x.left, key);
-        Node t = floor(x.right, key);
-        if (t != null) return t;
-        return x;
+        Node x = root;
+        Node t = null;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) return x.key;
+            if (cmp < 0) {
+                x = x.left;
+            } else {
+                t = x;
+                x = x.right;
+            }
+        }
+        if (t == null) return null;
+        return t.key;
     }
 
     /**
      * 如果给定的键key大于二叉查找树根结点的键，那么大于等于key的最小键ceil(key)一定在根结点的右子树中；
      * 如果给定的键key小于二叉查找树根结点的键，那么只有当根结点的左子树中存在大于等于key的结点时，大于等于key的最小键才会在左子树中出现，否则根结点就是大于等于key的最小键
+     * 和floor()对称，记住最后一个经过的大于key的结点
      */
-    public Key ceil(Key key) {
-        Node x = ceil(root, key);
-        if (x == null) return null;
-        return x.key;
+    public Key ceiling(Key key) {
+        Node x = root;
+        Node t = null;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) return x.key;
+            if (cmp > 0) {
+                x = x.right;
+            } else {
+                t = x;
+                x = x.left;
+            }
+        }
+        if (t == null) return null;
+        return t.key;
     }
 
-    private Node ceil(Node x, Key key) {
-        if (x == null) return null;
-        int cmp = key.compareTo(x.key);
-        if (cmp == 0) return x;
-        if (cmp < 0) return ceil(x.right, key);
-        Node t = ceil(x.left, key);
-        if (t != null) return t;
-        return x;
+    /**
+     * rank()是select()的逆方法，它会返回给定键的排名：
+     *   如果给定的键和根结点的键相等，返回左子树中的结点总数t；
+     *   如果给定的键小于根结点，返回该键在左子树中的排名；
+     *   如果给定的键大于根结点，返回t+1（根结点）加上它在右子树中的排名
+     */
+    public int rank(Key key) {
+        int r = 0;
+        Node x = root;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0) {
+                x = x.left;
+            } else if (cmp > 0) {
+                r += size(x.left) + 1;
+                x = x.right;
+            } else {
+                return r + size(x.left);
+            }
+        }
+        return r;
+    }
+
+    public int size(Key lo, Key hi) {
+        if (lo.compareTo(hi) > 0) return 0;
+        if (contains(hi)) return rank(hi) - rank(lo) + 1;
+        return rank(hi) - rank(lo);
+    }
+
+    /**
+     * [lo..hi]之间所有的值按键的顺序合并的结果，范围为空时返回单位元。
+     * 找到第一个键在[lo..hi]之间的结点x之后，在左子树中沿lo的查找路径、在右子树中沿hi的查找路径向下，路径一侧的整棵子树直接取聚合值，
+     * 只需要与树高成正比次的combine()
+     */
+    public Value aggregate(Key lo, Key hi) {
+        if (monoid == null) throw new IllegalStateException("no monoid");
+        if (lo.compareTo(hi) > 0) return monoid.identity();
+        Node x = root;
+        while (x != null) {
+            if (hi.compareTo(x.key) < 0) x = x.left;
+            else if (lo.compareTo(x.key) > 0) x = x.right;
+            else break;
+        }
+        if (x == null) return monoid.identity();
+        Value left = monoid.identity();
+        for (Node t = x.left; t != null; ) {
+            int cmp = lo.compareTo(t.key);
+            if (cmp <= 0) {
+                left = monoid.combine(monoid.combine(t.value, agg(t.right)), left);
+                if (cmp == 0) break;
+                t = t.left;
+            } else {
+                t = t.right;
+            }
+        }
+        Value right = monoid.identity();
+        for (Node t = x.right; t != null; ) {
+            int cmp = hi.compareTo(t.key);
+            if (cmp >= 0) {
+                right = monoid.combine(right, monoid.combine(agg(t.left), t.value));
+                if (cmp == 0) break;
+                t = t.right;
+            } else {
+                t = t.left;
+            }
+        }
+        return monoid.combine(monoid.combine(left, x.value), right);
+    }
+
+    public Value aggregate() {
+        if (monoid == null) throw new IllegalStateException("no monoid");
+        return agg(root);
     }
 
     /**
@@ -171,44 +415,58 @@ public class BST<Key extends Comparable<Key>, Value> extends ST<Key, Value>{
      *   如果t小于k，就（递归地）在右子树中查找排名为(k-t-1)的键
      */
     public Key select(int k) {
-        if (k >= size(root)) return null;
-        return select(root, k).key;
-    }
-
-    private Node select(Node x, int k) {
-        int t = size(x.left);
-        if (t > k) return select(x.left, k);
-        else if (t < k) return select(x.right, k-t-1);
-        else return x;
+        if (k < 0 || k >= size(root)) return null;
+        Node x = root;
+        while (true) {
+            int t = size(x.left);
+            if (t > k) {
+                x = x.left;
+            } else if (t < k) {
+                k = k - t - 1;
+                x = x.right;
+            } else {
+                return x.key;
+            }
+        }
     }
 
     /**
-     * 递归方法接受一个指向结点的链接，并返回一个指向结点的链接，这样就能够很方便的改变树的结构，将返回的链接赋给作为参数的链接。
-     * 对于deleteMin()，要不断地深入根结点的左子树中直至遇见一个空链接，然后将指向该结点的链接指向该结点的右子树（只需要在递归调用中返回它的右链接即可）。
+     * 对于deleteMin()，要不断地深入根结点的左子树中直至遇见一个空链接，然后将指向该结点的链接指向该结点的右子树。
+     * 向下走的过程中路径上的每个结点都会失去一个子孙结点，顺便将它们的计数器减1即可，不需要再向上爬一次
      */
     public void deleteMin() {
-        root = deleteMin(root);
-    }
-
-    private Node deleteMin(Node x) {
-        if (x.left == null) return x.right;
-        x.left = deleteMin(x.left);
-        x.N = size(x.left) + size(x.right) + 1;
-        return x;
+        if (root == null) return;
+        if (root.left == null) {
+            root = root.right;
+            return;
+        }
+        Node x = root;
+        while (x.left.left != null) {
+            x.N--;
+            x = x.left;
+        }
+        x.N--;
+        x.left = x.left.right;
+        if (monoid != null) repairSpine(root, true);
     }
 
     /**
-     * 对于deleteMax()，要不断地深入根结点的右子树直至遇见一个空链接，然后将指向该结点的链接指向该结点的左子树（只需要在递归调用中返回它的左链接即可）。
+     * 对于deleteMax()，要不断地深入根结点的右子树直至遇见一个空链接，然后将指向该结点的链接指向该结点的左子树。
      */
     public void deleteMax() {
-        root = deleteMax(root);
-    }
-
-    private Node deleteMax(Node x) {
-        if (x.right == null) return x.left;
-        x.right = deleteMax(x.right);
-        x.N = size(x.left) + size(x.right) + 1;
-        return x;
+        if (root == null) return;
+        if (root.right == null) {
+            root = root.left;
+            return;
+        }
+        Node x = root;
+        while (x.right.right != null) {
+            x.N--;
+            x = x.right;
+        }
+        x.N--;
+        x.right = x.right.left;
+        if (monoid != null) repairSpine(root, false);
     }
 
     /**
@@ -220,51 +478,117 @@ public class BST<Key extends Comparable<Key>, Value> extends ST<Key, Value>{
      *   2. 将x指向它的后继结点min(t.right);
      *   3. 将x的右链接（原本指向一棵所有结点都大于x.key的二叉查找树）指向deleteMin(t.right)。也就是在删除后所有结点仍然都大于x.key的子二叉查找树；
      *   4. 将x的左链接（本为空）设为t.left（其下所有的键都小于被删除的结点和它的后继结点）
-     * 在递归调用后修正被删除的结点的父结点的链接，并将由此结点到根结点的路径上的所有结点的计数器减1
+     * 修正被删除的结点的父结点的链接，并将由此结点到根结点的路径上的所有结点的计数器减1
+     *
+     * 非递归实现：先确认键存在（否则计数器不能改动），然后沿路径向下走，将经过的结点的计数器减1并记住父结点；
+     * 找后继结点时同样将t.right到后继结点之间的结点的计数器减1，最后只改写父结点的一条链接
      */
 
     public void delete(Key key) {
-        root = delete(root, key);
-    }
-
-    private Node delete(Node x, Key key) {
-        if (x == null) return null;
-        int cmp = key.compareTo(x.key);
-        if (cmp > 0) x.right = delete(x.right, key);
-        else if (cmp < 0) x.left = delete(x.left, key);
-        else {
-            if (x.right == null) return x.left;
-            else if (x.left == null) return x.right;
-            Node t = x;
-            x = min(t.right);
-            x.right = deleteMin(t.right);
+        if (node(key) == null) return;
+        Node parent = null;
+        Node x = root;
+        int cmp;
+        while ((cmp = key.compareTo(x.key)) != 0) {
+            x.N--;
+            parent = x;
+            x = cmp < 0 ? x.left : x.right;
+        }
+        Node t = x;
+        if (t.right == null) {
+            x = t.left;
+        } else if (t.left == null) {
+            x = t.right;
+        } else {
+            Node p = t;
+            x = t.right;
+            while (x.left != null) {
+                x.N--;
+                p = x;
+                x = x.left;
+            }
+            if (p != t) {
+                p.left = x.right;
+                x.right = t.right;
+            }
             x.left = t.left;
+            x.N = t.N - 1;
+        }
+        if (parent == null) root = x;
+        else if (parent.left == t) parent.left = x;
+        else parent.right = x;
+        if (monoid != null) {
+            if (t.left != null && t.right != null) repairSpine(x.right, true);
+            repair(key);
         }
-        x.N = size(x.left) + size(x.right) + 1;
-        return x;
     }
 
     /**
-     * 要实现能够返回给定范围内键的keys()方法，首先需要一个遍历二叉查找树的基本方法，叫做中序遍历。将所有落在给定范围以内的键加入一个队列Queue并跳过那些不可能含有所查找键的子树
+     * 要实现能够返回给定范围内键的keys()方法，首先需要一个遍历二叉查找树的基本方法，叫做中序遍历。跳过那些不可能含有所查找键的子树。
+     * 返回的Iterable不会预先把所有的键放进一个队列，而是每次迭代都创建一个中序遍历的游标RangeIterator，游标用一个显式的栈代替递归：
+     *   先把从根结点出发、沿左链接向下能到达的所有不小于lo的结点压入栈中（小于lo的结点和它的左子树直接跳过）；
+     *   每次弹出一个结点就得到下一个键，然后对它的右子树做同样的事情；弹出的键大于hi时遍历结束。
+     * 栈中最多只有树高个结点，调用者可以随时停止迭代。迭代过程中修改树的结果是未定义的
      */
 
     public Iterable<Key> keys() {
+        if (root == null) return new LinkedList<>();
         return keys(min(), max());
     }
 
     public Iterable<Key> keys(Key lo, Key hi) {
-        Queue<Key> queue = new LinkedList<>();
-        keys(root, queue, lo, hi);
-        return queue;
+        return () -> new RangeIterator(lo, hi);
     }
 
-    private void keys(Node x, Queue<Key> queue, Key lo, Key hi) {
+    /**
+     * 对[lo..hi]之间的每个键值对按顺序调用action，和keys(lo, hi)使用相同的游标，不需要再对每个键调用get()
+     */
+    public void forEachInRange(Key lo, Key hi, BiConsumer<? super Key, ? super Value> action) {
+        RangeIterator it = new RangeIterator(lo, hi);
+        while (it.hasNext()) {
+            Node x = it.nextNode();
+            action.accept(x.key, x.value);
+        }
+    }
 
-        if (x == null) return;
-        int cmplo = lo.compareTo(x.key);
-        int cmphi = hi.compareTo(x.key);
-        if (cmplo < 0) keys(x.left, queue, lo, hi);
-        if (cmplo <= 0 && cmphi >= 0) queue.add(x.key);
-        if (cmphi > 0) keys(x.right, queue, lo, hi);
+    private class RangeIterator implements Iterator<Key> {
+        private final Deque<Node> stack = new ArrayDeque<>();
+        private final Key hi;
+
+        RangeIterator(Key lo, Key hi) {
+            this.hi = hi;
+            Node x = root;
+            while (x != null) {
+                int cmp = lo.compareTo(x.key);
+                if (cmp < 0) {
+                    stack.push(x);
+                    x = x.left;
+                } else if (cmp == 0) {
+                    stack.push(x);
+                    break;
+                } else {
+                    x = x.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty() && hi.compareTo(stack.peek().key) >= 0;
+        }
+
+        @Override
+        public Key next() {
+            return nextNode().key;
+        }
+
+        Node nextNode() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Node x = stack.pop();
+            for (Node t = x.right; t != null; t = t.left) {
+                stack.push(t);
+            }
+            return x;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,536 @@
+package yadong0305.algorithms.ST;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * B+树：
+ *   二叉查找树的每个结点只有一个键，N个键需要N个结点，一次查找要经过lgN个（红黑树最多2lgN个）互相依赖、分散在堆中的结点，每个结点都可能是一次缓存未命中。
+ *   B+树把2-3树推广到M阶：每个结点最多含有M个键（由一个连续的数组保存），只有叶子结点保存键值对，内部结点只保存用来选择子结点的键。
+ *   树的高度只有log_M N，M = 64时一千万个键的树只有4层，每层只在一个连续的键数组中做二分查找。
+ *
+ *   内部结点：keys[i]是子树children[i]中最小的键，counts[i]是这棵子树中键的数量。查找时选择最后一个keys[i] <= key的子结点；
+ *     rank()和select()在每一层中累加counts[]，和BST中使用结点计数器N的方法相同，代价是对数级别的。
+ *   叶子结点：keys[]和values[]是一对有序的平行数组（和BinarySearchST一样），所有叶子结点按顺序由next链接成一条链表，范围查找找到起点之后只需要沿链表顺序扫描。
+ *
+ *   所有的叶子结点深度相同，每次查找都访问height()+1个结点，在每个结点中二分查找，打开STMetrics时分别计入访问的结点数和比较次数，结点分裂计入splits。
+ *   插入：在叶子结点中插入键，结点中的键超过M个时把它分裂为两个各含有一半键的结点，并把新结点插入父结点中，父结点溢出时继续向上分裂；根结点分裂时树高加1。
+ *   删除：在叶子结点中删除键，结点中的键少于M/2个时，如果相邻的兄弟结点的键多于M/2个就从兄弟结点借一个键（或子树），否则和兄弟结点合并，并从父结点中删除一项；根结点只剩一个子结点时树高减1。
+ *   因此除了根结点之外每个结点都至少是半满的。
+ */
+@SuppressWarnings("unchecked")
+public class BTreeST<Key extends Comparable<Key>, Value> extends OrderedST<Key, Value> {
+
+    private static final int DEFAULT_ORDER = 64;
+
+    private final int M;    // 每个结点最多含有的键的数量
+    private Node root;
+    private int N;    // 键值对总数
+
+    private abstract class Node {
+        final boolean leaf;
+        int n;    // 结点中键的数量
+        final Key[] keys = (Key[]) new Comparable[M + 1];    // 多留一个位置，插入后溢出再分裂
+
+        Node(boolean leaf) {
+            this.leaf = leaf;
+        }
+    }
+
+    private class Leaf extends Node {
+        final Value[] values = (Value[]) new Object[M + 1];
+        Leaf next;
+
+        Leaf() {
+            super(true);
+        }
+    }
+
+    private class Internal extends Node {
+        final Node[] children = (Node[]) new BTreeST.Node[M + 1];
+        final int[] counts = new int[M + 1];
+
+        Internal() {
+            super(false);
+        }
+    }
+
+    public BTreeST() {
+        this(DEFAULT_ORDER);
+    }
+
+    /**
+     * @param M：阶数，每个结点最多含有的键的数量，必须是不小于4的偶数
+     */
+    public BTreeST(int M) {
+        if (M < 4 || M % 2 != 0) throw new IllegalArgumentException("order must be an even number >= 4");
+        this.M = M;
+        root = new Leaf();
+    }
+
+    @Override
+    public int size() {
+        return N;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return N == 0;
+    }
+
+    /**
+     * 在x.keys[0..x.n)中二分查找，返回第一个大于等于key的键的位置
+     */
+    private int search(Node x, Key key) {
+        int compares = 0;
+        int lo = 0;
+        int hi = x.n - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = key.compareTo(x.keys[mid]);
+            compares++;
+            if (cmp < 0) hi = mid - 1;
+            else if (cmp > 0) lo = mid + 1;
+            else {
+                lo = mid;
+                break;
+            }
+        }
+        if (STMetrics.ENABLED) STMetrics.compare(compares);
+        return lo;
+    }
+
+    /**
+     * 内部结点中应该继续查找的子结点：最后一个keys[i] <= key的位置，key比所有的键都小时为0
+     */
+    private int child(Internal x, Key key) {
+        int i = search(x, key);
+        if (i < x.n && key.compareTo(x.keys[i]) == 0) return i;
+        return Math.max(i - 1, 0);
+    }
+
+    /**
+     * 返回key所在（或者应该在）的叶子结点
+     */
+    private Leaf findLeaf(Key key) {
+        int depth = 1;
+        Node x = root;
+        while (!x.leaf) {
+            Internal t = (Internal) x;
+            x = t.children[child(t, key)];
+            depth++;
+        }
+        if (STMetrics.ENABLED) STMetrics.visit(depth);
+        return (Leaf) x;
+    }
+
+    private int size(Node x) {
+        if (x.leaf) return x.n;
+        int[] counts = ((Internal) x).counts;
+        int size = 0;
+        for (int i = 0; i < x.n; i++) size += counts[i];
+        return size;
+    }
+
+    @Override
+    public Value get(Key key) {
+        Leaf x = findLeaf(key);
+        int i = search(x, key);
+        if (i < x.n && key.compareTo(x.keys[i]) == 0) return x.values[i];
+        return null;
+    }
+
+    @Override
+    public boolean contains(Key key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public void put(Key key, Value value) {
+        if (STMetrics.ENABLED) STMetrics.visit(height() + 1);
+        Node u = insert(root, key, value);
+        if (u != null) {
+            Internal t = new Internal();
+            t.keys[0] = root.keys[0];
+            t.children[0] = root;
+            t.counts[0] = size(root);
+            t.keys[1] = u.keys[0];
+            t.children[1] = u;
+            t.counts[1] = size(u);
+            t.n = 2;
+            root = t;
+        }
+    }
+
+    /**
+     * 在以h为根的子树中插入键值对，h分裂时返回分裂出的右半部分，否则返回null。键不存在时N加1
+     */
+    private Node insert(Node h, Key key, Value value) {
+        if (h.leaf) {
+            Leaf x = (Leaf) h;
+            int i = search(x, key);
+            if (i < x.n && key.compareTo(x.keys[i]) == 0) {
+                x.values[i] = value;
+                return null;
+            }
+            System.arraycopy(x.keys, i, x.keys, i + 1, x.n - i);
+            System.arraycopy(x.values, i, x.values, i + 1, x.n - i);
+            x.keys[i] = key;
+            x.values[i] = value;
+            x.n++;
+            N++;
+            if (x.n <= M) return null;
+            if (STMetrics.ENABLED) STMetrics.split();
+            Leaf t = new Leaf();
+            t.n = M / 2 + 1;
+            x.n = M / 2;
+            System.arraycopy(x.keys, x.n, t.keys, 0, t.n);
+            System.arraycopy(x.values, x.n, t.values, 0, t.n);
+            Arrays.fill(x.keys, x.n, M + 1, null);
+            Arrays.fill(x.values, x.n, M + 1, null);
+            t.next = x.next;
+            x.next = t;
+            return t;
+        }
+        Internal x = (Internal) h;
+        int i = child(x, key);
+        int before = N;
+        Node u = insert(x.children[i], key, value);
+        x.keys[i] = x.children[i].keys[0];
+        x.counts[i] += N - before;
+        if (u == null) return null;
+        x.counts[i] = size(x.children[i]);
+        System.arraycopy(x.keys, i + 1, x.keys, i + 2, x.n - i - 1);
+        System.arraycopy(x.children, i + 1, x.children, i + 2, x.n - i - 1);
+        System.arraycopy(x.counts, i + 1, x.counts, i + 2, x.n - i - 1);
+        x.keys[i + 1] = u.keys[0];
+        x.children[i + 1] = u;
+        x.counts[i + 1] = size(u);
+        x.n++;
+        if (x.n <= M) return null;
+        if (STMetrics.ENABLED) STMetrics.split();
+        Internal t = new Internal();
+        t.n = M / 2 + 1;
+        x.n = M / 2;
+        System.arraycopy(x.keys, x.n, t.keys, 0, t.n);
+        System.arraycopy(x.children, x.n, t.children, 0, t.n);
+        System.arraycopy(x.counts, x.n, t.counts, 0, t.n);
+        Arrays.fill(x.keys, x.n, M + 1, null);
+        Arrays.fill(x.children, x.n, M + 1, null);
+        return t;
+    }
+
+    @Override
+    public void delete(Key key) {
+        if (STMetrics.ENABLED) STMetrics.visit(height() + 1);
+        if (!remove(root, key)) return;
+        N--;
+        if (!root.leaf && root.n == 1) {
+            root = ((Internal) root).children[0];
+        }
+    }
+
+    /**
+     * 在以h为根的子树中删除key，返回是否删除了一个键。删除后子结点不足半满时由父结点调用fix()修复
+     */
+    private boolean remove(Node h, Key key) {
+        if (h.leaf) {
+            Leaf x = (Leaf) h;
+            int i = search(x, key);
+            if (i == x.n || key.compareTo(x.keys[i]) != 0) return false;
+            System.arraycopy(x.keys, i + 1, x.keys, i, x.n - i - 1);
+            System.arraycopy(x.values, i + 1, x.values, i, x.n - i - 1);
+            x.n--;
+            x.keys[x.n] = null;
+            x.values[x.n] = null;
+            return true;
+        }
+        Internal x = (Internal) h;
+        int i = child(x, key);
+        Node c = x.children[i];
+        if (!remove(c, key)) return false;
+        x.counts[i]--;
+        if (c.n > 0) x.keys[i] = c.keys[0];
+        if (c.n < M / 2) fix(x, i);
+        return true;
+    }
+
+    /**
+     * x.children[i]不足半满：从键多于M/2个的相邻兄弟结点借一项，否则和一个兄弟结点合并
+     */
+    private void fix(Internal x, int i) {
+        if (i > 0 && x.children[i - 1].n > M / 2) borrowFromLeft(x, i);
+        else if (i + 1 < x.n && x.children[i + 1].n > M / 2) borrowFromRight(x, i);
+        else if (i > 0) merge(x, i - 1);
+        else if (i + 1 < x.n) merge(x, i);
+    }
+
+    private void borrowFromLeft(Internal x, int i) {
+        Node l = x.children[i - 1];
+        Node c = x.children[i];
+        int moved = 1;
+        System.arraycopy(c.keys, 0, c.keys, 1, c.n);
+        c.keys[0] = l.keys[l.n - 1];
+        l.keys[l.n - 1] = null;
+        if (c.leaf) {
+            Value[] values = ((Leaf) c).values;
+            Value[] from = ((Leaf) l).values;
+            System.arraycopy(values, 0, values, 1, c.n);
+            values[0] = from[l.n - 1];
+            from[l.n - 1] = null;
+        } else {
+            Internal ci = (Internal) c;
+            Internal li = (Internal) l;
+            System.arraycopy(ci.children, 0, ci.children, 1, c.n);
+            System.arraycopy(ci.counts, 0, ci.counts, 1, c.n);
+            ci.children[0] = li.children[l.n - 1];
+            ci.counts[0] = li.counts[l.n - 1];
+            li.children[l.n - 1] = null;
+            moved = ci.counts[0];
+        }
+        l.n--;
+        c.n++;
+        x.keys[i] = c.keys[0];
+        x.counts[i - 1] -= moved;
+        x.counts[i] += moved;
+    }
+
+    private void borrowFromRight(Internal x, int i) {
+        Node c = x.children[i];
+        Node r = x.children[i + 1];
+        int moved = 1;
+        c.keys[c.n] = r.keys[0];
+        System.arraycopy(r.keys, 1, r.keys, 0, r.n - 1);
+        r.keys[r.n - 1] = null;
+        if (c.leaf) {
+            Value[] values = ((Leaf) r).values;
+            ((Leaf) c).values[c.n] = values[0];
+            System.arraycopy(values, 1, values, 0, r.n - 1);
+            values[r.n - 1] = null;
+        } else {
+            Internal ci = (Internal) c;
+            Internal ri = (Internal) r;
+            ci.children[c.n] = ri.children[0];
+            ci.counts[c.n] = ri.counts[0];
+            moved = ri.counts[0];
+            System.arraycopy(ri.children, 1, ri.children, 0, r.n - 1);
+            System.arraycopy(ri.counts, 1, ri.counts, 0, r.n - 1);
+            ri.children[r.n - 1] = null;
+        }
+        c.n++;
+        r.n--;
+        x.keys[i] = c.keys[0];
+        x.keys[i + 1] = r.keys[0];
+        x.counts[i] += moved;
+        x.counts[i + 1] -= moved;
+    }
+
+    /**
+     * 把x.children[i+1]中的所有项追加到x.children[i]中，然后从x中删除第i+1项
+     */
+    private void merge(Internal x, int i) {
+        Node l = x.children[i];
+        Node r = x.children[i + 1];
+        System.arraycopy(r.keys, 0, l.keys, l.n, r.n);
+        if (l.leaf) {
+            System.arraycopy(((Leaf) r).values, 0, ((Leaf) l).values, l.n, r.n);
+            ((Leaf) l).next = ((Leaf) r).next;
+        } else {
+            System.arraycopy(((Internal) r).children, 0, ((Internal) l).children, l.n, r.n);
+            System.arraycopy(((Internal) r).counts, 0, ((Internal) l).counts, l.n, r.n);
+        }
+        l.n += r.n;
+        x.keys[i] = l.keys[0];
+        x.counts[i] += x.counts[i + 1];
+        System.arraycopy(x.keys, i + 2, x.keys, i + 1, x.n - i - 2);
+        System.arraycopy(x.children, i + 2, x.children, i + 1, x.n - i - 2);
+        System.arraycopy(x.counts, i + 2, x.counts, i + 1, x.n - i - 2);
+        x.n--;
+        x.keys[x.n] = null;
+        x.children[x.n] = null;
+    }
+
+    public Key min() {
+        if (isEmpty()) return null;
+        Node x = root;
+        while (!x.leaf) x = ((Internal) x).children[0];
+        return x.keys[0];
+    }
+
+    public Key max() {
+        if (isEmpty()) return null;
+        Node x = root;
+        while (!x.leaf) x = ((Internal) x).children[x.n - 1];
+        return x.keys[x.n - 1];
+    }
+
+    /**
+     * 内部结点的键是子树中最小的键，所以只有key比整棵树中最小的键还小时，找到的叶子结点中才会没有小于等于key的键
+     */
+    public Key floor(Key key) {
+        if (isEmpty()) return null;
+        Leaf x = findLeaf(key);
+        int i = search(x, key);
+        if (i < x.n && key.compareTo(x.keys[i]) == 0) return x.keys[i];
+        if (i == 0) return null;
+        return x.keys[i - 1];
+    }
+
+    /**
+     * 找到的叶子结点中所有的键都小于key时，大于等于key的最小键是下一个叶子结点中的第一个键
+     */
+    public Key ceiling(Key key) {
+        if (isEmpty()) return null;
+        Leaf x = findLeaf(key);
+        int i = search(x, key);
+        if (i < x.n) return x.keys[i];
+        if (x.next == null) return null;
+        return x.next.keys[0];
+    }
+
+    public int rank(Key key) {
+        int r = 0;
+        Node x = root;
+        while (!x.leaf) {
+            Internal t = (Internal) x;
+            int i = child(t, key);
+            if (i == 0 && t.n > 0 && key.compareTo(t.keys[0]) < 0) return r;
+            for (int j = 0; j < i; j++) r += t.counts[j];
+            x = t.children[i];
+        }
+        return r + search(x, key);
+    }
+
+    public Key select(int k) {
+        if (k < 0 || k >= N) return null;
+        Node x = root;
+        while (!x.leaf) {
+            Internal t = (Internal) x;
+            int i = 0;
+            while (k >= t.counts[i]) k -= t.counts[i++];
+            x = t.children[i];
+        }
+        return x.keys[k];
+    }
+
+    public void deleteMin() {
+        if (!isEmpty()) delete(min());
+    }
+
+    public void deleteMax() {
+        if (!isEmpty()) delete(max());
+    }
+
+    public int size(Key lo, Key hi) {
+        if (lo.compareTo(hi) > 0) return 0;
+        if (contains(hi)) return rank(hi) - rank(lo) + 1;
+        return rank(hi) - rank(lo);
+    }
+
+    @Override
+    public Iterable<Key> keys() {
+        if (isEmpty()) return new LinkedList<>();
+        return keys(min(), max());
+    }
+
+    /**
+     * 找到lo所在的叶子结点之后沿着叶子结点的链表顺序扫描，每个叶子结点中的键都是连续存放的
+     */
+    public Iterable<Key> keys(Key lo, Key hi) {
+        return () -> new RangeIterator(lo, hi);
+    }
+
+    public void forEachInRange(Key lo, Key hi, BiConsumer<? super Key, ? super Value> action) {
+        RangeIterator it = new RangeIterator(lo, hi);
+        while (it.hasNext()) {
+            action.accept(it.leaf.keys[it.i], it.leaf.values[it.i]);
+            it.advance();
+        }
+    }
+
+    /**
+     * 检查B+树的性质：结点中的键有序，内部结点的键和计数器与子树一致，除根结点外的结点都至少半满，所有叶子结点的深度相同，叶子结点的链表按顺序含有全部的键
+     */
+    boolean check() {
+        if (count(root, null, null, true, height()) != N) return false;
+        Node x = root;
+        while (!x.leaf) x = ((Internal) x).children[0];
+        int n = 0;
+        Key last = null;
+        for (Leaf t = (Leaf) x; t != null; t = t.next) {
+            for (int i = 0; i < t.n; i++, n++) {
+                if (last != null && last.compareTo(t.keys[i]) >= 0) return false;
+                last = t.keys[i];
+            }
+        }
+        return n == N;
+    }
+
+    private int height() {
+        int h = 0;
+        for (Node x = root; !x.leaf; x = ((Internal) x).children[0]) h++;
+        return h;
+    }
+
+    /**
+     * 返回子树中键的数量，子树不满足B+树的性质时返回-1。子树中所有的键都应该在[lo..hi)之间
+     */
+    private int count(Node x, Key lo, Key hi, boolean isRoot, int height) {
+        if (!isRoot && x.n < M / 2) return -1;
+        if (x.n > M) return -1;
+        for (int i = 0; i < x.n; i++) {
+            if (i > 0 && x.keys[i - 1].compareTo(x.keys[i]) >= 0) return -1;
+            if (lo != null && x.keys[i].compareTo(lo) < 0) return -1;
+            if (hi != null && x.keys[i].compareTo(hi) >= 0) return -1;
+        }
+        if (x.leaf) return height == 0 ? x.n : -1;
+        Internal t = (Internal) x;
+        int size = 0;
+        for (int i = 0; i < x.n; i++) {
+            Key next = i + 1 < x.n ? x.keys[i + 1] : hi;
+            int c = count(t.children[i], x.keys[i], next, false, height - 1);
+            if (c != t.counts[i] || t.children[i].keys[0] != x.keys[i]) return -1;
+            size += c;
+        }
+        return size;
+    }
+
+    private class RangeIterator implements Iterator<Key> {
+        private Leaf leaf;
+        private int i;
+        private final Key hi;
+
+        RangeIterator(Key lo, Key hi) {
+            this.hi = hi;
+            leaf = findLeaf(lo);
+            i = search(leaf, lo);
+            if (i == leaf.n) {
+                leaf = leaf.next;
+                i = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null && i < leaf.n && hi.compareTo(leaf.keys[i]) >= 0;
+        }
+
+        @Override
+        public Key next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Key key = leaf.keys[i];
+            advance();
+            return key;
+        }
+
+        void advance() {
+            if (++i == leaf.n) {
+                leaf = leaf.next;
+                i = 0;
+            }
+        }
+    }
+}
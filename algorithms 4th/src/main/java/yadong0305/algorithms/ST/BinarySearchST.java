@@ -1,18 +1,31 @@
 package yadong0305.algorithms.ST;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.Queue;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * 有序数组中的二分查找：
  *   使用一对平行数组，一个存储键，一个存储值，保证数组中Comparable类型的键有序，然后使用数组的索引来高效地实现get()和其他操作
  */
 @SuppressWarnings("unchecked")
-public class BinarySearchST<Key extends Comparable<Key>, Value> extends ST<Key, Value> {
+public class BinarySearchST<Key extends Comparable<Key>, Value> extends OrderedST<Key, Value> {
+
+    private static final int FENCE_STEP = 64;    // 稀疏索引中相邻两个键在keys[]中的距离
+    private static final int FENCE_THRESHOLD = 1 << 14;    // 键的数量达到这个值时rank()才使用稀疏索引
 
     private Key[] keys;
     private Value[] values;
     private int N;
+    private Key[] fence;    // 稀疏索引：fence[j] = keys[j * FENCE_STEP]。只在批量装载、批量更新和冻结时建立，put()或delete()之后置为null
+    private boolean frozen;
+    private LearnedIndex model;    // 学习型索引：冻结或批量装载时建立（键是Number并且分布足够平滑时），插入或删除键之后置为null
 
     public BinarySearchST(int capacity) {
 
@@ -20,28 +33,172 @@ public class BinarySearchST<Key extends Comparable<Key>, Value> extends ST<Key,
         values = (Value[]) new Object[capacity];
     }
 
+    /**
+     * 批量装载：键已经严格递增时，有序数组本身就是最终的表，只需要复制一次，不需要逐个put()（每次put()都要移动数组的尾部，总共是平方级别的）
+     * @param keys：严格递增的键
+     * @param values：和keys一一对应的值
+     */
+    public static <Key extends Comparable<Key>, Value> BinarySearchST<Key, Value> fromSorted(Key[] keys, Value[] values) {
+        BulkLoad.checkLengths(keys, values);
+        BulkLoad.checkSorted(keys, keys.length);
+        BinarySearchST<Key, Value> st = new BinarySearchST<>(0);
+        st.keys = Arrays.copyOf(keys, Math.max(keys.length, 1));
+        st.values = Arrays.copyOf(values, Math.max(values.length, 1));
+        st.N = keys.length;
+        st.buildModel();
+        st.buildFence();
+        return st;
+    }
+
+    /**
+     * 批量装载任意顺序的键：先排序并去除重复的键（重复的键保留最后一个值，和依次put()的结果相同），排序后的数组直接作为表使用
+     */
+    public static <Key extends Comparable<Key>, Value> BinarySearchST<Key, Value> fromUnsorted(Key[] keys, Value[] values) {
+        BulkLoad.checkLengths(keys, values);
+        BinarySearchST<Key, Value> st = new BinarySearchST<>(1);
+        if (keys.length == 0) return st;
+        st.keys = keys.clone();
+        st.values = values.clone();
+        st.N = BulkLoad.sortAndDedupe(st.keys, st.values);
+        st.buildModel();
+        st.buildFence();
+        return st;
+    }
+
+    /**
+     * 和fromUnsorted()相同，但是在ForkJoinPool中并行排序
+     */
+    public static <Key extends Comparable<Key>, Value> BinarySearchST<Key, Value> parallelFromUnsorted(Key[] keys, Value[] values) {
+        BulkLoad.checkLengths(keys, values);
+        BinarySearchST<Key, Value> st = new BinarySearchST<>(1);
+        if (keys.length == 0) return st;
+        st.keys = keys.clone();
+        st.values = values.clone();
+        st.N = BulkLoad.parallelSortAndDedupe(st.keys, st.values);
+        st.buildModel();
+        st.buildFence();
+        return st;
+    }
+
     /**
      * resize()方法，动态增加表的大小
      * @param capacity：更改后表的大小
      */
     public void resize(int capacity) {
+        if (STMetrics.ENABLED) STMetrics.resize();
         Key[] keys = (Key[]) new Comparable[capacity];
         Value[] values = (Value[]) new Object[capacity];
-        for (int i=0; i<N; i++) {
-            keys[i] = this.keys[i];
-            values[i] = this.values[i];
-        }
+        System.arraycopy(this.keys, 0, keys, 0, N);
+        System.arraycopy(this.values, 0, values, 0, N);
         this.keys = keys;
         this.values = values;
     }
 
     /**
-     * rank()方法，返回表中小于给定键的键的数量
+     * rank()方法，返回表中小于给定键的键的数量。
+     * 表很大时先在稀疏索引中二分查找，确定key所在的那一段（FENCE_STEP个键），再在这一段中二分查找：
+     *   比较的次数和直接二分查找相同，但是稀疏索引只有N/64个键，可以一直留在缓存中，而直接二分查找的前面十几次比较访问的都是keys[]中相距很远、很可能不在缓存中的位置。
+     * 有学习型索引时先用它预测位置，只在预测位置附近的窗口中二分查找，比较的次数从lgN减少到lg(2·EPSILON)，也不需要访问稀疏索引。
+     * rank()本身从不建立稀疏索引：put()先调用rank()再使索引失效，如果在这里重建，每次插入都要多付出O(N/64)的代价。
+     * 逐个插入或删除之后的表直接在整个数组中二分查找，直到下一次批量操作或者freeze()
      */
     public int rank(Key key) {
+        if (model != null && key instanceof Number) {
+            int r = modelRank(key);
+            if (r >= 0) return r;
+        }
+        if (fence == null) return rank(key, 0, N - 1);
         int lo = 0;
-        int hi = N - 1;
+        int hi = fence.length - 1;
+        while (lo <= hi) {
+            int mid = lo + (hi - lo)/2;
+            int cmp = key.compareTo(fence[mid]);
+            if (cmp < 0) {
+                hi = mid - 1;
+            } else if (cmp > 0) {
+                lo = mid + 1;
+            } else {
+                return mid * FENCE_STEP;
+            }
+        }
+        if (lo == 0) return 0;
+        int from = (lo - 1) * FENCE_STEP;
+        return rank(key, from + 1, Math.min(from + FENCE_STEP, N) - 1);
+    }
+
+    /**
+     * 在预测位置附近的窗口keys[lo..hi]中二分查找。窗口中第一个大于等于key的位置r是整个数组中的答案，当且仅当
+     * r不在窗口的左边界上或者keys[lo-1]小于key，并且r不在窗口的右边界之外或者keys[hi+1]大于等于key；
+     * 窗口内部的键已经由二分查找确认过了，所以最多再比较两次。预测超出误差范围（坐标精度不够）时返回-1
+     */
+    private int modelRank(Key key) {
+        int p = model.predict(((Number) key).doubleValue(), N);
+        int lo = Math.max(p - LearnedIndex.EPSILON - 1, 0);
+        int hi = Math.min(p + LearnedIndex.EPSILON + 1, N - 1);
+        int r = rank(key, lo, hi);
+        if (r == lo && lo > 0 && keys[lo - 1].compareTo(key) >= 0) return -1;
+        if (r > hi && hi < N - 1 && keys[hi + 1].compareTo(key) < 0) return -1;
+        return r;
+    }
+
+    private void buildModel() {
+        model = N >= FENCE_THRESHOLD ? LearnedIndex.build(keys, N) : null;
+    }
+
+    /**
+     * 去掉学习型索引，只保留稀疏索引，用于在同一张表上比较有和没有学习型索引时的查找（性能测试）
+     */
+    void dropModel() {
+        model = null;
+        if (fence == null) buildFence();
+    }
+
+    /**
+     * 冻结：表在接下来只读时调用。把数组收缩到恰好N个元素，并建立稀疏索引（逐个put()装载的表在冻结之前没有稀疏索引），之后的查找不再有任何额外的开销。
+     * 键是对象时，每次比较都要访问一个在堆中的Comparable对象，Eytzinger布局（见IntBinarySearchST.freeze()）会把查找路径最后几层的对象引用打散到整个数组中，
+     * 反而比有序数组慢；有序数组的稀疏索引让查找的前半段留在缓存中，后半段在64个相邻的键中进行，是对象键更好的只读布局。
+     * 键是Number时再尝试建立学习型索引（见LearnedIndex），键的分布平滑时查找只需要在预测位置附近的几十个键中进行，不再需要稀疏索引。
+     * 更新已有键的值不影响冻结；插入或删除一个键会解除冻结，需要时可以再次调用freeze()
+     */
+    public void freeze() {
+        if (keys.length > N) resize(Math.max(N, 1));
+        buildModel();
+        if (model == null) buildFence();
+        frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * 插入或删除键之后，稀疏索引和学习型索引不再有效，表也不再是冻结的
+     */
+    private void invalidate() {
+        fence = null;
+        model = null;
+        frozen = false;
+    }
+
+    /**
+     * 键的数量达到FENCE_THRESHOLD时建立稀疏索引，否则不需要
+     */
+    private void buildFence() {
+        if (N < FENCE_THRESHOLD) {
+            fence = null;
+            return;
+        }
+        fence = (Key[]) new Comparable[(N + FENCE_STEP - 1) / FENCE_STEP];
+        for (int j = 0; j < fence.length; j++) fence[j] = keys[j * FENCE_STEP];
+    }
+
+    /**
+     * 在keys[lo..hi]中进行二分查找，返回keys[lo..hi]中第一个大于等于key的键的位置（都小于key时返回hi+1）
+     */
+    private int rank(Key key, int lo, int hi) {
+        int compares = 0;
         while (lo <= hi) {
+            compares++;
             int mid = lo + (hi - lo)/2;
             int cmp = key.compareTo(keys[mid]);
             if (cmp < 0) {
@@ -49,12 +206,30 @@ public class BinarySearchST<Key extends Comparable<Key>, Value> extends ST<Key,
             } else if (cmp > 0) {
                 lo = mid + 1;
             } else {
+                if (STMetrics.ENABLED) STMetrics.compare(compares);
                 return mid;
             }
         }
+        if (STMetrics.ENABLED) STMetrics.compare(compares);
         return lo;
     }
 
+    /**
+     * 倍增查找：从位置from开始依次检查from+1、from+3、from+7……直到越过key，再在最后一段中二分查找。
+     * 返回keys[from..N)中第一个大于等于key的键的位置，代价是O(log d)，d为返回位置和from的距离。
+     * 按顺序处理一批已排序的键时，每个键都从上一个键的位置开始查找，整批键只沿着数组走一遍
+     */
+    private int gallop(Key key, int from) {
+        int lo = from;
+        int step = 1;
+        while (lo < N && key.compareTo(keys[lo]) > 0) {
+            from = lo + 1;
+            lo = from + step - 1;
+            step += step;
+        }
+        return rank(key, from, Math.min(lo, N - 1));
+    }
+
     /**
      * put()方法，只要给定的键存在于表中，rank()方法就能够精确地告诉我们到哪里去更新它的值，以及当键不存在时将键存储到表的何处。将所有更大的键向后移动一格来腾出位置（从后往前移动）并将给定的键值对分别插入到各自数组中的合适位置
      */
@@ -65,15 +240,51 @@ public class BinarySearchST<Key extends Comparable<Key>, Value> extends ST<Key,
             return;
         }
         if (N == keys.length) {
-            resize(N*2);
-        }
-        for (int j=N; j>i; j--) {
-            keys[j] = keys[j-1];
-            values[j] = values[j-1];
+            resize(Math.max(N*2, 1));
         }
+        System.arraycopy(keys, i, keys, i + 1, N - i);
+        System.arraycopy(values, i, values, i + 1, N - i);
         keys[i] = key;
         values[i] = value;
         N++;
+        invalidate();
+    }
+
+    /**
+     * 批量插入：逐个put()插入k个键最多要移动k·N个元素。这里先将这批键排序并去重，然后从两个数组的末尾开始向前归并：
+     *   对这批键中的每一个（从大到小），用二分查找找到表中比它大的那一段键，这一段键整体向后移动到最终位置（System.arraycopy()），再放入这个键；
+     *   每个元素最多移动一次，表的前面比这批键都小的部分完全不动。
+     * 总代价为O(k log k + k log N + N)
+     */
+    public void putAll(Key[] keys, Value[] values) {
+        BulkLoad.checkLengths(keys, values);
+        Key[] batchKeys = keys.clone();
+        Value[] batchValues = values.clone();
+        int k = BulkLoad.sortAndDedupe(batchKeys, batchValues);
+        int hits = 0;
+        for (int j = 0, i = 0; j < k; j++) {
+            i = gallop(batchKeys[j], i);
+            if (i < N && batchKeys[j].compareTo(this.keys[i]) == 0) hits++;
+        }
+        int n = N + k - hits;
+        if (n > this.keys.length) resize(Math.max(n, 2 * N));
+        int i = N - 1;
+        int dst = n - 1;
+        for (int j = k - 1; j >= 0; j--) {
+            int r = rank(batchKeys[j], 0, i);
+            boolean hit = r <= i && batchKeys[j].compareTo(this.keys[r]) == 0;
+            int from = hit ? r + 1 : r;
+            int len = i - from + 1;
+            System.arraycopy(this.keys, from, this.keys, dst - len + 1, len);
+            System.arraycopy(this.values, from, this.values, dst - len + 1, len);
+            dst -= len;
+            this.keys[dst] = batchKeys[j];
+            this.values[dst--] = batchValues[j];
+            i = r - 1;
+        }
+        N = n;
+        invalidate();
+        buildFence();
     }
 
     /**
@@ -88,23 +299,73 @@ public class BinarySearchST<Key extends Comparable<Key>, Value> extends ST<Key,
         return null;
     }
 
+    /**
+     * 批量查找：按键的顺序处理这批键，每个键都用gallop()从上一个键的位置开始查找，而不是k次从头开始的rank()。
+     * 返回的列表和参数中的键一一对应，不存在的键对应null
+     */
+    public List<Value> getAll(final Key[] keys) {
+        Integer[] order = new Integer[keys.length];
+        for (int j = 0; j < keys.length; j++) order[j] = j;
+        Arrays.sort(order, (a, b) -> keys[a].compareTo(keys[b]));
+        Value[] result = (Value[]) new Object[keys.length];
+        int i = 0;
+        for (int j : order) {
+            i = gallop(keys[j], i);
+            if (i < N && keys[j].compareTo(this.keys[i]) == 0) result[j] = values[i];
+        }
+        return Arrays.asList(result);
+    }
+
     public boolean contains(Key key) {
         int pos = rank(key);
-        return key.compareTo(keys[pos]) == 0;
+        return pos < N && key.compareTo(keys[pos]) == 0;
     }
 
     public void delete(Key key) {
         int pos = rank(key);
-        for (int i = pos; i < N - 1; i++) {
-            keys[i] = keys[i + 1];
-            values[i] = values[i + 1];
+        if (pos == N || key.compareTo(keys[pos]) != 0) {
+            return;
         }
+        System.arraycopy(keys, pos + 1, keys, pos, N - pos - 1);
+        System.arraycopy(values, pos + 1, values, pos, N - pos - 1);
         N--;
+        keys[N] = null;
+        values[N] = null;
+        invalidate();
         if (N < keys.length / 4) {
             resize(keys.length / 2);
         }
     }
 
+    /**
+     * 批量删除：将这批键排序后从前往后压缩数组，两个被删除的键之间的那一段键整体向前移动（System.arraycopy()），每个元素最多移动一次
+     */
+    public void deleteAll(Key[] keys) {
+        Key[] batch = keys.clone();
+        Arrays.sort(batch);
+        int read = 0;
+        int write = 0;
+        for (Key key : batch) {
+            int pos = gallop(key, read);
+            if (pos == N || key.compareTo(this.keys[pos]) != 0) continue;
+            System.arraycopy(this.keys, read, this.keys, write, pos - read);
+            System.arraycopy(this.values, read, this.values, write, pos - read);
+            write += pos - read;
+            read = pos + 1;
+        }
+        System.arraycopy(this.keys, read, this.keys, write, N - read);
+        System.arraycopy(this.values, read, this.values, write, N - read);
+        write += N - read;
+        Arrays.fill(this.keys, write, N, null);
+        Arrays.fill(this.values, write, N, null);
+        N = write;
+        invalidate();
+        buildFence();
+        if (N < this.keys.length / 4) {
+            resize(Math.max(2 * N, 1));
+        }
+    }
+
     public boolean isEmpty() {
         return N == 0;
     }
@@ -114,19 +375,27 @@ public class BinarySearchST<Key extends Comparable<Key>, Value> extends ST<Key,
     }
 
     public Key min() {
+        if (isEmpty()) return null;
         return keys[0];
     }
 
     public Key max() {
+        if (isEmpty()) return null;
         return keys[N-1];
     }
 
+    /**
+     * 键存在时rank()返回它的位置，否则返回第一个大于它的键的位置，小于等于它的最大键就在前一个位置
+     */
     public Key floor(Key key) {
         int pos = rank(key);
-        if (pos<0) {
+        if (pos < N && key.compareTo(keys[pos]) == 0) {
+            return keys[pos];
+        }
+        if (pos == 0) {
             return null;
         }
-        return keys[pos];
+        return keys[pos - 1];
     }
 
     public Key ceiling(Key key) {
@@ -138,31 +407,112 @@ public class BinarySearchST<Key extends Comparable<Key>, Value> extends ST<Key,
     }
 
     public Key select(int key) {
+        if (key < 0 || key >= N) return null;
         return keys[key];
     }
 
     public void deleteMin() {
-        delete(keys[0]);
+        if (!isEmpty()) delete(keys[0]);
     }
 
     public void deleteMax() {
-        delete(keys[N-1]);
+        if (!isEmpty()) delete(keys[N-1]);
     }
 
     public int size(Key lo, Key hi) {
-        return rank(hi) - rank(lo) + 1;
+        if (lo.compareTo(hi) > 0) return 0;
+        if (contains(hi)) return rank(hi) - rank(lo) + 1;
+        return rank(hi) - rank(lo);
     }
 
+    /**
+     * [lo..hi]之间的键在数组中是连续的一段keys[rank(lo)..rank(lo)+size(lo, hi))，因此范围查找只需要两次二分查找，然后按索引依次返回，不需要复制
+     */
     public Iterable<Key> keys(Key lo, Key hi) {
-        Queue<Key> temp = new LinkedList<>();
-        for (int i=rank(lo); i<=rank(hi); i++) {
-            temp.add(keys[i]);
-        }
-        return temp;
+        int from = rank(lo);
+        int to = from + size(lo, hi);
+        return () -> new Iterator<Key>() {
+            private int i = from;
+
+            @Override
+            public boolean hasNext() {
+                return i < to;
+            }
+
+            @Override
+            public Key next() {
+                if (i >= to) throw new NoSuchElementException();
+                return keys[i++];
+            }
+        };
     }
 
     public Iterable<Key> keys() {
+        if (isEmpty()) return new LinkedList<>();
         return keys(keys[0], keys[N-1]);
     }
 
+    public void forEachInRange(Key lo, Key hi, BiConsumer<? super Key, ? super Value> action) {
+        int from = rank(lo);
+        int to = from + size(lo, hi);
+        for (int i = from; i < to; i++) {
+            action.accept(keys[i], values[i]);
+        }
+    }
+
+    /**
+     * 按索引范围分割的Spliterator：trySplit()把剩下的索引范围从中间分成两半，两半的大小都是精确的
+     */
+    @Override
+    public Spliterator<Key> spliterator(Key lo, Key hi) {
+        int from = rank(lo);
+        return new IndexSpliterator(from, from + size(lo, hi));
+    }
+
+    private class IndexSpliterator implements Spliterator<Key> {
+        private int i;
+        private final int to;
+
+        IndexSpliterator(int from, int to) {
+            this.i = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Key> action) {
+            if (i >= to) return false;
+            action.accept(keys[i++]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Key> action) {
+            while (i < to) action.accept(keys[i++]);
+        }
+
+        @Override
+        public Spliterator<Key> trySplit() {
+            int mid = (i + to) >>> 1;
+            if (mid <= i) return null;
+            Spliterator<Key> prefix = new IndexSpliterator(i, mid);
+            i = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - i;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+        }
+
+        @Override
+        public Comparator<? super Key> getComparator() {
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,80 @@
+package yadong0305.algorithms.ST;
+
+/**
+ * 计数布隆过滤器：
+ *   m个计数器和k个散列函数，add()把key对应的k个计数器加1，remove()把它们减1，mightContain()在k个计数器都不为0时返回true。
+ *   返回false时key一定不在集合中；返回true时key可能不在集合中（假阳性），n个键时假阳性的概率约为(1 - e^(-kn/m))^k。
+ *   普通的布隆过滤器每个位置只有一个二进制位，无法删除；这里每个位置是一个8位的计数器，达到255之后不再增减（溢出的计数器永远不会归零，只会增加假阳性，不会产生假阴性）。
+ *
+ *   k个散列值由两个散列值组合得到：h1 + i·h2（i = 0..k-1），两个散列值都由hashCode()经过不同的混合函数得到。
+ */
+public class BloomFilter<Key> {
+
+    private final byte[] counters;
+    private final int k;
+
+    /**
+     * @param n：预计的键的数量
+     * @param p：n个键时期望的假阳性概率
+     */
+    public BloomFilter(int n, double p) {
+        if (n < 1) throw new IllegalArgumentException("n must be positive");
+        if (!(p > 0 && p < 1)) throw new IllegalArgumentException("p must be in (0, 1)");
+        double ln2 = Math.log(2);
+        int m = (int) Math.min(Integer.MAX_VALUE - 8, Math.ceil(-n * Math.log(p) / (ln2 * ln2)));
+        counters = new byte[Math.max(m, 8)];
+        k = Math.max(1, (int) Math.round((double) counters.length / n * ln2));
+    }
+
+    private static int mix1(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ h >>> 16;
+    }
+
+    private static int mix2(int h) {
+        h *= 0x9e3779b9;
+        h ^= h >>> 15;
+        h *= 0x27d4eb2f;
+        return (h ^ h >>> 13) | 1;
+    }
+
+    private int index(int h1, int h2, int i) {
+        return ((h1 + i * h2) & 0x7fffffff) % counters.length;
+    }
+
+    public void add(Key key) {
+        int h = key.hashCode();
+        int h1 = mix1(h);
+        int h2 = mix2(h);
+        for (int i = 0; i < k; i++) {
+            int j = index(h1, h2, i);
+            if (counters[j] != (byte) 0xff) counters[j]++;
+        }
+    }
+
+    /**
+     * 删除一个之前add()过的键。删除一个没有add()过的键会使其他的键产生假阴性
+     */
+    public void remove(Key key) {
+        int h = key.hashCode();
+        int h1 = mix1(h);
+        int h2 = mix2(h);
+        for (int i = 0; i < k; i++) {
+            int j = index(h1, h2, i);
+            if (counters[j] != (byte) 0xff && counters[j] != 0) counters[j]--;
+        }
+    }
+
+    public boolean mightContain(Key key) {
+        int h = key.hashCode();
+        int h1 = mix1(h);
+        int h2 = mix2(h);
+        for (int i = 0; i < k; i++) {
+            if (counters[index(h1, h2, i)] == 0) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,81 @@
+package yadong0305.algorithms.ST;
+
+/**
+ * 带有布隆过滤器的符号表：
+ *   包装任意一张符号表，get()和contains()先查询布隆过滤器，过滤器判定键不存在时直接返回，不再进入被包装的表
+ *   （BST和BinarySearchST中一次未命中的查找要做lgN次比较，SequentialSearchST要遍历整个链表），只有可能存在的键（命中和少量假阳性）才真正查找。
+ *   put()和delete()在修改被包装的表的同时更新过滤器，表的大小是否变化说明了键是新插入的还是被删除了。
+ *   键的数量超过过滤器的容量时，用两倍的容量和表中所有的键重建过滤器，假阳性的概率保持在p左右。
+ * 被包装的表只能通过这张表修改，直接修改被包装的表会使过滤器产生假阴性
+ */
+public class BloomFilterST<Key, Value> extends ST<Key, Value> {
+
+    private final ST<Key, Value> st;
+    private final double p;
+    private int capacity;
+    private BloomFilter<Key> filter;
+
+    public BloomFilterST(ST<Key, Value> st) {
+        this(st, 1024, 0.01);
+    }
+
+    /**
+     * @param capacity：过滤器初始的容量
+     * @param p：假阳性的概率
+     */
+    public BloomFilterST(ST<Key, Value> st, int capacity, double p) {
+        this.st = st;
+        this.p = p;
+        rebuild(Math.max(capacity, st.size()));
+    }
+
+    private void rebuild(int capacity) {
+        this.capacity = capacity;
+        filter = new BloomFilter<>(capacity, p);
+        for (Key key : st.keys()) filter.add(key);
+    }
+
+    @Override
+    public void put(Key key, Value value) {
+        int n = st.size();
+        st.put(key, value);
+        if (st.size() > n) {
+            if (st.size() > capacity) rebuild(2 * capacity);
+            else filter.add(key);
+        }
+    }
+
+    @Override
+    public Value get(Key key) {
+        if (!filter.mightContain(key)) return null;
+        return st.get(key);
+    }
+
+    @Override
+    public void delete(Key key) {
+        if (!filter.mightContain(key)) return;
+        int n = st.size();
+        st.delete(key);
+        if (st.size() < n) filter.remove(key);
+    }
+
+    @Override
+    public boolean contains(Key key) {
+        return filter.mightContain(key) && st.contains(key);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return st.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return st.size();
+    }
+
+    @Override
+    public Iterable<Key> keys() {
+        return st.keys();
+    }
+}
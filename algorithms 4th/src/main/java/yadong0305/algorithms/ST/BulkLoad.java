@@ -0,0 +1,116 @@
+package yadong0305.algorithms.ST;
+
+import java.util.Arrays;
+
+/**
+ * 有序符号表批量装载的公共步骤：检查一组键是否严格递增，或者对一对平行数组排序并去除重复的键。
+ * 重复的键只保留最后出现的那一个，和依次调用put()的结果相同。
+ */
+final class BulkLoad {
+
+    /**
+     * 并行构造一棵树时，含有不少于这么多个键的子树才作为单独的任务
+     */
+    static final int PARALLEL_BUILD = 1 << 13;
+
+    private BulkLoad() {
+    }
+
+    static <Key extends Comparable<Key>> void checkSorted(Key[] keys, int n) {
+        for (int i = 0; i < n; i++) {
+            if (keys[i] == null) throw new IllegalArgumentException("null key at " + i);
+            if (i > 0 && keys[i - 1].compareTo(keys[i]) >= 0) {
+                throw new IllegalArgumentException("keys not strictly ascending at " + i);
+            }
+        }
+    }
+
+    static void checkLengths(Object[] keys, Object[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("keys.length != values.length");
+        }
+    }
+
+    /**
+     * 对keys[]和values[]进行稳定的自底向上归并排序，然后原地去除重复的键，返回剩余的键值对数量。
+     * 归并排序是稳定的，相等的键保持原来的相对顺序，因此每段相等的键中最后一个就是最后写入的值
+     */
+    @SuppressWarnings("unchecked")
+    static <Key extends Comparable<Key>, Value> int sortAndDedupe(Key[] keys, Value[] values) {
+        int n = keys.length;
+        for (int i = 0; i < n; i++) {
+            if (keys[i] == null) throw new IllegalArgumentException("null key at " + i);
+        }
+        Key[] a = keys, auxKeys = (Key[]) new Comparable[n];
+        Value[] v = values, auxValues = (Value[]) new Object[n];
+        for (int sz = 1; sz < n; sz += sz) {
+            for (int lo = 0; lo < n; lo += sz + sz) {
+                int mid = Math.min(lo + sz, n);
+                int hi = Math.min(lo + sz + sz, n);
+                int i = lo, j = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (i < mid && (j >= hi || a[j].compareTo(a[i]) >= 0)) {
+                        auxKeys[k] = a[i];
+                        auxValues[k] = v[i++];
+                    } else {
+                        auxKeys[k] = a[j];
+                        auxValues[k] = v[j++];
+                    }
+                }
+            }
+            Key[] t = a; a = auxKeys; auxKeys = t;
+            Value[] u = v; v = auxValues; auxValues = u;
+        }
+        if (a != keys) {
+            System.arraycopy(a, 0, keys, 0, n);
+            System.arraycopy(v, 0, values, 0, n);
+        }
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (i + 1 < n && keys[i].compareTo(keys[i + 1]) == 0) continue;
+            keys[m] = keys[i];
+            values[m++] = values[i];
+        }
+        for (int i = m; i < n; i++) {
+            keys[i] = null;
+            values[i] = null;
+        }
+        return m;
+    }
+
+    private static class Entry<Key, Value> {
+        final Key key;
+        final Value value;
+
+        Entry(Key key, Value value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * 和sortAndDedupe()的结果相同，但是用Arrays.parallelSort()在ForkJoinPool中并行排序。
+     * parallelSort()是稳定的归并排序，可是只能对一个数组排序，因此先把键值对放进Entry[]，排序后再写回两个数组，写回时顺便去除重复的键（线性时间）
+     */
+    @SuppressWarnings("unchecked")
+    static <Key extends Comparable<Key>, Value> int parallelSortAndDedupe(Key[] keys, Value[] values) {
+        int n = keys.length;
+        Entry<Key, Value>[] entries = (Entry<Key, Value>[]) new Entry[n];
+        for (int i = 0; i < n; i++) {
+            if (keys[i] == null) throw new IllegalArgumentException("null key at " + i);
+            entries[i] = new Entry<>(keys[i], values[i]);
+        }
+        Arrays.parallelSort(entries, (a, b) -> a.key.compareTo(b.key));
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (i + 1 < n && entries[i].key.compareTo(entries[i + 1].key) == 0) continue;
+            keys[m] = entries[i].key;
+            values[m++] = entries[i].value;
+        }
+        for (int i = m; i < n; i++) {
+            keys[i] = null;
+            values[i] = null;
+        }
+        return m;
+    }
+}
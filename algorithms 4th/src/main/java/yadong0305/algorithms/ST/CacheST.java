@@ -0,0 +1,504 @@
+package yadong0305.algorithms.ST;
+
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * 容量有界的缓存：
+ *   所有的符号表都会无限增长，用作慢速存储前面的缓存时无法限制内存。这张表的总权重（默认每个键值对的权重为1，也可以按估计的字节数计算）超过容量时，
+ *   按照淘汰策略删除键值对，直到总权重不超过容量。
+ *   get()未命中时如果提供了加载函数（loader），就调用它计算出值并放入缓存（get-or-compute）；命中、未命中、加载和淘汰的次数都有计数器。
+ *
+ *   键值对保存在一张LinearProbingHashST中，值是一个结点，结点同时位于淘汰策略的双向链表中，查找和淘汰策略的维护都是常数时间的：
+ *     LRU：所有结点按最近访问的顺序排成一条链表，访问时移到表头，淘汰表尾（最久没有被访问的）；
+ *     LFU：访问次数相同的结点排成一条链表（桶），桶按访问次数递增的顺序排成另一条链表。访问一个结点时把它移到次数加1的桶中（不存在时在当前桶后面创建），
+ *       淘汰访问次数最少的桶中最久没有被访问的结点；
+ *     TINY_LFU（W-TinyLFU）：LFU能保留长期的热点键，但是新的键在积累访问次数之前就会被淘汰，而且旧的热点永远不会过时。W-TinyLFU把缓存分为三部分：
+ *       窗口（1%的容量，LRU）：新的键先进入窗口；
+ *       主区域的试用段（probation）和保护段（protected，主区域的80%）：在试用段中再次被访问的键升级到保护段，保护段超出容量时表尾降级到试用段；
+ *       频率草图（count-min sketch）：记录最近所有访问（包括未命中）的近似频率，计数器每累积10倍容量次访问后全部减半，旧的热点逐渐过时。
+ *       窗口超出容量时，主区域还有空间就把窗口的表尾直接移到试用段；主区域满了之后需要淘汰时，
+ *       窗口的表尾（候选者）和试用段的表尾（受害者）比较频率草图中的频率，频率较高的一个留下，另一个被淘汰。
+ *
+ * 这张表不是线程安全的
+ */
+public class CacheST<Key, Value> extends ST<Key, Value> {
+
+    public enum Eviction {
+        LRU, LFU, TINY_LFU
+    }
+
+    private final LinearProbingHashST<Key, Node> index = new LinearProbingHashST<>();
+    private final long capacity;
+    private final ToIntBiFunction<? super Key, ? super Value> weigher;
+    private final Function<? super Key, ? extends Value> loader;
+    private final Policy policy;
+    private long weight;
+
+    private long hits;
+    private long misses;
+    private long loads;
+    private long evictions;
+
+    private class Node {
+        final Key key;
+        Value value;
+        int weight;
+        Node prev;
+        Node next;
+        Bucket bucket;    // LFU：结点所在的桶
+        NodeList list;    // TINY_LFU：结点所在的区域
+
+        Node(Key key, Value value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 带有哨兵结点的双向环形链表，表头是最近加入的结点
+     */
+    private class NodeList {
+        final Node head = new Node(null, null, 0);
+        long weight;
+
+        NodeList() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        boolean isEmpty() {
+            return head.next == head;
+        }
+
+        void addFirst(Node x) {
+            x.prev = head;
+            x.next = head.next;
+            head.next.prev = x;
+            head.next = x;
+            weight += x.weight;
+        }
+
+        void remove(Node x) {
+            x.prev.next = x.next;
+            x.next.prev = x.prev;
+            x.prev = null;
+            x.next = null;
+            weight -= x.weight;
+        }
+
+        Node last() {
+            return isEmpty() ? null : head.prev;
+        }
+    }
+
+    /**
+     * 每种淘汰策略维护结点的顺序：add()加入一个新的结点，record()记录一次命中，remove()删除一个结点，evict()选出并删除一个要淘汰的结点
+     */
+    private abstract class Policy {
+        abstract void add(Node x);
+
+        abstract void record(Node x);
+
+        abstract void remove(Node x);
+
+        abstract Node evict();
+
+        /**
+         * 结点的权重改变了delta（值被更新），更新它所在的链表的权重
+         */
+        abstract void reweigh(Node x, int delta);
+
+        /**
+         * 一次对key的访问（命中或者未命中），只有TINY_LFU需要
+         */
+        void access(Key key) {
+        }
+    }
+
+    public CacheST(long capacity, Eviction eviction) {
+        this(capacity, eviction, (k, v) -> 1, null);
+    }
+
+    /**
+     * @param capacity：总权重的上限
+     * @param weigher：每个键值对的权重，例如估计的字节数
+     * @param loader：get()未命中时计算值的函数，可以为null；返回null表示值不存在，不放入缓存
+     */
+    public CacheST(long capacity, Eviction eviction, ToIntBiFunction<? super Key, ? super Value> weigher, Function<? super Key, ? extends Value> loader) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        this.weigher = weigher;
+        this.loader = loader;
+        switch (eviction) {
+            case LRU:
+                policy = new LruPolicy();
+                break;
+            case LFU:
+                policy = new LfuPolicy();
+                break;
+            default:
+                policy = new TinyLfuPolicy();
+        }
+    }
+
+    private int weigh(Key key, Value value) {
+        int w = weigher.applyAsInt(key, value);
+        if (w < 0) throw new IllegalArgumentException("negative weight for " + key);
+        return w;
+    }
+
+    @Override
+    public Value get(Key key) {
+        policy.access(key);
+        Node x = index.get(key);
+        if (x != null) {
+            hits++;
+            policy.record(x);
+            return x.value;
+        }
+        misses++;
+        if (loader == null) return null;
+        Value value = loader.apply(key);
+        loads++;
+        if (value != null) insert(key, value);
+        return value;
+    }
+
+    /**
+     * 放入或更新一个键值对，不算作一次访问
+     */
+    @Override
+    public void put(Key key, Value value) {
+        if (value == null) {
+            delete(key);
+            return;
+        }
+        Node x = index.get(key);
+        if (x == null) {
+            insert(key, value);
+            return;
+        }
+        int w = weigh(key, value);
+        int delta = w - x.weight;
+        x.value = value;
+        x.weight = w;
+        weight += delta;
+        policy.reweigh(x, delta);
+        evict();
+    }
+
+    private void insert(Key key, Value value) {
+        Node x = new Node(key, value, weigh(key, value));
+        index.put(key, x);
+        policy.add(x);
+        weight += x.weight;
+        evict();
+    }
+
+    private void evict() {
+        while (weight > capacity) {
+            Node victim = policy.evict();
+            index.delete(victim.key);
+            weight -= victim.weight;
+            evictions++;
+        }
+    }
+
+    @Override
+    public void delete(Key key) {
+        Node x = index.get(key);
+        if (x == null) return;
+        index.delete(key);
+        policy.remove(x);
+        weight -= x.weight;
+    }
+
+    /**
+     * 键是否在缓存中，不算作一次访问，也不会调用加载函数
+     */
+    @Override
+    public boolean contains(Key key) {
+        return index.contains(key);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public Iterable<Key> keys() {
+        return index.keys();
+    }
+
+    public long weight() {
+        return weight;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public long loads() {
+        return loads;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    private class LruPolicy extends Policy {
+        private final NodeList list = new NodeList();
+
+        void add(Node x) {
+            list.addFirst(x);
+        }
+
+        void record(Node x) {
+            list.remove(x);
+            list.addFirst(x);
+        }
+
+        void remove(Node x) {
+            list.remove(x);
+        }
+
+        Node evict() {
+            Node x = list.last();
+            list.remove(x);
+            return x;
+        }
+
+        void reweigh(Node x, int delta) {
+            list.weight += delta;
+            record(x);
+        }
+    }
+
+    /**
+     * 访问次数为freq的结点组成的桶，桶之间按freq递增的顺序链接
+     */
+    private class Bucket {
+        final int freq;
+        final NodeList nodes = new NodeList();
+        Bucket prev;
+        Bucket next;
+
+        Bucket(int freq) {
+            this.freq = freq;
+        }
+    }
+
+    private class LfuPolicy extends Policy {
+        private final Bucket head = new Bucket(0);
+
+        LfuPolicy() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        /**
+         * 返回b后面访问次数为freq的桶，不存在时创建
+         */
+        private Bucket bucketAfter(Bucket b, int freq) {
+            if (b.next != head && b.next.freq == freq) return b.next;
+            Bucket t = new Bucket(freq);
+            t.prev = b;
+            t.next = b.next;
+            b.next.prev = t;
+            b.next = t;
+            return t;
+        }
+
+        private void unlink(Node x) {
+            Bucket b = x.bucket;
+            b.nodes.remove(x);
+            if (b.nodes.isEmpty()) {
+                b.prev.next = b.next;
+                b.next.prev = b.prev;
+            }
+            x.bucket = null;
+        }
+
+        void add(Node x) {
+            x.bucket = bucketAfter(head, 1);
+            x.bucket.nodes.addFirst(x);
+        }
+
+        void record(Node x) {
+            Bucket b = bucketAfter(x.bucket, x.bucket.freq + 1);
+            unlink(x);
+            x.bucket = b;
+            b.nodes.addFirst(x);
+        }
+
+        void remove(Node x) {
+            unlink(x);
+        }
+
+        Node evict() {
+            Node x = head.next.nodes.last();
+            unlink(x);
+            return x;
+        }
+
+        void reweigh(Node x, int delta) {
+            x.bucket.nodes.weight += delta;
+        }
+    }
+
+    private class TinyLfuPolicy extends Policy {
+        private final NodeList window = new NodeList();
+        private final NodeList probation = new NodeList();
+        private final NodeList protectedList = new NodeList();
+        private final long windowMax;
+        private final long mainMax;
+        private final long protectedMax;
+        private final FrequencySketch sketch;
+
+        TinyLfuPolicy() {
+            windowMax = Math.max(1, capacity / 100);
+            mainMax = capacity - windowMax;
+            protectedMax = mainMax * 4 / 5;
+            sketch = new FrequencySketch((int) Math.min(capacity, 1 << 20));
+        }
+
+        void access(Key key) {
+            sketch.increment(key.hashCode());
+        }
+
+        private void move(Node x, NodeList to) {
+            if (x.list != null) x.list.remove(x);
+            x.list = to;
+            to.addFirst(x);
+        }
+
+        void add(Node x) {
+            move(x, window);
+            drain();
+        }
+
+        /**
+         * 窗口超出容量时，只要主区域还放得下，就把窗口的表尾移到试用段，不需要和受害者比较频率。
+         * 否则主区域一直是空的，每次淘汰的都是窗口的表尾，整个缓存退化为LRU
+         */
+        private void drain() {
+            while (window.weight > windowMax && window.head.next != window.last()) {
+                Node x = window.last();
+                if (probation.weight + protectedList.weight + x.weight > mainMax) return;
+                move(x, probation);
+            }
+        }
+
+        /**
+         * 窗口和保护段中的结点移到表头；试用段中的结点升级到保护段，保护段超出容量时把表尾降级到试用段
+         */
+        void record(Node x) {
+            if (x.list == probation) {
+                move(x, protectedList);
+                while (protectedList.weight > protectedMax && protectedList.head.next != protectedList.last()) {
+                    move(protectedList.last(), probation);
+                }
+            } else {
+                move(x, x.list);
+            }
+        }
+
+        void remove(Node x) {
+            x.list.remove(x);
+            x.list = null;
+        }
+
+        private Node victim() {
+            Node victim = probation.last();
+            if (victim == null) victim = protectedList.last();
+            return victim;
+        }
+
+        /**
+         * 窗口超出容量时（这时主区域已经满了，否则drain()已经把表尾移走了），窗口的表尾和主区域的受害者比较频率，
+         * 频率高的进入（或留在）主区域的试用段；否则直接淘汰主区域的受害者
+         */
+        Node evict() {
+            Node candidate = window.weight > windowMax ? window.last() : null;
+            Node victim = victim();
+            if (candidate == null && victim == null) candidate = window.last();
+            if (candidate == null) {
+                remove(victim);
+                return victim;
+            }
+            if (victim == null || sketch.frequency(candidate.key.hashCode()) <= sketch.frequency(victim.key.hashCode())) {
+                remove(candidate);
+                return candidate;
+            }
+            remove(victim);
+            move(candidate, probation);
+            return victim;
+        }
+
+        void reweigh(Node x, int delta) {
+            x.list.weight += delta;
+            drain();
+        }
+    }
+
+    /**
+     * count-min sketch：4行饱和于15的计数器，一个键的频率是它在每一行中对应的计数器的最小值（只会高估，不会低估）。
+     * 累积了10倍宽度次增加之后所有的计数器减半，使得频率反映的是最近的访问
+     */
+    private static class FrequencySketch {
+        private static final int[] SEEDS = {0x97cb3127, 0xbf58476d, 0x94d049bb, 0x2545f491};
+
+        private final byte[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int n) {
+            int width = Integer.highestOneBit(Math.max(16, n - 1)) << 1;
+            table = new byte[4 * width];
+            mask = width - 1;
+            sampleSize = 10 * width;
+        }
+
+        private int index(int h, int row) {
+            h = (h ^ h >>> 16) * SEEDS[row];
+            h ^= h >>> 15;
+            return row * (mask + 1) + (h & mask);
+        }
+
+        void increment(int h) {
+            boolean added = false;
+            for (int row = 0; row < 4; row++) {
+                int i = index(h, row);
+                if (table[i] < 15) {
+                    table[i]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) reset();
+        }
+
+        int frequency(int h) {
+            int min = 15;
+            for (int row = 0; row < 4; row++) min = Math.min(min, table[index(h, row)]);
+            return min;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) table[i] >>= 1;
+            additions /= 2;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package yadong0305.algorithms.ST;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * 无锁的跳表，可以被多个线程同时读写的有序符号表：
+ *   跳表是一组有序链表，第0层链表含有所有的键，第i层链表是第i-1层链表的一个子集，每个结点以1/2的概率出现在上一层中，因此链表的期望层数为lgN。
+ *   查找从最高层的头结点开始，在每一层中向右走到最后一个小于被查找的键的结点，再下降到下一层，期望只需要比较O(logN)次。
+ *
+ * 并发控制（Herlihy和Shavit的无锁跳表）：
+ *   每条链接都是一个AtomicMarkableReference，标记位表示链接所在的结点已经被删除。所有的修改都通过CAS完成，没有任何锁：
+ *   插入：先找到每一层的前驱和后继结点，用CAS把新结点链接到第0层（这是插入的线性化点），然后自下而上地链接其余各层；
+ *   删除：先用CAS把结点的值置为null（这是删除的线性化点，之后get()就看不到这个键了），然后自上而下地标记它的每一条链接，最后由find()在遍历时用CAS把被标记的结点摘除；
+ *   查找：get()、floor()、ceiling()等只读操作只沿链接向下走，跳过值为null或被标记的结点，既不加锁也不执行CAS，因此永远不会被写操作阻塞。
+ *
+ * size()由LongAdder维护。rank()、select()、size(lo, hi)需要沿着第0层链表计数，代价是线性的；范围遍历是弱一致的，不会抛出异常，能看到遍历开始之后完成的部分修改。
+ */
+public class ConcurrentSkipListST<Key extends Comparable<Key>, Value> extends OrderedST<Key, Value> {
+
+    private static final int MAX_LEVEL = 31;
+
+    private static final class Node<Key, Value> {
+        final Key key;    // 头结点的键为null，表示负无穷
+        final AtomicReference<Value> value;
+        final AtomicMarkableReference<Node<Key, Value>>[] next;
+        final int topLevel;
+
+        @SuppressWarnings("unchecked")
+        Node(Key key, Value value, int topLevel) {
+            this.key = key;
+            this.value = new AtomicReference<>(value);
+            this.next = (AtomicMarkableReference<Node<Key, Value>>[]) new AtomicMarkableReference[topLevel + 1];
+            for (int i = 0; i <= topLevel; i++) {
+                next[i] = new AtomicMarkableReference<>(null, false);
+            }
+            this.topLevel = topLevel;
+        }
+    }
+
+    private final Node<Key, Value> head = new Node<>(null, null, MAX_LEVEL);
+    private final LongAdder N = new LongAdder();
+
+    /**
+     * 结点的层数服从参数为1/2的几何分布
+     */
+    private static int randomLevel() {
+        return Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt() | (1 << MAX_LEVEL));
+    }
+
+    /**
+     * 在每一层中找到最后一个小于key的结点preds[level]和它的后继succs[level]，并摘除路径上所有被标记的结点。
+     * 摘除失败说明前驱结点被并发地修改了，从头开始重新查找。返回第0层的后继结点是否含有key
+     */
+    private boolean find(Key key, Node<Key, Value>[] preds, Node<Key, Value>[] succs) {
+        boolean[] marked = {false};
+        retry:
+        while (true) {
+            Node<Key, Value> pred = head;
+            for (int level = MAX_LEVEL; level >= 0; level--) {
+                Node<Key, Value> curr = pred.next[level].getReference();
+                while (curr != null) {
+                    Node<Key, Value> succ = curr.next[level].get(marked);
+                    while (marked[0]) {
+                        if (!pred.next[level].compareAndSet(curr, succ, false, false)) continue retry;
+                        curr = succ;
+                        if (curr == null) break;
+                        succ = curr.next[level].get(marked);
+                    }
+                    if (curr == null || curr.key.compareTo(key) >= 0) break;
+                    pred = curr;
+                    curr = succ;
+                }
+                preds[level] = pred;
+                succs[level] = curr;
+            }
+            return succs[0] != null && succs[0].key.compareTo(key) == 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Key, Value> Node<Key, Value>[] newPath() {
+        return (Node<Key, Value>[]) new Node[MAX_LEVEL + 1];
+    }
+
+    /**
+     * 只读的查找：返回第0层中第一个键大于等于key的结点（不检查它是否已被删除），路径上被标记的结点直接跳过，不做任何修改
+     */
+    private Node<Key, Value> ceilingNode(Key key) {
+        boolean[] marked = {false};
+        Node<Key, Value> pred = head;
+        Node<Key, Value> curr = null;
+        for (int level = MAX_LEVEL; level >= 0; level--) {
+            curr = pred.next[level].getReference();
+            while (curr != null) {
+                Node<Key, Value> succ = curr.next[level].get(marked);
+                while (marked[0]) {
+                    curr = succ;
+                    if (curr == null) break;
+                    succ = curr.next[level].get(marked);
+                }
+                if (curr == null || curr.key.compareTo(key) >= 0) break;
+                pred = curr;
+                curr = succ;
+            }
+        }
+        return curr;
+    }
+
+    /**
+     * 从结点x开始沿第0层向右找到第一个没有被删除的结点
+     */
+    private static <Key, Value> Node<Key, Value> live(Node<Key, Value> x) {
+        while (x != null && x.value.get() == null) {
+            x = x.next[0].getReference();
+        }
+        return x;
+    }
+
+    @Override
+    public Value get(Key key) {
+        Node<Key, Value> x = ceilingNode(key);
+        if (x == null || x.key.compareTo(key) != 0) return null;
+        return x.value.get();
+    }
+
+    @Override
+    public boolean contains(Key key) {
+        return get(key) != null;
+    }
+
+    /**
+     * 键已经存在时用CAS更新它的值；如果它的值已经是null，说明它正在被删除，帮助删除它之后重试。
+     * 否则从下往上逐层链接新结点：第0层链接成功后这个键就对所有线程可见了，上层的链接只影响查找的速度
+     */
+    @Override
+    public void put(Key key, Value value) {
+        if (value == null) {
+            delete(key);
+            return;
+        }
+        int topLevel = randomLevel();
+        Node<Key, Value>[] preds = newPath();
+        Node<Key, Value>[] succs = newPath();
+        while (true) {
+            if (find(key, preds, succs)) {
+                Node<Key, Value> x = succs[0];
+                Value v = x.value.get();
+                if (v != null) {
+                    if (x.value.compareAndSet(v, value)) return;
+                } else {
+                    markAll(x);
+                }
+                continue;
+            }
+            Node<Key, Value> x = new Node<>(key, value, topLevel);
+            for (int level = 0; level <= topLevel; level++) {
+                x.next[level].set(succs[level], false);
+            }
+            if (!preds[0].next[0].compareAndSet(succs[0], x, false, false)) continue;
+            N.increment();
+            for (int level = 1; level <= topLevel; level++) {
+                while (true) {
+                    if (preds[level].next[level].compareAndSet(succs[level], x, false, false)) break;
+                    if (!find(key, preds, succs) || succs[0] != x) return;
+                    Node<Key, Value> old = x.next[level].getReference();
+                    if (old != succs[level] && !x.next[level].compareAndSet(old, succs[level], false, false)) return;
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * 自上而下地标记结点的每一条链接，被标记的链接不能再被修改，find()会把这个结点从每一层中摘除
+     */
+    private static <Key, Value> void markAll(Node<Key, Value> x) {
+        boolean[] marked = {false};
+        for (int level = x.topLevel; level >= 0; level--) {
+            Node<Key, Value> succ = x.next[level].get(marked);
+            while (!marked[0]) {
+                x.next[level].attemptMark(succ, true);
+                succ = x.next[level].get(marked);
+            }
+        }
+    }
+
+    @Override
+    public void delete(Key key) {
+        Node<Key, Value>[] preds = newPath();
+        Node<Key, Value>[] succs = newPath();
+        if (!find(key, preds, succs)) return;
+        Node<Key, Value> x = succs[0];
+        while (true) {
+            Value v = x.value.get();
+            if (v == null) return;
+            if (x.value.compareAndSet(v, null)) break;
+        }
+        N.decrement();
+        markAll(x);
+        find(key, preds, succs);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return live(head.next[0].getReference()) == null;
+    }
+
+    /**
+     * 表中的键值对数量。其他线程正在修改时，这只是一个近似值
+     */
+    @Override
+    public int size() {
+        return (int) Math.max(0, N.sum());
+    }
+
+    public Key min() {
+        Node<Key, Value> x = live(head.next[0].getReference());
+        if (x == null) return null;
+        return x.key;
+    }
+
+    /**
+     * 从最高层开始向右走到底再下降，最后在第0层中找到最后一个没有被删除的结点
+     */
+    public Key max() {
+        Node<Key, Value> pred = head;
+        for (int level = MAX_LEVEL; level > 0; level--) {
+            Node<Key, Value> x = pred.next[level].getReference();
+            while (x != null) {
+                if (x.value.get() != null) pred = x;
+                x = x.next[level].getReference();
+            }
+        }
+        Key max = null;
+        for (Node<Key, Value> x = pred == head ? head.next[0].getReference() : pred; x != null; x = x.next[0].getReference()) {
+            if (x.value.get() != null) max = x.key;
+        }
+        return max;
+    }
+
+    public Key floor(Key key) {
+        boolean[] marked = {false};
+        Node<Key, Value> pred = head;
+        for (int level = MAX_LEVEL; level >= 0; level--) {
+            Node<Key, Value> curr = pred.next[level].getReference();
+            while (curr != null && curr.key.compareTo(key) <= 0) {
+                Node<Key, Value> succ = curr.next[level].get(marked);
+                if (!marked[0] && curr.value.get() != null) pred = curr;
+                curr = succ;
+            }
+        }
+        if (pred == head) return null;
+        return pred.key;
+    }
+
+    public Key ceiling(Key key) {
+        Node<Key, Value> x = live(ceilingNode(key));
+        if (x == null) return null;
+        return x.key;
+    }
+
+    /**
+     * 跳表中的结点没有子树计数器，rank()需要沿第0层链表计数，代价是线性的
+     */
+    public int rank(Key key) {
+        int r = 0;
+        for (Node<Key, Value> x = head.next[0].getReference(); x != null && x.key.compareTo(key) < 0; x = x.next[0].getReference()) {
+            if (x.value.get() != null) r++;
+        }
+        return r;
+    }
+
+    public Key select(int k) {
+        if (k < 0) return null;
+        for (Node<Key, Value> x = live(head.next[0].getReference()); x != null; x = live(x.next[0].getReference())) {
+            if (k-- == 0) return x.key;
+        }
+        return null;
+    }
+
+    public void deleteMin() {
+        Key min;
+        while ((min = min()) != null) {
+            Node<Key, Value> x = ceilingNode(min);
+            if (x != null && x.key.compareTo(min) == 0 && deleteNode(x)) return;
+        }
+    }
+
+    public void deleteMax() {
+        Key max;
+        while ((max = max()) != null) {
+            Node<Key, Value> x = ceilingNode(max);
+            if (x != null && x.key.compareTo(max) == 0 && deleteNode(x)) return;
+        }
+    }
+
+    /**
+     * 删除一个确定的结点，只有把它的值置为null的那个线程返回true
+     */
+    private boolean deleteNode(Node<Key, Value> x) {
+        Value v;
+        do {
+            v = x.value.get();
+            if (v == null) return false;
+        } while (!x.value.compareAndSet(v, null));
+        N.decrement();
+        markAll(x);
+        find(x.key, newPath(), newPath());
+        return true;
+    }
+
+    public int size(Key lo, Key hi) {
+        int n = 0;
+        for (Key ignored : keys(lo, hi)) n++;
+        return n;
+    }
+
+    @Override
+    public Iterable<Key> keys() {
+        Key min = min();
+        if (min == null) return new LinkedList<>();
+        return keys(min, max());
+    }
+
+    /**
+     * 弱一致的范围遍历：从第一个大于等于lo的结点开始沿第0层链表向右走，跳过已被删除的结点，不需要任何额外的空间
+     */
+    public Iterable<Key> keys(Key lo, Key hi) {
+        return () -> new Iterator<Key>() {
+            private Node<Key, Value> next = advance(live(ceilingNode(lo)));
+
+            private Node<Key, Value> advance(Node<Key, Value> x) {
+                if (x == null || hi.compareTo(x.key) < 0) return null;
+                return x;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Key next() {
+                if (next == null) throw new NoSuchElementException();
+                Key key = next.key;
+                next = advance(live(next.next[0].getReference()));
+                return key;
+            }
+        };
+    }
+
+    public void forEachInRange(Key lo, Key hi, BiConsumer<? super Key, ? super Value> action) {
+        for (Node<Key, Value> x = ceilingNode(lo); x != null && hi.compareTo(x.key) >= 0; x = x.next[0].getReference()) {
+            Value v = x.value.get();
+            if (v != null) action.accept(x.key, v);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package yadong0305.algorithms.ST;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * 键为int、值为long的红黑树，算法和RedBlackBST完全相同，区别在于结点的表示：
+ *   RedBlackBST的每个结点都是一个Node对象，键和值都是装箱后的对象，每次比较都要通过Comparable接口调用compareTo()；
+ *   这里的结点是一个int索引，结点的键、值、左右链接、计数器和颜色分别保存在一组平行数组中（结点池），链接就是数组的下标。
+ * 索引0表示空链接，它的计数器为0、颜色为黑色，因此size()和isRed()不需要判断空链接。被删除的结点通过left[]串成一条空闲链表供后续的put()复用。
+ * 除了结点池扩容之外，所有操作都不会分配对象，一千万个键只占用几个大数组，对垃圾收集器几乎没有压力。
+ * 因为int和long没有空值，get()接受一个键不存在时返回的默认值；floor()、ceiling()、min()和max()在结果不存在时抛出NoSuchElementException
+ */
+public class IntToLongRedBlackBST {
+
+    private static final int NIL = 0;
+    private static final int MAX_HEIGHT = 64;
+
+    private int[] keys;
+    private long[] values;
+    private int[] left;
+    private int[] right;
+    private int[] N;
+    private boolean[] red;
+
+    private int root = NIL;
+    private int free = NIL;    // 空闲链表的头结点
+    private int next = 1;    // 结点池中下一个从未使用过的位置
+
+    private final int[] path = new int[MAX_HEIGHT];
+    private final boolean[] less = new boolean[MAX_HEIGHT];
+
+    public IntToLongRedBlackBST() {
+        this(16);
+    }
+
+    public IntToLongRedBlackBST(int capacity) {
+        capacity = Math.max(capacity, 1) + 1;
+        keys = new int[capacity];
+        values = new long[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        N = new int[capacity];
+        red = new boolean[capacity];
+    }
+
+    private int newNode(int key, long value) {
+        int x;
+        if (free != NIL) {
+            x = free;
+            free = left[x];
+        } else {
+            if (next == keys.length) resize(2 * keys.length);
+            x = next++;
+        }
+        keys[x] = key;
+        values[x] = value;
+        left[x] = NIL;
+        right[x] = NIL;
+        N[x] = 1;
+        red[x] = true;
+        return x;
+    }
+
+    private void freeNode(int x) {
+        left[x] = free;
+        free = x;
+    }
+
+    private void resize(int capacity) {
+        if (STMetrics.ENABLED) STMetrics.resize();
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        N = Arrays.copyOf(N, capacity);
+        red = Arrays.copyOf(red, capacity);
+    }
+
+    public int size() {
+        return N[root];
+    }
+
+    public boolean isEmpty() {
+        return root == NIL;
+    }
+
+    public long get(int key, long defaultValue) {
+        int x = node(key);
+        if (x == NIL) return defaultValue;
+        return values[x];
+    }
+
+    public boolean contains(int key) {
+        return node(key) != NIL;
+    }
+
+    private int node(int key) {
+        int depth = 0;
+        int x = root;
+        while (x != NIL) {
+            depth++;
+            int k = keys[x];
+            if (key < k) x = left[x];
+            else if (key > k) x = right[x];
+            else break;
+        }
+        if (STMetrics.ENABLED) STMetrics.search(depth);
+        return x;
+    }
+
+    public void put(int key, long value) {
+        int depth = 0;
+        int x = root;
+        while (x != NIL) {
+            int k = keys[x];
+            if (key == k) {
+                if (STMetrics.ENABLED) STMetrics.search(depth + 1);
+                values[x] = value;
+                return;
+            }
+            path[depth] = x;
+            less[depth++] = key < k;
+            x = key < k ? left[x] : right[x];
+        }
+        if (STMetrics.ENABLED) STMetrics.search(depth);
+        root = fixUp(depth, newNode(key, value));
+        red[root] = false;
+    }
+
+    /**
+     * 用h替换path[0..depth)所记录的路径末端的子树，然后自下而上地重新平衡这条路径，返回新的根结点
+     */
+    private int fixUp(int depth, int h) {
+        while (depth > 0) {
+            int parent = path[--depth];
+            if (less[depth]) left[parent] = h;
+            else right[parent] = h;
+            h = balance(parent);
+        }
+        return h;
+    }
+
+    private int balance(int h) {
+        if (red[right[h]] && !red[left[h]]) h = rotateLeft(h);
+        if (red[left[h]] && red[left[left[h]]]) h = rotateRight(h);
+        if (red[left[h]] && red[right[h]]) flipColors(h);
+        N[h] = N[left[h]] + N[right[h]] + 1;
+        return h;
+    }
+
+    private int rotateLeft(int h) {
+        if (STMetrics.ENABLED) STMetrics.rotation();
+        int x = right[h];
+        right[h] = left[x];
+        left[x] = h;
+        red[x] = red[h];
+        red[h] = true;
+        N[x] = N[h];
+        N[h] = N[left[h]] + N[right[h]] + 1;
+        return x;
+    }
+
+    private int rotateRight(int h) {
+        if (STMetrics.ENABLED) STMetrics.rotation();
+        int x = left[h];
+        left[h] = right[x];
+        right[x] = h;
+        red[x] = red[h];
+        red[h] = true;
+        N[x] = N[h];
+        N[h] = N[left[h]] + N[right[h]] + 1;
+        return x;
+    }
+
+    private void flipColors(int h) {
+        red[h] = !red[h];
+        red[left[h]] = !red[left[h]];
+        red[right[h]] = !red[right[h]];
+    }
+
+    private int moveRedLeft(int h) {
+        flipColors(h);
+        if (red[left[right[h]]]) {
+            right[h] = rotateRight(right[h]);
+            h = rotateLeft(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    private int moveRedRight(int h) {
+        flipColors(h);
+        if (red[left[left[h]]]) {
+            h = rotateRight(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    public void deleteMin() {
+        if (isEmpty()) return;
+        if (!red[left[root]] && !red[right[root]]) red[root] = true;
+        root = deleteMin(0, root);
+        red[root] = false;
+    }
+
+    private int deleteMin(int depth, int h) {
+        while (left[h] != NIL) {
+            if (!red[left[h]] && !red[left[left[h]]]) h = moveRedLeft(h);
+            path[depth] = h;
+            less[depth++] = true;
+            h = left[h];
+        }
+        freeNode(h);
+        return fixUp(depth, NIL);
+    }
+
+    public void deleteMax() {
+        if (isEmpty()) return;
+        if (!red[left[root]] && !red[right[root]]) red[root] = true;
+        int depth = 0;
+        int h = root;
+        while (true) {
+            if (red[left[h]]) h = rotateRight(h);
+            if (right[h] == NIL) break;
+            if (!red[right[h]] && !red[left[right[h]]]) h = moveRedRight(h);
+            path[depth] = h;
+            less[depth++] = false;
+            h = right[h];
+        }
+        freeNode(h);
+        root = fixUp(depth, NIL);
+        red[root] = false;
+    }
+
+    public void delete(int key) {
+        if (!contains(key)) return;
+        if (!red[left[root]] && !red[right[root]]) red[root] = true;
+        int depth = 0;
+        int h = root;
+        while (true) {
+            if (key < keys[h]) {
+                if (!red[left[h]] && !red[left[left[h]]]) h = moveRedLeft(h);
+                path[depth] = h;
+                less[depth++] = true;
+                h = left[h];
+                continue;
+            }
+            if (red[left[h]]) h = rotateRight(h);
+            if (key == keys[h] && right[h] == NIL) {
+                freeNode(h);
+                root = fixUp(depth, NIL);
+                break;
+            }
+            if (!red[right[h]] && !red[left[right[h]]]) h = moveRedRight(h);
+            path[depth] = h;
+            less[depth++] = false;
+            if (key == keys[h]) {
+                int x = right[h];
+                while (left[x] != NIL) x = left[x];
+                keys[h] = keys[x];
+                values[h] = values[x];
+                root = deleteMin(depth, right[h]);
+                break;
+            }
+            h = right[h];
+        }
+        red[root] = false;
+    }
+
+    public int min() {
+        if (isEmpty()) throw new NoSuchElementException("empty table");
+        int x = root;
+        while (left[x] != NIL) x = left[x];
+        return keys[x];
+    }
+
+    public int max() {
+        if (isEmpty()) throw new NoSuchElementException("empty table");
+        int x = root;
+        while (right[x] != NIL) x = right[x];
+        return keys[x];
+    }
+
+    public int floor(int key) {
+        int x = root;
+        int t = NIL;
+        while (x != NIL) {
+            int k = keys[x];
+            if (key == k) return k;
+            if (key < k) {
+                x = left[x];
+            } else {
+                t = x;
+                x = right[x];
+            }
+        }
+        if (t == NIL) throw new NoSuchElementException("no key <= " + key);
+        return keys[t];
+    }
+
+    public int ceiling(int key) {
+        int x = root;
+        int t = NIL;
+        while (x != NIL) {
+            int k = keys[x];
+            if (key == k) return k;
+            if (key > k) {
+                x = right[x];
+            } else {
+                t = x;
+                x = left[x];
+            }
+        }
+        if (t == NIL) throw new NoSuchElementException("no key >= " + key);
+        return keys[t];
+    }
+
+    public int rank(int key) {
+        int r = 0;
+        int x = root;
+        while (x != NIL) {
+            int k = keys[x];
+            if (key < k) {
+                x = left[x];
+            } else if (key > k) {
+                r += N[left[x]] + 1;
+                x = right[x];
+            } else {
+                return r + N[left[x]];
+            }
+        }
+        return r;
+    }
+
+    public int select(int k) {
+        if (k < 0 || k >= size()) throw new IllegalArgumentException("rank out of range: " + k);
+        int x = root;
+        while (true) {
+            int t = N[left[x]];
+            if (t > k) {
+                x = left[x];
+            } else if (t < k) {
+                k = k - t - 1;
+                x = right[x];
+            } else {
+                return keys[x];
+            }
+        }
+    }
+
+    public int size(int lo, int hi) {
+        if (lo > hi) return 0;
+        if (contains(hi)) return rank(hi) - rank(lo) + 1;
+        return rank(hi) - rank(lo);
+    }
+
+    /**
+     * [lo..hi]之间的所有键，已排序。结果的长度可以由size(lo, hi)预先算出，中序遍历时用一个显式的栈
+     */
+    public int[] keys(int lo, int hi) {
+        int[] result = new int[size(lo, hi)];
+        int n = 0;
+        int[] stack = new int[MAX_HEIGHT];
+        int top = 0;
+        int x = root;
+        while (n < result.length) {
+            while (x != NIL) {
+                if (lo < keys[x]) {
+                    stack[top++] = x;
+                    x = left[x];
+                } else if (lo == keys[x]) {
+                    stack[top++] = x;
+                    x = NIL;
+                } else {
+                    x = right[x];
+                }
+            }
+            x = stack[--top];
+            result[n++] = keys[x];
+            x = right[x];
+        }
+        return result;
+    }
+
+    public int[] keys() {
+        if (isEmpty()) return new int[0];
+        return keys(min(), max());
+    }
+}
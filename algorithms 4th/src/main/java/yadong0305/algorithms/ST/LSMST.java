@@ -0,0 +1,649 @@
+package yadong0305.algorithms.ST;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 日志结构合并（LSM）符号表：
+ *   BinarySearchST的put()需要移动数组的尾部，是线性级别的；树的每次put()都要分配结点，大量写入时给垃圾收集器带来很大的压力。
+ *   LSM树把写入和有序存储分开：
+ *     写入：put()和delete()只写入内存中的一棵红黑树（memtable），删除写入一个墓碑（tombstone）标记；
+ *     刷写：memtable中的键达到memtableSize个时，按顺序把它写成磁盘上的一个不可变的有序文件（run，格式见MappedBinarySearchST），然后清空memtable；
+ *     合并：run的数量达到maxRuns个时，由一个后台线程把所有的run归并为一个（compaction），同一个键只保留最新的值，墓碑也在这时被丢弃。
+ *   查找依次检查memtable和从新到旧的每个run，第一个找到的键就是最新的值；floor()、ceiling()和keys()在memtable和所有run的游标上进行多路归并，
+ *   同一个键只取最新的一项，墓碑表示这个键已被删除。
+ *
+ * 键和值通过Codec编码为byte[]之后写入memtable和run。run按无符号字节的字典序排列，因此键的编码必须保持顺序：a.compareTo(b)和编码后的字节比较结果的符号相同。
+ * 每个值的编码前面加一个标记字节，0表示墓碑，1表示后面是值。
+ *
+ * run文件名为run-first-last.sst，first和last是它所包含的刷写序号的范围。合并后的run覆盖了所有输入的序号范围，
+ * 打开目录时被其他run的范围覆盖的文件是合并后没来得及删除的输入，直接删除，因此进程在合并过程中退出也不会让被删除的键重新出现。
+ * memtable只在内存中，没有预写日志，close()之前没有刷写的键在进程退出时会丢失。
+ *
+ * 所有的读写操作都在同一个锁上同步，合并在后台线程中进行，只在替换run的列表时短暂持有锁。
+ * 每个run有一个引用计数：表本身持有一个，keys()的迭代器在每个run上的游标各持有一个。合并只是让表放弃它的引用，
+ * 最后一个游标释放（迭代器遍历结束）时才关闭并删除输入的run，因此合并不会影响正在进行的遍历。没有遍历完就丢弃的迭代器会让它的run一直保留到close()，
+ * 进程退出后留下的文件在下次打开目录时被删除。
+ * 后台合并失败时原来的run保持不变，异常被记录下来，由下一次put()、delete()、flush()或close()抛出（只抛出一次），之后的刷写会再次尝试合并。
+ * keys()返回的迭代器在遍历时不能修改这张表，和其他的符号表一样。
+ */
+public class LSMST<Key extends Comparable<Key>, Value> extends ST<Key, Value> implements Closeable {
+
+    /**
+     * 键（值）和byte[]之间的转换。键的编码必须保持顺序
+     */
+    public interface Codec<T> {
+        byte[] encode(T t);
+
+        T decode(byte[] bytes);
+
+        /**
+         * 大端的4个字节，符号位取反，使得负数排在正数之前
+         */
+        static Codec<Integer> integers() {
+            return new Codec<Integer>() {
+                public byte[] encode(Integer t) {
+                    int x = t ^ Integer.MIN_VALUE;
+                    return new byte[]{(byte) (x >>> 24), (byte) (x >>> 16), (byte) (x >>> 8), (byte) x};
+                }
+
+                public Integer decode(byte[] b) {
+                    int x = (b[0] & 0xff) << 24 | (b[1] & 0xff) << 16 | (b[2] & 0xff) << 8 | b[3] & 0xff;
+                    return x ^ Integer.MIN_VALUE;
+                }
+            };
+        }
+
+        /**
+         * UTF-16BE：每个char编码为两个大端的字节，字节的字典序和String.compareTo()的顺序完全相同（UTF-8在代理对上和compareTo()不一致）
+         */
+        static Codec<String> strings() {
+            return new Codec<String>() {
+                public byte[] encode(String t) {
+                    return t.getBytes(StandardCharsets.UTF_16BE);
+                }
+
+                public String decode(byte[] b) {
+                    return new String(b, StandardCharsets.UTF_16BE);
+                }
+            };
+        }
+    }
+
+    private static final byte[] TOMBSTONE = {0};
+    private static final Pattern RUN = Pattern.compile("run-(\\d+)-(\\d+)\\.sst");
+
+    private final Path directory;
+    private final Codec<Key> keyCodec;
+    private final Codec<Value> valueCodec;
+    private final int memtableSize;
+    private final int maxRuns;
+
+    private RedBlackBST<Key, byte[]> memtable = new RedBlackBST<>();
+    private final List<Run> runs = new ArrayList<>();    // 从新到旧
+    private long sequence;    // 下一次刷写的序号
+    private boolean compactionScheduled;
+    private IOException compactionFailure;    // 后台合并抛出的异常，在下一次put()、delete()、flush()或close()时抛出
+
+    private final Object compactionLock = new Object();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "lsm-compaction");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static class Run {
+        final long first;
+        final long last;
+        final Path file;
+        final MappedBinarySearchST table;
+        private int refs = 1;    // 表本身的引用加上打开的游标的数量
+        private boolean retired;    // 已经被合并，最后一个引用释放时删除文件
+
+        Run(long first, long last, Path file) throws IOException {
+            this.first = first;
+            this.last = last;
+            this.file = file;
+            this.table = MappedBinarySearchST.open(file);
+        }
+
+        boolean covers(Run that) {
+            return this != that && first <= that.first && that.last <= last;
+        }
+
+        /**
+         * 只在表的锁内、run还在表的列表中时调用，此时引用计数至少为1
+         */
+        synchronized void retain() {
+            refs++;
+        }
+
+        synchronized void release() throws IOException {
+            if (--refs > 0) return;
+            table.close();
+            if (retired) Files.deleteIfExists(file);
+        }
+
+        /**
+         * 从表的列表中移除之后调用，放弃表本身的引用
+         */
+        synchronized void retire() throws IOException {
+            retired = true;
+            release();
+        }
+    }
+
+    public LSMST(Path directory, Codec<Key> keyCodec, Codec<Value> valueCodec) throws IOException {
+        this(directory, keyCodec, valueCodec, 1 << 16, 4);
+    }
+
+    /**
+     * 打开（或创建）目录中的表，目录中已有的run会被重新加载
+     * @param memtableSize：memtable中的键达到这个数量时刷写为一个run
+     * @param maxRuns：run的数量达到这个值时在后台合并所有的run
+     */
+    public LSMST(Path directory, Codec<Key> keyCodec, Codec<Value> valueCodec, int memtableSize, int maxRuns) throws IOException {
+        if (memtableSize < 1) throw new IllegalArgumentException("memtableSize must be positive");
+        if (maxRuns < 2) throw new IllegalArgumentException("maxRuns must be at least 2");
+        this.directory = Files.createDirectories(directory);
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.memtableSize = memtableSize;
+        this.maxRuns = maxRuns;
+        List<Run> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Matcher m = RUN.matcher(name);
+                if (m.matches()) found.add(new Run(Long.parseLong(m.group(1)), Long.parseLong(m.group(2)), file));
+                else if (name.endsWith(".tmp")) Files.delete(file);
+            }
+        }
+        for (Run run : found) {
+            boolean covered = false;
+            for (Run other : found) covered |= other.covers(run);
+            if (covered) {
+                run.table.close();
+                Files.delete(run.file);
+            } else {
+                runs.add(run);
+            }
+        }
+        runs.sort((a, b) -> Long.compare(b.last, a.last));
+        sequence = runs.isEmpty() ? 0 : runs.get(0).last + 1;
+    }
+
+    private byte[] encodeValue(Value value) {
+        byte[] bytes = valueCodec.encode(value);
+        byte[] flagged = new byte[bytes.length + 1];
+        flagged[0] = 1;
+        System.arraycopy(bytes, 0, flagged, 1, bytes.length);
+        return flagged;
+    }
+
+    private Value decodeValue(byte[] flagged) {
+        if (flagged[0] == 0) return null;
+        return valueCodec.decode(Arrays.copyOfRange(flagged, 1, flagged.length));
+    }
+
+    @Override
+    public synchronized void put(Key key, Value value) {
+        if (value == null) {
+            delete(key);
+            return;
+        }
+        write(key, encodeValue(value));
+    }
+
+    @Override
+    public synchronized void delete(Key key) {
+        write(key, TOMBSTONE);
+    }
+
+    private void write(Key key, byte[] flagged) {
+        try {
+            checkCompaction();
+            memtable.put(key, flagged);
+            if (memtable.size() >= memtableSize) flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 抛出上一次后台合并失败的异常
+     */
+    private synchronized void checkCompaction() throws IOException {
+        IOException e = compactionFailure;
+        if (e == null) return;
+        compactionFailure = null;
+        throw new IOException("background compaction failed", e);
+    }
+
+    /**
+     * 把memtable写成一个新的run。先写入临时文件再重命名，目录中不会出现写了一半的run
+     */
+    public synchronized void flush() throws IOException {
+        checkCompaction();
+        if (memtable.isEmpty()) return;
+        int n = memtable.size();
+        byte[][] keys = new byte[n][];
+        byte[][] values = new byte[n][];
+        int i = 0;
+        for (Key key : memtable.keys()) {
+            keys[i] = keyCodec.encode(key);
+            values[i++] = memtable.get(key);
+        }
+        runs.add(0, writeRun(sequence, sequence, keys, values));
+        sequence++;
+        memtable = new RedBlackBST<>();
+        if (runs.size() >= maxRuns && !compactionScheduled) {
+            compactionScheduled = true;
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    synchronized (this) {
+                        compactionFailure = e;
+                    }
+                }
+            });
+        }
+    }
+
+    private Run writeRun(long first, long last, byte[][] keys, byte[][] values) throws IOException {
+        Path tmp = tmpFile(first, last);
+        try {
+            MappedBinarySearchST.write(tmp, keys, values);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        return install(first, last, tmp);
+    }
+
+    private Path tmpFile(long first, long last) {
+        return directory.resolve("run-" + first + "-" + last + ".sst.tmp");
+    }
+
+    /**
+     * 把写完的临时文件重命名为run
+     */
+    private Run install(long first, long last, Path tmp) throws IOException {
+        Path file = directory.resolve("run-" + first + "-" + last + ".sst");
+        return new Run(first, last, Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE));
+    }
+
+    /**
+     * 把当前所有的run归并为一个。最旧的run也参与合并，因此墓碑不再需要，可以直接丢弃。
+     * 归并的结果逐项写入MappedBinarySearchST.Writer，不在内存中保存，合并的run可以比堆大得多。
+     * 归并时不持有表的锁，合并期间刷写的新run排在合并结果之前，不受影响
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            List<Run> inputs;
+            List<Cursor> cursors = new ArrayList<>();
+            synchronized (this) {
+                compactionScheduled = false;
+                inputs = new ArrayList<>(runs);
+                if (inputs.size() < 2) return;
+                for (Run run : inputs) cursors.add(new RunCursor(run, null, null));
+            }
+            long first = inputs.get(inputs.size() - 1).first;
+            long last = inputs.get(0).last;
+            Path tmp = tmpFile(first, last);
+            Merge merge = new Merge(cursors);
+            try (MappedBinarySearchST.Writer writer = MappedBinarySearchST.writer(tmp)) {
+                while (merge.advance()) {
+                    if (!merge.deleted) writer.add(merge.key, merge.winner.value());
+                    merge.skip();
+                }
+                writer.finish();
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            } finally {
+                merge.close();
+            }
+            Run merged = install(first, last, tmp);
+            synchronized (this) {
+                runs.removeAll(inputs);
+                runs.add(merged);
+            }
+            for (Run run : inputs) run.retire();
+        }
+    }
+
+    /**
+     * 当前run的数量
+     */
+    synchronized int runs() {
+        return runs.size();
+    }
+
+    /**
+     * 依次查找memtable和从新到旧的每个run，返回编码后的值（可能是墓碑），键不存在时返回null
+     */
+    private byte[] find(Key key) {
+        byte[] flagged = memtable.get(key);
+        if (flagged != null) return flagged;
+        byte[] bytes = keyCodec.encode(key);
+        for (Run run : runs) {
+            flagged = run.table.get(bytes);
+            if (flagged != null) return flagged;
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized Value get(Key key) {
+        byte[] flagged = find(key);
+        if (flagged == null) return null;
+        return decodeValue(flagged);
+    }
+
+    @Override
+    public synchronized boolean contains(Key key) {
+        return get(key) != null;
+    }
+
+    /**
+     * 小于等于key（strict为true时小于key）的最大键：先求出每个来源中的候选键，其中最大的一个如果最新的一项是墓碑，就从它开始继续向前找
+     */
+    public synchronized Key floor(Key key) {
+        boolean strict = false;
+        while (true) {
+            Key best = lower(memtable, key, strict);
+            byte[] bytes = keyCodec.encode(key);
+            for (Run run : runs) {
+                int i = run.table.rank(bytes);
+                if (!strict && i < run.table.size() && run.table.contains(bytes)) i++;
+                if (i == 0) continue;
+                Key candidate = keyCodec.decode(run.table.select(i - 1));
+                if (best == null || candidate.compareTo(best) > 0) best = candidate;
+            }
+            if (best == null) return null;
+            if (find(best)[0] != 0) return best;
+            key = best;
+            strict = true;
+        }
+    }
+
+    private static <Key extends Comparable<Key>> Key lower(RedBlackBST<Key, byte[]> st, Key key, boolean strict) {
+        Key floor = st.floor(key);
+        if (floor == null || !strict || floor.compareTo(key) != 0) return floor;
+        int r = st.rank(key);
+        return r == 0 ? null : st.select(r - 1);
+    }
+
+    /**
+     * 大于等于key的最小键，和floor()对称
+     */
+    public synchronized Key ceiling(Key key) {
+        return higher(key, false);
+    }
+
+    /**
+     * 大于等于key（strict为true时大于key）的最小键，key为null时从整张表中最小的键开始。
+     * 每一步在每个来源中二分查找一次，不需要建立归并的游标，只有遇到墓碑时才需要继续向后找
+     */
+    private Key higher(Key key, boolean strict) {
+        while (true) {
+            Key best = upper(memtable, key, strict);
+            byte[] bytes = key == null ? null : keyCodec.encode(key);
+            for (Run run : runs) {
+                int i = bytes == null ? 0 : run.table.rank(bytes);
+                if (strict && i < run.table.size() && run.table.contains(bytes)) i++;
+                if (i == run.table.size()) continue;
+                Key candidate = keyCodec.decode(run.table.select(i));
+                if (best == null || candidate.compareTo(best) < 0) best = candidate;
+            }
+            if (best == null) return null;
+            if (find(best)[0] != 0) return best;
+            key = best;
+            strict = true;
+        }
+    }
+
+    private static <Key extends Comparable<Key>> Key upper(RedBlackBST<Key, byte[]> st, Key key, boolean strict) {
+        if (key == null) return st.min();
+        Key ceiling = st.ceiling(key);
+        if (ceiling == null || !strict || ceiling.compareTo(key) != 0) return ceiling;
+        return st.select(st.rank(key) + 1);
+    }
+
+    /**
+     * 表中键的数量。同一个键可能出现在多个run中，也可能已经被删除，因此需要归并所有的来源，是线性级别的，并且在归并期间持有表的锁。
+     * 只需要判断表是否为空时应该使用isEmpty()
+     */
+    @Override
+    public synchronized int size() {
+        int n = 0;
+        for (Key ignored : keys()) n++;
+        return n;
+    }
+
+    /**
+     * 查找最小的键：每个来源一次二分查找，只有最小的键已被删除时才需要继续向后找，和表的大小无关
+     */
+    @Override
+    public synchronized boolean isEmpty() {
+        return higher(null, false) == null;
+    }
+
+    @Override
+    public Iterable<Key> keys() {
+        return keys(null, null);
+    }
+
+    /**
+     * [lo..hi]之间的所有键，已排序。lo或hi为null时表示这一端没有限制
+     */
+    public Iterable<Key> keys(Key lo, Key hi) {
+        return () -> {
+            Merge merge = merge(lo, hi);
+            return new Iterator<Key>() {
+                private boolean ready;
+                private boolean more;
+
+                @Override
+                public boolean hasNext() {
+                    if (!ready) {
+                        while ((more = merge.advance()) && merge.deleted) merge.skip();
+                        ready = true;
+                        if (!more) merge.close();
+                    }
+                    return more;
+                }
+
+                @Override
+                public Key next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    ready = false;
+                    Key key = keyCodec.decode(merge.key);
+                    merge.skip();
+                    return key;
+                }
+            };
+        };
+    }
+
+    /**
+     * memtable和所有run上[lo..hi]之间的游标的归并，持有每个run的引用，用完之后要close()
+     */
+    private synchronized Merge merge(Key lo, Key hi) {
+        List<Cursor> cursors = new ArrayList<>();
+        cursors.add(new MemtableCursor(memtable, lo, hi));
+        byte[] from = lo == null ? null : keyCodec.encode(lo);
+        byte[] to = hi == null ? null : keyCodec.encode(hi);
+        for (Run run : runs) cursors.add(new RunCursor(run, from, to));
+        return new Merge(cursors);
+    }
+
+    /**
+     * 一个来源（memtable或者一个run）中按顺序排列的键值对，key为null表示已经没有更多的键
+     */
+    private abstract static class Cursor {
+        byte[] key;
+
+        abstract void advance();
+
+        abstract byte[] value();
+
+        /**
+         * 释放游标持有的资源，可以重复调用
+         */
+        void close() throws IOException {
+        }
+    }
+
+    private class MemtableCursor extends Cursor {
+        private final RedBlackBST<Key, byte[]> st;
+        private final Iterator<Key> it;
+        private Key current;
+
+        MemtableCursor(RedBlackBST<Key, byte[]> st, Key lo, Key hi) {
+            this.st = st;
+            if (st.isEmpty()) {
+                it = null;
+            } else {
+                Key from = lo == null ? st.min() : lo;
+                Key to = hi == null ? st.max() : hi;
+                it = st.keys(from, to).iterator();
+            }
+            advance();
+        }
+
+        @Override
+        void advance() {
+            if (it != null && it.hasNext()) {
+                current = it.next();
+                key = keyCodec.encode(current);
+            } else {
+                key = null;
+            }
+        }
+
+        @Override
+        byte[] value() {
+            return st.get(current);
+        }
+    }
+
+    private static class RunCursor extends Cursor {
+        private final Run run;
+        private final MappedBinarySearchST table;
+        private int i;
+        private final int end;
+        private boolean closed;
+
+        /**
+         * 在表的锁内构造，持有run的一个引用
+         */
+        RunCursor(Run run, byte[] lo, byte[] hi) {
+            this.run = run;
+            this.table = run.table;
+            run.retain();
+            i = lo == null ? 0 : table.rank(lo);
+            end = hi == null ? table.size() : table.rank(hi) + (table.contains(hi) ? 1 : 0);
+            key = i < end ? table.select(i) : null;
+        }
+
+        @Override
+        void advance() {
+            key = ++i < end ? table.select(i) : null;
+        }
+
+        @Override
+        byte[] value() {
+            return table.value(i);
+        }
+
+        @Override
+        void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            run.release();
+        }
+    }
+
+    /**
+     * 多路归并：cursors按从新到旧排列，每一步取出最小的键，相同的键取最靠前（最新）的来源。
+     * 来源只有memtable和少数几个run，直接线性扫描每个游标的当前键，不需要优先队列
+     */
+    private static class Merge {
+        private final List<Cursor> cursors;
+        byte[] key;
+        Cursor winner;
+        boolean deleted;
+
+        Merge(List<Cursor> cursors) {
+            this.cursors = cursors;
+        }
+
+        /**
+         * 找出下一个最小的键，没有更多的键时返回false。调用skip()之后才会越过这个键
+         */
+        boolean advance() {
+            winner = null;
+            for (Cursor c : cursors) {
+                if (c.key != null && (winner == null || MappedBinarySearchST.compare(c.key, winner.key) < 0)) winner = c;
+            }
+            if (winner == null) return false;
+            key = winner.key;
+            deleted = winner.value()[0] == 0;
+            return true;
+        }
+
+        /**
+         * 所有来源都越过当前的键
+         */
+        void skip() {
+            for (Cursor c : cursors) {
+                if (c.key != null && MappedBinarySearchST.compare(c.key, key) == 0) c.advance();
+            }
+        }
+
+        void close() {
+            try {
+                for (Cursor c : cursors) c.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * 刷写memtable，等待后台的合并结束，然后放弃所有run的引用：没有打开的迭代器的run立即关闭，其余的在迭代器遍历结束时关闭
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            for (Run run : runs) run.release();
+        }
+        checkCompaction();
+    }
+}
@@ -0,0 +1,109 @@
+package yadong0305.algorithms.ST;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图（和HdrHistogram一样的对数-线性分桶）：
+ *   小于2^(SUB_BITS+1)的值每个值一个桶；更大的值按最高位所在的2的幂分段，每一段再平均分成2^SUB_BITS个桶，
+ *   桶的宽度和值的大小成正比，任何值的相对误差都不超过1/2^SUB_BITS（约3%），桶的数量只和值的范围的对数成正比。
+ *   值v所在的桶由v的最高位和紧接着的SUB_BITS位直接算出，不需要查找：
+ *     exp = 最高位的位置 - SUB_BITS，index = (exp + 1)·2^SUB_BITS + (v >>> exp) - 2^SUB_BITS
+ *
+ *   record()只对一个桶做一次原子加，总和用LongAdder，最大值只在变大时CAS，多个线程同时记录时不需要加锁。
+ *   snapshot()依次读取每个桶，和并发的record()之间没有原子性（快照中可能包含正在进行的一部分记录），用于监控已经足够
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+    /**
+     * 能记录的最大值，约18分钟（单位为纳秒），更大的值记在最后一个桶中
+     */
+    private static final long MAX_VALUE = (1L << 40) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(index(MAX_VALUE) + 1);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    static int index(long v) {
+        if (v < 2 * SUB) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        return (exp + 1) * SUB + (int) (v >>> exp) - SUB;
+    }
+
+    /**
+     * 第index个桶中最大的值
+     */
+    static long highest(int index) {
+        if (index < 2 * SUB) return index;
+        int exp = index / SUB - 1;
+        long sub = index % SUB + SUB;
+        return ((sub + 1) << exp) - 1;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        if (nanos > MAX_VALUE) nanos = MAX_VALUE;
+        counts.incrementAndGet(index(nanos));
+        sum.add(nanos);
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos)) m = max.get();
+    }
+
+    public Snapshot snapshot() {
+        long[] c = new long[counts.length()];
+        long n = 0;
+        for (int i = 0; i < c.length; i++) {
+            c[i] = counts.get(i);
+            n += c[i];
+        }
+        return new Snapshot(c, n, sum.sum(), max.get());
+    }
+
+    /**
+     * 某一时刻的直方图，不再变化
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        public double mean() {
+            if (count == 0) return 0;
+            return (double) sum / count;
+        }
+
+        /**
+         * 不小于p（0 <= p <= 1）比例的记录的最小的值，精度为桶的宽度（返回桶中最大的值，不超过max()）
+         */
+        public long percentile(double p) {
+            if (!(p >= 0 && p <= 1)) throw new IllegalArgumentException("p must be in [0, 1]");
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highest(i), max);
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package yadong0305.algorithms.ST;
+
+import java.util.Arrays;
+
+/**
+ * 学习型索引：用分段线性函数近似有序数组中键的累积分布（键 -> 位置），给出一个误差不超过EPSILON的预测位置，
+ * 之后只需要在预测位置附近的2·EPSILON个键中二分查找，而不是在整个数组中。
+ *   构造（收缩锥）：每一段从一个点(x0, i0)开始，依次加入后面的点(x, i)，过(x0, i0)并且在所有已加入的点上误差都不超过EPSILON的直线的斜率
+ *   是一个区间[slopeLo, slopeHi]，每加入一个点区间就缩小一次；区间变为空时结束这一段，从这个点开始新的一段。整个过程是一次线性扫描。
+ *   预测：在各段起点的键（double[]，连续的基本类型数组，很小，可以一直留在缓存中）中二分查找所在的段，再计算直线上的位置，
+ *   限制在这一段的位置范围之内（两段之间的空隙中的键的排名就是下一段的起点）。
+ * 只适用于Number类型的键，用doubleValue()作为坐标：doubleValue()必须和compareTo()的顺序一致（单调不减），构造时会检查，
+ * 不一致（或者有NaN）时不建立索引。double的精度有限（例如很大的long），不同的键可能有相同的坐标，这时预测可能超出误差范围，
+ * 所以调用者在查找之后还要检查窗口的边界，超出时退回普通的二分查找，结果总是正确的。
+ * 键的分布不够平滑时，段的数量会很多（平均每一段不到EPSILON个键），这时索引不比稀疏索引好，也不建立
+ */
+final class LearnedIndex {
+
+    static final int EPSILON = 32;
+
+    private final double[] starts;    // 每一段的第一个键的坐标
+    private final int[] positions;    // 每一段的第一个键的位置
+    private final double[] slopes;
+
+    private LearnedIndex(double[] starts, int[] positions, double[] slopes) {
+        this.starts = starts;
+        this.positions = positions;
+        this.slopes = slopes;
+    }
+
+    /**
+     * 为有序数组keys[0..n)建立索引，不适用时返回null
+     */
+    static LearnedIndex build(Comparable<?>[] keys, int n) {
+        if (n == 0) return null;
+        double[] xs = new double[n];
+        for (int i = 0; i < n; i++) {
+            if (!(keys[i] instanceof Number)) return null;
+            xs[i] = ((Number) keys[i]).doubleValue();
+            if (Double.isNaN(xs[i]) || (i > 0 && xs[i] < xs[i - 1])) return null;
+        }
+        int maxSegments = n / EPSILON + 1;
+        double[] starts = new double[16];
+        int[] positions = new int[16];
+        double[] slopes = new double[16];
+        int segments = 0;
+        int i = 0;
+        while (i < n) {
+            if (segments == maxSegments) return null;
+            if (segments == starts.length) {
+                starts = Arrays.copyOf(starts, 2 * segments);
+                positions = Arrays.copyOf(positions, 2 * segments);
+                slopes = Arrays.copyOf(slopes, 2 * segments);
+            }
+            double x0 = xs[i];
+            int i0 = i;
+            double slopeLo = 0;
+            double slopeHi = Double.POSITIVE_INFINITY;
+            for (i++; i < n; i++) {
+                double dx = xs[i] - x0;
+                int dy = i - i0;
+                if (dx == 0) {
+                    if (dy > EPSILON) break;
+                    continue;
+                }
+                double lo = (dy - EPSILON) / dx;
+                double hi = (dy + EPSILON) / dx;
+                if (lo > slopeHi || hi < slopeLo) break;
+                slopeLo = Math.max(slopeLo, lo);
+                slopeHi = Math.min(slopeHi, hi);
+            }
+            starts[segments] = x0;
+            positions[segments] = i0;
+            slopes[segments++] = slopeHi == Double.POSITIVE_INFINITY ? 0 : (slopeLo + slopeHi) / 2;
+        }
+        return new LearnedIndex(Arrays.copyOf(starts, segments), Arrays.copyOf(positions, segments),
+                Arrays.copyOf(slopes, segments));
+    }
+
+    /**
+     * 坐标为x的键的预测位置，在[0, n]之间，n是数组中键的数量
+     */
+    int predict(double x, int n) {
+        int lo = 0;
+        int hi = starts.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (x >= starts[mid]) lo = mid;
+            else hi = mid - 1;
+        }
+        double p = positions[lo] + slopes[lo] * (x - starts[lo]);
+        int end = lo + 1 < starts.length ? positions[lo + 1] : n;
+        if (!(p >= positions[lo])) return positions[lo];
+        if (p >= end) return end;
+        return (int) p;
+    }
+
+    int segments() {
+        return starts.length;
+    }
+}
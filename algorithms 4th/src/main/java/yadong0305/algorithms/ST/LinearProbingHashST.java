@@ -0,0 +1,124 @@
+package yadong0305.algorithms.ST;
+
+import java.util.ArrayList;
+
+/**
+ * 基于线性探测法的散列表：
+ *   开放地址散列表用大小为M的数组保存N个键值对，其中M>N，依靠数组中的空位解决碰撞冲突。
+ *   当碰撞发生时（一个键的散列值已经被另一个不同的键占用），直接检查散列表中的下一个位置（将索引值加1），直到找到该键或者遇到一个空位。
+ *   和BinarySearchST一样使用两个平行数组，一个保存键，一个保存值。
+ *
+ *   删除一个键时不能简单地把它所在的位置置为null，这会使得在它之后插入的同一键簇中的键无法被找到。
+ *   这里使用向后移位删除：从被删除的位置i开始向后扫描键簇，如果某个键的散列位置不在(i, j]之间（即把它移到i之后从它的散列位置仍然能探测到它），就把它移动到空位i上，空位随之后移，直到遇到null。
+ *   这样删除之后表中不会留下墓碑，键簇也不会越来越长。
+ *
+ *   线性探测的平均成本取决于使用率α = N/M：α接近1时键簇会变得很长，因此保证α不超过MAX_LOAD，低于MIN_LOAD时将数组减半。
+ */
+@SuppressWarnings("unchecked")
+public class LinearProbingHashST<Key, Value> extends ST<Key, Value> {
+
+    private static final double MAX_LOAD = 0.5;
+    private static final double MIN_LOAD = 0.125;
+
+    private int N;    // 符号表中键值对的总数
+    private int M;    // 线性探测表的大小，总是2的幂
+    private Key[] keys;
+    private Value[] values;
+
+    public LinearProbingHashST() {
+        this(16);
+    }
+
+    public LinearProbingHashST(int capacity) {
+        M = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        keys = (Key[]) new Object[M];
+        values = (Value[]) new Object[M];
+    }
+
+    private int hash(Key key) {
+        return SeparateChainingHashST.hash(key, M);
+    }
+
+    private void resize(int capacity) {
+        if (STMetrics.ENABLED) STMetrics.resize();
+        LinearProbingHashST<Key, Value> t = new LinearProbingHashST<>(capacity);
+        for (int i = 0; i < M; i++) {
+            if (keys[i] != null) t.put(keys[i], values[i]);
+        }
+        keys = t.keys;
+        values = t.values;
+        M = t.M;
+    }
+
+    @Override
+    public void put(Key key, Value value) {
+        if (value == null) {
+            delete(key);
+            return;
+        }
+        if (N + 1 > MAX_LOAD * M) resize(2 * M);
+        int i;
+        for (i = hash(key); keys[i] != null; i = (i + 1) & (M - 1)) {
+            if (keys[i].equals(key)) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        N++;
+    }
+
+    @Override
+    public Value get(Key key) {
+        for (int i = hash(key); keys[i] != null; i = (i + 1) & (M - 1)) {
+            if (keys[i].equals(key)) return values[i];
+        }
+        return null;
+    }
+
+    @Override
+    public void delete(Key key) {
+        int i = hash(key);
+        while (keys[i] != null && !keys[i].equals(key)) {
+            i = (i + 1) & (M - 1);
+        }
+        if (keys[i] == null) return;
+        for (int j = (i + 1) & (M - 1); keys[j] != null; j = (j + 1) & (M - 1)) {
+            int h = hash(keys[j]);
+            // 散列位置h在循环区间(i, j]之内时，键j不能移动到i
+            if (((j - h) & (M - 1)) < ((j - i) & (M - 1))) continue;
+            keys[i] = keys[j];
+            values[i] = values[j];
+            i = j;
+        }
+        keys[i] = null;
+        values[i] = null;
+        N--;
+        if (M > 16 && N < MIN_LOAD * M) resize(M / 2);
+    }
+
+    @Override
+    public boolean contains(Key key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return N == 0;
+    }
+
+    @Override
+    public int size() {
+        return N;
+    }
+
+    @Override
+    public Iterable<Key> keys() {
+        ArrayList<Key> queue = new ArrayList<>(N);
+        for (int i = 0; i < M; i++) {
+            if (keys[i] != null) queue.add(keys[i]);
+        }
+        return queue;
+    }
+}
@@ -0,0 +1,195 @@
+package yadong0305.algorithms.ST;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * 键为long的有序数组二分查找符号表：
+ *   和BinarySearchST一样使用一对平行数组，只是键直接保存在long[]中，不需要装箱，比较也不需要通过Comparable接口调用compareTo()。
+ *   查找、更新和有序性相关的操作都不会分配任何对象。
+ *   因为long没有空值，floor()、ceiling()、min()和max()在结果不存在时抛出NoSuchElementException，调用前可以用contains()或rank()判断
+ */
+@SuppressWarnings("unchecked")
+public class LongBinarySearchST<Value> {
+
+    private long[] keys;
+    private Value[] values;
+    private int N;
+    private long[] eytzinger;    // 冻结时按Eytzinger顺序排列的键，eytzinger[1..N]；插入或删除键之后置为null
+    private int[] positions;    // positions[k]：eytzinger[k]在keys[]中的位置
+
+    public LongBinarySearchST(int capacity) {
+        keys = new long[Math.max(capacity, 1)];
+        values = (Value[]) new Object[Math.max(capacity, 1)];
+    }
+
+    private void resize(int capacity) {
+        if (STMetrics.ENABLED) STMetrics.resize();
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    public int size() {
+        return N;
+    }
+
+    public boolean isEmpty() {
+        return N == 0;
+    }
+
+    /**
+     * 返回表中小于给定键的键的数量
+     */
+    public int rank(long key) {
+        if (eytzinger != null) return eytzingerRank(key);
+        int lo = 0;
+        int hi = N - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = keys[mid];
+            if (key < k) hi = mid - 1;
+            else if (key > k) lo = mid + 1;
+            else return mid;
+        }
+        return lo;
+    }
+
+    /**
+     * 冻结：把键按Eytzinger顺序（完全二叉树的层序，即堆的顺序）复制一份，eytzinger[k]的两个子结点是eytzinger[2k]和eytzinger[2k+1]。
+     * 有序数组中二分查找的前十几次比较访问的位置相距很远，几乎每次都是一次缓存未命中；Eytzinger顺序中第d层的2^d个键是连续存放的，
+     * 查找路径上前十几层的键都集中在数组开头的一小段中，会一直留在缓存里，而下一层的两个候选位置2k和2k+1相邻，在同一个缓存行中。
+     * 冻结之后rank()以及基于rank()的get()、contains()、floor()、ceiling()和size(lo, hi)使用这个布局，select()仍然直接使用keys[]。
+     * 更新已有键的值不影响冻结的布局；插入或删除一个键会解除冻结，需要时可以再次调用freeze()
+     */
+    public void freeze() {
+        eytzinger = new long[N + 1];
+        positions = new int[N + 1];
+        layout(1, 0);
+    }
+
+    public boolean isFrozen() {
+        return eytzinger != null;
+    }
+
+    /**
+     * 中序遍历以k为根的隐式完全二叉树，依次把keys[i..]填入遍历到的位置，返回下一个要填入的键的位置
+     */
+    private int layout(int k, int i) {
+        if (k > N) return i;
+        i = layout(2 * k, i);
+        eytzinger[k] = keys[i];
+        positions[k] = i++;
+        return layout(2 * k + 1, i);
+    }
+
+    /**
+     * 从根结点开始，key大于当前的键时走向右子结点2k+1，否则走向左子结点2k。循环中没有提前返回，每次都走满树高，
+     * 方向由比较结果直接算出（k = 2k + (key > eytzinger[k] ? 1 : 0)，JIT编译为条件传送），不会有分支预测失败。
+     * 走出树之后，k的二进制表示记录了整条路径（1表示向右），最后一次向左的位置就是第一个大于等于key的键：去掉末尾连续的1以及再前面的一个0即可
+     */
+    private int eytzingerRank(long key) {
+        int k = 1;
+        while (k <= N) {
+            k = 2 * k + (key > eytzinger[k] ? 1 : 0);
+        }
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return k == 0 ? N : positions[k];
+    }
+
+    public Value get(long key) {
+        int i = rank(key);
+        if (i < N && keys[i] == key) return values[i];
+        return null;
+    }
+
+    public boolean contains(long key) {
+        int i = rank(key);
+        return i < N && keys[i] == key;
+    }
+
+    /**
+     * 键不存在时用System.arraycopy()将所有更大的键向后移动一格
+     */
+    public void put(long key, Value value) {
+        int i = rank(key);
+        if (i < N && keys[i] == key) {
+            values[i] = value;
+            return;
+        }
+        if (N == keys.length) resize(2 * N);
+        System.arraycopy(keys, i, keys, i + 1, N - i);
+        System.arraycopy(values, i, values, i + 1, N - i);
+        keys[i] = key;
+        values[i] = value;
+        N++;
+        eytzinger = null;
+        positions = null;
+    }
+
+    public void delete(long key) {
+        int i = rank(key);
+        if (i == N || keys[i] != key) return;
+        System.arraycopy(keys, i + 1, keys, i, N - i - 1);
+        System.arraycopy(values, i + 1, values, i, N - i - 1);
+        N--;
+        values[N] = null;
+        eytzinger = null;
+        positions = null;
+        if (N > 0 && N == keys.length / 4) resize(keys.length / 2);
+    }
+
+    public long min() {
+        if (isEmpty()) throw new NoSuchElementException("empty table");
+        return keys[0];
+    }
+
+    public long max() {
+        if (isEmpty()) throw new NoSuchElementException("empty table");
+        return keys[N - 1];
+    }
+
+    public long select(int k) {
+        if (k < 0 || k >= N) throw new IllegalArgumentException("rank out of range: " + k);
+        return keys[k];
+    }
+
+    public long floor(long key) {
+        int i = rank(key);
+        if (i < N && keys[i] == key) return key;
+        if (i == 0) throw new NoSuchElementException("no key <= " + key);
+        return keys[i - 1];
+    }
+
+    public long ceiling(long key) {
+        int i = rank(key);
+        if (i == N) throw new NoSuchElementException("no key >= " + key);
+        return keys[i];
+    }
+
+    public void deleteMin() {
+        if (!isEmpty()) delete(keys[0]);
+    }
+
+    public void deleteMax() {
+        if (!isEmpty()) delete(keys[N - 1]);
+    }
+
+    public int size(long lo, long hi) {
+        if (lo > hi) return 0;
+        if (contains(hi)) return rank(hi) - rank(lo) + 1;
+        return rank(hi) - rank(lo);
+    }
+
+    /**
+     * [lo..hi]之间的所有键，已排序
+     */
+    public long[] keys(long lo, long hi) {
+        if (lo > hi) return new long[0];
+        int i = rank(lo);
+        return Arrays.copyOfRange(keys, i, i + size(lo, hi));
+    }
+
+    public long[] keys() {
+        return Arrays.copyOf(keys, N);
+    }
+}
@@ -0,0 +1,426 @@
+package yadong0305.algorithms.ST;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 映射到内存中的只读有序数组符号表，键和值都是byte[]，键按照无符号字节的字典序排列：
+ *   BinarySearchST的一对有序平行数组本身就是适合只读的格式，write()把这种布局原样写入文件，open()通过FileChannel.map()把文件映射到内存中，
+ *   rank()直接在映射的字节上进行和BinarySearchST相同的二分查找。打开一张表不需要读取或解析文件，数据不在Java堆上，也不会给垃圾收集器带来任何压力，
+ *   只有被查找访问到的页面才会由操作系统从磁盘读入页缓存。
+ *
+ * 文件格式（所有整数都是大端的）：
+ *   文件头16字节：魔数、键的宽度（所有的键长度相同时为这个长度，否则为-1）、键值对的数量N、保留的0
+ *   定长的键：值的偏移量long[N+1]，然后是N个键紧密排列的keys[]，然后是所有的值
+ *   变长的键：键的偏移量long[N+1]，值的偏移量long[N+1]，然后是所有的键，然后是所有的值
+ *   第i个键（值）占据文件中[offset[i], offset[i+1])之间的字节，偏移量数组相当于每个键（值）的长度前缀，但是可以随机访问第i项。
+ *
+ * 一个MappedByteBuffer最多只能映射2GB，因此文件被映射为若干个1GB的段，位置pos在第pos >>> 30段中。
+ * 偏移量数组从8的倍数开始，不会跨越两个段；键和值可以跨越段的边界，因此逐字节读取。
+ */
+public class MappedBinarySearchST implements Closeable {
+
+    private static final int MAGIC = 0x42535354;    // "BSST"
+    private static final int HEADER = 16;
+    private static final int SEGMENT_BITS = 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int shift;
+    private final long mask;
+
+    private final int N;
+    private final int keyWidth;
+    private final long keyOffsets;    // 变长的键：键的偏移量数组的位置；定长的键：keys[]的位置
+    private final long valueOffsets;
+
+    private MappedBinarySearchST(FileChannel channel, int segmentBits) throws IOException {
+        this.channel = channel;
+        this.shift = segmentBits;
+        this.mask = (1L << segmentBits) - 1;
+        long length = channel.size();
+        segments = new MappedByteBuffer[(int) ((length + mask) >>> segmentBits)];
+        for (int i = 0; i < segments.length; i++) {
+            long position = (long) i << segmentBits;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(mask + 1, length - position));
+        }
+        if (length < HEADER || readInt(0) != MAGIC) throw new IOException("not a sorted table file");
+        keyWidth = readInt(4);
+        N = readInt(8);
+        if (keyWidth >= 0) {
+            valueOffsets = HEADER;
+            keyOffsets = HEADER + 8L * (N + 1);
+        } else {
+            keyOffsets = HEADER;
+            valueOffsets = HEADER + 8L * (N + 1);
+        }
+    }
+
+    /**
+     * 打开write()写入的文件。返回的表在close()之前一直有效
+     */
+    public static MappedBinarySearchST open(Path file) throws IOException {
+        return open(file, SEGMENT_BITS);
+    }
+
+    /**
+     * 每段2^segmentBits字节，用很小的段可以测试跨越段边界的键和值
+     */
+    static MappedBinarySearchST open(Path file, int segmentBits) throws IOException {
+        if (segmentBits < 3 || segmentBits > SEGMENT_BITS) throw new IllegalArgumentException("segmentBits out of range: " + segmentBits);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new MappedBinarySearchST(channel, segmentBits);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 把一组严格递增的键和对应的值写入文件：所有的键长度相同时使用定长的格式，否则使用变长的格式
+     * @param keys：按无符号字节的字典序严格递增的键
+     * @param values：和keys一一对应的值
+     */
+    public static void write(Path file, byte[][] keys, byte[][] values) throws IOException {
+        if (keys.length != values.length) throw new IllegalArgumentException("keys.length != values.length");
+        int width = keys.length == 0 ? 0 : keys[0].length;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) throw new IllegalArgumentException("null key at " + i);
+            if (values[i] == null) throw new IllegalArgumentException("null value at " + i);
+            if (i > 0 && compare(keys[i - 1], keys[i]) >= 0) throw new IllegalArgumentException("keys not strictly ascending at " + i);
+            if (keys[i].length != width) width = -1;
+        }
+        int n = keys.length;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(width);
+            out.writeInt(n);
+            out.writeInt(0);
+            long position = HEADER + 8L * (n + 1) * (width >= 0 ? 1 : 2);
+            if (width < 0) {
+                for (int i = 0; i < n; i++) {
+                    out.writeLong(position);
+                    position += keys[i].length;
+                }
+                out.writeLong(position);
+            } else {
+                position += (long) width * n;
+            }
+            for (int i = 0; i < n; i++) {
+                out.writeLong(position);
+                position += values[i].length;
+            }
+            out.writeLong(position);
+            for (byte[] key : keys) out.write(key);
+            for (byte[] value : values) out.write(value);
+        }
+    }
+
+    public static Writer writer(Path file) throws IOException {
+        return new Writer(file);
+    }
+
+    /**
+     * 逐个写入键值对，用于无法一次放入内存的输入（例如LSMST的合并）。文件开头的偏移量数组依赖于N和所有键的长度，
+     * 所以add()先把键、值和它们的长度依次追加到三个临时文件（文件名后面加.keys.tmp、.values.tmp、.lengths.tmp）中，
+     * finish()再由长度算出偏移量，和write()一样写出文件头和偏移量数组，然后复制键和值。占用的内存和键的数量无关，代价是数据要写两次
+     */
+    public static final class Writer implements Closeable {
+        private final Path file;
+        private final Path keysFile;
+        private final Path valuesFile;
+        private final Path lengthsFile;
+        private final DataOutputStream keys;
+        private final DataOutputStream values;
+        private final DataOutputStream lengths;
+        private byte[] last;
+        private int n;
+        private int width;
+        private long keyBytes;
+        private boolean closed;
+
+        private Writer(Path file) throws IOException {
+            this.file = file;
+            String name = file.getFileName().toString();
+            keysFile = file.resolveSibling(name + ".keys.tmp");
+            valuesFile = file.resolveSibling(name + ".values.tmp");
+            lengthsFile = file.resolveSibling(name + ".lengths.tmp");
+            keys = spill(keysFile);
+            values = spill(valuesFile);
+            lengths = spill(lengthsFile);
+        }
+
+        private static DataOutputStream spill(Path file) throws IOException {
+            return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        }
+
+        /**
+         * 追加一个键值对，键必须大于之前所有的键
+         */
+        public void add(byte[] key, byte[] value) throws IOException {
+            if (closed) throw new IllegalStateException("writer closed");
+            if (key == null) throw new IllegalArgumentException("null key at " + n);
+            if (value == null) throw new IllegalArgumentException("null value at " + n);
+            if (last != null && compare(last, key) >= 0) throw new IllegalArgumentException("keys not strictly ascending at " + n);
+            if (n == 0) width = key.length;
+            else if (key.length != width) width = -1;
+            if (n == Integer.MAX_VALUE) throw new IllegalStateException("too many keys");
+            keys.write(key);
+            values.write(value);
+            lengths.writeInt(key.length);
+            lengths.writeInt(value.length);
+            keyBytes += key.length;
+            last = key;
+            n++;
+        }
+
+        /**
+         * 写出完整的文件并删除临时文件
+         */
+        public void finish() throws IOException {
+            if (closed) throw new IllegalStateException("writer closed");
+            keys.close();
+            values.close();
+            lengths.close();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(width);
+                out.writeInt(n);
+                out.writeInt(0);
+                long position = HEADER + 8L * (n + 1) * (width >= 0 ? 1 : 2);
+                if (width < 0) position = writeOffsets(out, position, 0);
+                else position += keyBytes;
+                writeOffsets(out, position, 1);
+                out.flush();
+                Files.copy(keysFile, out);
+                Files.copy(valuesFile, out);
+            }
+            close();
+        }
+
+        /**
+         * 从position开始，按lengths中每一项的第which个长度（0是键，1是值）写出偏移量数组，返回结束的位置
+         */
+        private long writeOffsets(OutputStream out, long position, int which) throws IOException {
+            DataOutputStream data = new DataOutputStream(out);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(lengthsFile), 1 << 16))) {
+                for (int i = 0; i < n; i++) {
+                    int keyLength = in.readInt();
+                    int valueLength = in.readInt();
+                    data.writeLong(position);
+                    position += which == 0 ? keyLength : valueLength;
+                }
+            }
+            data.writeLong(position);
+            return position;
+        }
+
+        /**
+         * 删除临时文件。没有调用finish()时不会生成文件
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                keys.close();
+                values.close();
+                lengths.close();
+            } finally {
+                Files.deleteIfExists(keysFile);
+                Files.deleteIfExists(valuesFile);
+                Files.deleteIfExists(lengthsFile);
+            }
+        }
+    }
+
+    /**
+     * 按无符号字节的字典序比较两个byte[]
+     */
+    static int compare(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) return cmp;
+        }
+        return a.length - b.length;
+    }
+
+    private byte readByte(long pos) {
+        return segments[(int) (pos >>> shift)].get((int) (pos & mask));
+    }
+
+    private int readInt(long pos) {
+        return segments[(int) (pos >>> shift)].getInt((int) (pos & mask));
+    }
+
+    private long readLong(long pos) {
+        return segments[(int) (pos >>> shift)].getLong((int) (pos & mask));
+    }
+
+    private long keyStart(int i) {
+        if (keyWidth >= 0) return keyOffsets + (long) keyWidth * i;
+        return readLong(keyOffsets + 8L * i);
+    }
+
+    private long keyEnd(int i) {
+        if (keyWidth >= 0) return keyOffsets + (long) keyWidth * (i + 1);
+        return readLong(keyOffsets + 8L * (i + 1));
+    }
+
+    /**
+     * 比较key和文件中的第i个键，不复制文件中的字节
+     */
+    private int compareTo(byte[] key, int i) {
+        long start = keyStart(i);
+        long length = keyEnd(i) - start;
+        int n = (int) Math.min(key.length, length);
+        for (int j = 0; j < n; j++) {
+            int cmp = (key[j] & 0xff) - (readByte(start + j) & 0xff);
+            if (cmp != 0) return cmp;
+        }
+        return Long.compare(key.length, length);
+    }
+
+    private byte[] read(long start, long end) {
+        byte[] bytes = new byte[(int) (end - start)];
+        for (int j = 0; j < bytes.length; j++) bytes[j] = readByte(start + j);
+        return bytes;
+    }
+
+    private byte[] key(int i) {
+        return read(keyStart(i), keyEnd(i));
+    }
+
+    /**
+     * 第i个值，i必须在[0, N)之间
+     */
+    byte[] value(int i) {
+        return read(readLong(valueOffsets + 8L * i), readLong(valueOffsets + 8L * (i + 1)));
+    }
+
+    public int size() {
+        return N;
+    }
+
+    public boolean isEmpty() {
+        return N == 0;
+    }
+
+    /**
+     * 返回表中小于给定键的键的数量，和BinarySearchST.rank()相同的二分查找
+     */
+    public int rank(byte[] key) {
+        int lo = 0;
+        int hi = N - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareTo(key, mid);
+            if (cmp < 0) hi = mid - 1;
+            else if (cmp > 0) lo = mid + 1;
+            else return mid;
+        }
+        return lo;
+    }
+
+    public byte[] get(byte[] key) {
+        int i = rank(key);
+        if (i < N && compareTo(key, i) == 0) return value(i);
+        return null;
+    }
+
+    public boolean contains(byte[] key) {
+        int i = rank(key);
+        return i < N && compareTo(key, i) == 0;
+    }
+
+    public byte[] min() {
+        if (isEmpty()) return null;
+        return key(0);
+    }
+
+    public byte[] max() {
+        if (isEmpty()) return null;
+        return key(N - 1);
+    }
+
+    public byte[] select(int k) {
+        if (k < 0 || k >= N) return null;
+        return key(k);
+    }
+
+    public byte[] floor(byte[] key) {
+        int i = rank(key);
+        if (i < N && compareTo(key, i) == 0) return key(i);
+        if (i == 0) return null;
+        return key(i - 1);
+    }
+
+    public byte[] ceiling(byte[] key) {
+        int i = rank(key);
+        if (i == N) return null;
+        return key(i);
+    }
+
+    public int size(byte[] lo, byte[] hi) {
+        if (compare(lo, hi) > 0) return 0;
+        if (contains(hi)) return rank(hi) - rank(lo) + 1;
+        return rank(hi) - rank(lo);
+    }
+
+    /**
+     * [lo..hi]之间的所有键，已排序。和BinarySearchST一样只计算出索引的范围，遍历时才从文件中读出每个键
+     */
+    public Iterable<byte[]> keys(byte[] lo, byte[] hi) {
+        return () -> {
+            int from = rank(lo);
+            return new IndexIterator(from, from + size(lo, hi));
+        };
+    }
+
+    public Iterable<byte[]> keys() {
+        return () -> new IndexIterator(0, N);
+    }
+
+    private class IndexIterator implements Iterator<byte[]> {
+        private int i;
+        private final int end;
+
+        IndexIterator(int from, int end) {
+            this.i = from;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return i < end;
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return key(i++);
+        }
+    }
+
+    /**
+     * 关闭文件。Java 8没有可移植的方法立即解除映射，映射的内存在MappedByteBuffer被垃圾收集时释放，关闭之后不能再使用这张表
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
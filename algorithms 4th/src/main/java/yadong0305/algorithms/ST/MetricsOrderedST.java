@@ -0,0 +1,163 @@
+package yadong0305.algorithms.ST;
+
+import java.util.function.BiConsumer;
+
+import yadong0305.algorithms.ST.MetricsST.Operation;
+
+/**
+ * 记录每种操作的次数和延迟的有序符号表，和MetricsST相同，另外记录rank()、select()、floor()等有序操作。
+ * keys(lo, hi)只记录返回Iterable的时间；forEachInRange()记录包括action在内的整个遍历的时间
+ */
+public class MetricsOrderedST<Key extends Comparable<Key>, Value> extends OrderedST<Key, Value> {
+
+    private final OrderedST<Key, Value> st;
+    private final LatencyHistogram[] latencies = MetricsST.histograms();
+
+    public MetricsOrderedST(OrderedST<Key, Value> st) {
+        this.st = st;
+    }
+
+    private void record(Operation op, long start) {
+        latencies[op.ordinal()].record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void put(Key key, Value value) {
+        long start = System.nanoTime();
+        st.put(key, value);
+        record(Operation.PUT, start);
+    }
+
+    @Override
+    public Value get(Key key) {
+        long start = System.nanoTime();
+        Value value = st.get(key);
+        record(Operation.GET, start);
+        return value;
+    }
+
+    @Override
+    public void delete(Key key) {
+        long start = System.nanoTime();
+        st.delete(key);
+        record(Operation.DELETE, start);
+    }
+
+    @Override
+    public boolean contains(Key key) {
+        long start = System.nanoTime();
+        boolean contains = st.contains(key);
+        record(Operation.CONTAINS, start);
+        return contains;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return st.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        long start = System.nanoTime();
+        int size = st.size();
+        record(Operation.SIZE, start);
+        return size;
+    }
+
+    @Override
+    public Iterable<Key> keys() {
+        long start = System.nanoTime();
+        Iterable<Key> keys = st.keys();
+        record(Operation.KEYS, start);
+        return keys;
+    }
+
+    @Override
+    public Key min() {
+        long start = System.nanoTime();
+        Key key = st.min();
+        record(Operation.MIN, start);
+        return key;
+    }
+
+    @Override
+    public Key max() {
+        long start = System.nanoTime();
+        Key key = st.max();
+        record(Operation.MAX, start);
+        return key;
+    }
+
+    @Override
+    public Key floor(Key key) {
+        long start = System.nanoTime();
+        Key floor = st.floor(key);
+        record(Operation.FLOOR, start);
+        return floor;
+    }
+
+    @Override
+    public Key ceiling(Key key) {
+        long start = System.nanoTime();
+        Key ceiling = st.ceiling(key);
+        record(Operation.CEILING, start);
+        return ceiling;
+    }
+
+    @Override
+    public int rank(Key key) {
+        long start = System.nanoTime();
+        int rank = st.rank(key);
+        record(Operation.RANK, start);
+        return rank;
+    }
+
+    @Override
+    public Key select(int k) {
+        long start = System.nanoTime();
+        Key key = st.select(k);
+        record(Operation.SELECT, start);
+        return key;
+    }
+
+    @Override
+    public void deleteMin() {
+        long start = System.nanoTime();
+        st.deleteMin();
+        record(Operation.DELETE_MIN, start);
+    }
+
+    @Override
+    public void deleteMax() {
+        long start = System.nanoTime();
+        st.deleteMax();
+        record(Operation.DELETE_MAX, start);
+    }
+
+    @Override
+    public int size(Key lo, Key hi) {
+        long start = System.nanoTime();
+        int size = st.size(lo, hi);
+        record(Operation.RANGE_SIZE, start);
+        return size;
+    }
+
+    @Override
+    public Iterable<Key> keys(Key lo, Key hi) {
+        long start = System.nanoTime();
+        Iterable<Key> keys = st.keys(lo, hi);
+        record(Operation.RANGE_KEYS, start);
+        return keys;
+    }
+
+    @Override
+    public void forEachInRange(Key lo, Key hi, BiConsumer<? super Key, ? super Value> action) {
+        long start = System.nanoTime();
+        st.forEachInRange(lo, hi, action);
+        record(Operation.RANGE_FOR_EACH, start);
+    }
+
+    public STMetrics.Snapshot snapshot() {
+        return STMetrics.snapshot(STMetrics.snapshots(latencies));
+    }
+}
@@ -0,0 +1,88 @@
+package yadong0305.algorithms.ST;
+
+/**
+ * 记录每种操作的次数和延迟的符号表：
+ *   包装任意一张符号表，每次操作前后各调用一次System.nanoTime()，把耗时记录在这种操作的LatencyHistogram中。
+ *   不需要监控时直接使用被包装的表，没有任何额外的开销；需要时在创建表的地方套上这一层，其他代码不需要修改。
+ *   snapshot()返回每种操作的延迟分布和STMetrics中的全局计数器（比较次数、访问的结点数、高度、旋转和扩容的次数）。
+ *   keys()只记录返回Iterable的时间，不包含遍历的时间。有序符号表用MetricsOrderedST包装
+ */
+public class MetricsST<Key, Value> extends ST<Key, Value> {
+
+    public enum Operation {
+        PUT, GET, DELETE, CONTAINS, SIZE, KEYS,
+        MIN, MAX, FLOOR, CEILING, RANK, SELECT, DELETE_MIN, DELETE_MAX, RANGE_SIZE, RANGE_KEYS, RANGE_FOR_EACH
+    }
+
+    private final ST<Key, Value> st;
+    private final LatencyHistogram[] latencies = histograms();
+
+    public MetricsST(ST<Key, Value> st) {
+        this.st = st;
+    }
+
+    static LatencyHistogram[] histograms() {
+        LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+        for (int i = 0; i < latencies.length; i++) latencies[i] = new LatencyHistogram();
+        return latencies;
+    }
+
+    private void record(Operation op, long start) {
+        latencies[op.ordinal()].record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void put(Key key, Value value) {
+        long start = System.nanoTime();
+        st.put(key, value);
+        record(Operation.PUT, start);
+    }
+
+    @Override
+    public Value get(Key key) {
+        long start = System.nanoTime();
+        Value value = st.get(key);
+        record(Operation.GET, start);
+        return value;
+    }
+
+    @Override
+    public void delete(Key key) {
+        long start = System.nanoTime();
+        st.delete(key);
+        record(Operation.DELETE, start);
+    }
+
+    @Override
+    public boolean contains(Key key) {
+        long start = System.nanoTime();
+        boolean contains = st.contains(key);
+        record(Operation.CONTAINS, start);
+        return contains;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return st.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        long start = System.nanoTime();
+        int size = st.size();
+        record(Operation.SIZE, start);
+        return size;
+    }
+
+    @Override
+    public Iterable<Key> keys() {
+        long start = System.nanoTime();
+        Iterable<Key> keys = st.keys();
+        record(Operation.KEYS, start);
+        return keys;
+    }
+
+    public STMetrics.Snapshot snapshot() {
+        return STMetrics.snapshot(STMetrics.snapshots(latencies));
+    }
+}
@@ -0,0 +1,56 @@
+package yadong0305.algorithms.ST;
+
+import java.util.Comparator;
+import java.util.function.BinaryOperator;
+
+/**
+ * 幺半群：满足结合律的二元运算combine()和它的单位元identity()，即
+ *   combine(combine(a, b), c) = combine(a, combine(b, c))
+ *   combine(identity(), a) = combine(a, identity()) = a
+ * 不要求交换律：树中的聚合值总是按键的顺序从左到右合并的，例如字符串连接也是一个幺半群。
+ * 求和、最小值、最大值都是幺半群；计数不需要幺半群，size(lo, hi)已经由结点计数器给出
+ */
+public interface Monoid<T> {
+
+    T identity();
+
+    T combine(T a, T b);
+
+    static <T> Monoid<T> of(T identity, BinaryOperator<T> combine) {
+        return new Monoid<T>() {
+            public T identity() {
+                return identity;
+            }
+
+            public T combine(T a, T b) {
+                return combine.apply(a, b);
+            }
+        };
+    }
+
+    static Monoid<Integer> intSum() {
+        return of(0, Integer::sum);
+    }
+
+    static Monoid<Long> longSum() {
+        return of(0L, Long::sum);
+    }
+
+    static Monoid<Double> doubleSum() {
+        return of(0.0, Double::sum);
+    }
+
+    /**
+     * 最小值，单位元为null（空的范围没有最小值）
+     */
+    static <T> Monoid<T> min(Comparator<? super T> comparator) {
+        return of(null, (a, b) -> a == null ? b : b == null ? a : comparator.compare(a, b) <= 0 ? a : b);
+    }
+
+    /**
+     * 最大值，单位元为null
+     */
+    static <T> Monoid<T> max(Comparator<? super T> comparator) {
+        return of(null, (a, b) -> a == null ? b : b == null ? a : comparator.compare(a, b) >= 0 ? a : b);
+    }
+}
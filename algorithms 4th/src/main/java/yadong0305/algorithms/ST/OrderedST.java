@@ -0,0 +1,33 @@
+package yadong0305.algorithms.ST;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+
+/**
+ * 有序符号表：键是Comparable的，表中的键保持有序，因此可以扩展出与键的相对顺序有关的操作
+ */
+public abstract class OrderedST<Key extends Comparable<Key>, Value> extends ST<Key, Value> {
+
+    public abstract Key min();
+    public abstract Key max();
+    public abstract Key floor(Key key);
+    public abstract Key ceiling(Key key);
+    public abstract int rank(Key key);
+    public abstract Key select(int k);
+    public abstract void deleteMin();
+    public abstract void deleteMax();
+    public abstract int size(Key lo, Key hi);
+    public abstract Iterable<Key> keys(Key lo, Key hi);
+    public abstract void forEachInRange(Key lo, Key hi, BiConsumer<? super Key, ? super Value> action);
+
+    /**
+     * [lo..hi]之间的所有键的Spliterator，可以用StreamSupport.stream()转换为流。默认实现包装keys(lo, hi)的迭代器，大小由size(lo, hi)给出。
+     * size(lo, hi)在创建迭代器之前调用，因为有的实现（SplayBST）在查找时会改变树的结构
+     */
+    public Spliterator<Key> spliterator(Key lo, Key hi) {
+        int size = size(lo, hi);
+        return Spliterators.spliterator(keys(lo, hi).iterator(), size,
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+}
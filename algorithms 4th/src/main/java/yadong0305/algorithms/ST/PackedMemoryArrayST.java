@@ -0,0 +1,463 @@
+package yadong0305.algorithms.ST;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * 带空隙的有序数组（packed memory array）：
+ *   BinarySearchST的键在数组中是连续的，范围查找只是顺序地读数组，但是每次put()和delete()都要移动O(N)个元素。
+ *   这里在数组中均匀地留出空位：数组被分成大小为S = Θ(lgN)（2的幂）的段，每一段中的键紧靠在段的开头，后面是空位（null），
+ *   插入和删除只需要移动一段之内的元素。
+ *   段上面是一棵隐式的完全二叉树，第d层的结点是2^d个相邻的段组成的窗口。每一层有一个密度的上限和下限，
+ *   从叶子（一个段，上限1，下限1/8）到根结点（整个数组，上限3/4，下限1/4）线性变化。
+ *   一个段满了（或者删除之后低于下限）时，向上找到第一个密度在这一层的范围之内的窗口，把窗口中的键均匀地重新分布到它的所有段中；
+ *   根结点也超出范围时，数组的大小加倍或者减半。层次越高的窗口范围越窄，重新分布之后要经过很多次插入或删除才会再次超出范围，
+ *   所以插入和删除的均摊代价是O(lg²N)次元素的移动。
+ *   数组中只有不到一半是空位，键仍然几乎是连续的，范围查找跳过每一段末尾的空位，仍然是顺序地读数组。
+ * 查找先在各段的第一个键中二分查找，确定所在的段，再在段内二分查找。rank()和select()需要知道每一段前面有多少个键，
+ * 各段的键的数量保存在一个树状数组（Fenwick树）中，都是O(lgN)的。
+ * 不变式：段多于一个时没有空的段（重新分布之后每一段至少有一个键，一段中只剩下一个键时就会重新分布），所以各段的第一个键都存在
+ */
+@SuppressWarnings("unchecked")
+public class PackedMemoryArrayST<Key extends Comparable<Key>, Value> extends OrderedST<Key, Value> {
+
+    private static final int MIN_SEGMENT = 16;    // 段的最小大小，也是数组的最小容量
+    private static final double LEAF_UPPER = 1.0;
+    private static final double ROOT_UPPER = 0.75;
+    private static final double LEAF_LOWER = 0.125;
+    private static final double ROOT_LOWER = 0.25;
+
+    private Key[] keys;
+    private Value[] values;
+    private int[] count;    // count[s]：第s段中的键的数量，这些键在keys[s*S..s*S+count[s])中
+    private int[] tree;    // count[]的树状数组，tree[i]是count[i-(i&-i)..i)的和
+    private int shift;    // 段的大小S = 1 << shift
+    private int height;    // 窗口树的高度，段的数量是2^height
+    private int N;
+
+    public PackedMemoryArrayST() {
+        allocate(MIN_SEGMENT);
+    }
+
+    /**
+     * 批量装载：键已经严格递增时，直接把它们均匀地分布到容量为不小于2N的2的幂的数组中
+     */
+    public static <Key extends Comparable<Key>, Value> PackedMemoryArrayST<Key, Value> fromSorted(Key[] keys, Value[] values) {
+        BulkLoad.checkLengths(keys, values);
+        BulkLoad.checkSorted(keys, keys.length);
+        PackedMemoryArrayST<Key, Value> st = new PackedMemoryArrayST<>();
+        st.load(keys, values, keys.length);
+        return st;
+    }
+
+    /**
+     * 批量装载任意顺序的键：先排序并去除重复的键（重复的键保留最后一个值，和依次put()的结果相同）
+     */
+    public static <Key extends Comparable<Key>, Value> PackedMemoryArrayST<Key, Value> fromUnsorted(Key[] keys, Value[] values) {
+        BulkLoad.checkLengths(keys, values);
+        Key[] k = keys.clone();
+        Value[] v = values.clone();
+        PackedMemoryArrayST<Key, Value> st = new PackedMemoryArrayST<>();
+        st.load(k, v, BulkLoad.sortAndDedupe(k, v));
+        return st;
+    }
+
+    private void load(Key[] keys, Value[] values, int n) {
+        int capacity = MIN_SEGMENT;
+        while (capacity < 2 * n) capacity *= 2;
+        allocate(capacity);
+        spread(keys, values, n);
+        N = n;
+    }
+
+    private static int segmentSize(int capacity) {
+        int lg = 31 - Integer.numberOfLeadingZeros(capacity);
+        int size = MIN_SEGMENT;
+        while (size < lg) size *= 2;
+        return size;
+    }
+
+    private void allocate(int capacity) {
+        int size = segmentSize(capacity);
+        shift = Integer.numberOfTrailingZeros(size);
+        height = Integer.numberOfTrailingZeros(capacity) - shift;
+        keys = (Key[]) new Comparable[capacity];
+        values = (Value[]) new Object[capacity];
+        count = new int[capacity >> shift];
+        tree = new int[count.length + 1];
+    }
+
+    /**
+     * 把数组的大小改为capacity，所有的键均匀地分布到新数组中
+     */
+    private void resize(int capacity) {
+        if (STMetrics.ENABLED) STMetrics.resize();
+        int n = pack(0, count.length);
+        Key[] k = keys;
+        Value[] v = values;
+        allocate(capacity);
+        spread(k, v, n);
+    }
+
+    /**
+     * 把连续的keys[0..n)均匀地分布到刚分配的数组的所有段中，并建立树状数组
+     */
+    private void spread(Key[] keys, Value[] values, int n) {
+        int segments = count.length;
+        for (int i = 0, src = 0; i < segments; i++) {
+            int q = n / segments + (i < n % segments ? 1 : 0);
+            System.arraycopy(keys, src, this.keys, i << shift, q);
+            System.arraycopy(values, src, this.values, i << shift, q);
+            count[i] = q;
+            src += q;
+        }
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += count[i - 1];
+            int j = i + (i & -i);
+            if (j < tree.length) tree[j] += tree[i];
+        }
+    }
+
+    /**
+     * 把第a段开始的w个段中的键依次移动到这些段的开头，返回键的数量。每个键都只向前移动，不会覆盖还没有移动的键
+     */
+    private int pack(int a, int w) {
+        int base = a << shift;
+        int write = base;
+        for (int s = a; s < a + w; s++) {
+            int from = s << shift;
+            if (from != write) {
+                System.arraycopy(keys, from, keys, write, count[s]);
+                System.arraycopy(values, from, values, write, count[s]);
+            }
+            write += count[s];
+        }
+        return write - base;
+    }
+
+    /**
+     * 把第a段开始的w个段中的键均匀地重新分布到这些段中。r >= 0时同时插入key，r是它在窗口的所有键中的位置。
+     * 先把键都移动到窗口的开头，再从最后一个键开始从后往前移动到最终的位置：第v个键的最终位置不小于base+v，
+     * 而它前面的键都还在base+v之前，所以只用数组本身，不需要额外的空间
+     */
+    private void rebalance(int a, int w, Key key, Value value, int r) {
+        int base = a << shift;
+        int m = pack(a, w) + (r >= 0 ? 1 : 0);
+        int v = m - 1;    // 还没有放到最终位置的最后一个键
+        for (int i = w - 1; i >= 0; i--) {
+            int q = m / w + (i < m % w ? 1 : 0);
+            int seg = base + (i << shift);
+            int low = v - q + 1;
+            if (r < low || r > v) {
+                int src = base + (r >= 0 && low > r ? low - 1 : low);
+                System.arraycopy(keys, src, keys, seg, q);
+                System.arraycopy(values, src, values, seg, q);
+            } else {
+                System.arraycopy(keys, base + r, keys, seg + r - low + 1, v - r);
+                System.arraycopy(values, base + r, values, seg + r - low + 1, v - r);
+                System.arraycopy(keys, base + low, keys, seg, r - low);
+                System.arraycopy(values, base + low, values, seg, r - low);
+                keys[seg + r - low] = key;
+                values[seg + r - low] = value;
+            }
+            add(a + i, q - count[a + i]);
+            count[a + i] = q;
+            v = low - 1;
+        }
+        for (int s = a; s < a + w; s++) {
+            int from = (s << shift) + count[s];
+            int to = (s + 1) << shift;
+            for (int j = from; j < to; j++) {
+                keys[j] = null;
+                values[j] = null;
+            }
+        }
+    }
+
+    private double upper(int d) {
+        if (height == 0) return ROOT_UPPER;
+        return LEAF_UPPER - (LEAF_UPPER - ROOT_UPPER) * d / height;
+    }
+
+    private double lower(int d) {
+        if (height == 0) return ROOT_LOWER;
+        return LEAF_LOWER + (ROOT_LOWER - LEAF_LOWER) * d / height;
+    }
+
+    /**
+     * 树状数组：count[s]加上delta
+     */
+    private void add(int s, int delta) {
+        for (int i = s + 1; i < tree.length; i += i & -i) tree[i] += delta;
+    }
+
+    /**
+     * 树状数组：前s段中的键的数量
+     */
+    private int prefix(int s) {
+        int sum = 0;
+        for (int i = s; i > 0; i -= i & -i) sum += tree[i];
+        return sum;
+    }
+
+    /**
+     * 在各段的第一个键中二分查找，返回最后一个第一个键小于等于key的段（都大于key时返回0）
+     */
+    private int segment(Key key) {
+        int lo = 0;
+        int hi = count.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (key.compareTo(keys[mid << shift]) >= 0) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     * 在第s段中二分查找，返回第一个大于等于key的键在keys[]中的位置（都小于key时返回这一段的最后一个键之后的位置）
+     */
+    private int search(Key key, int s) {
+        int lo = s << shift;
+        int hi = lo + count[s] - 1;
+        while (lo <= hi) {
+            int mid = lo + (hi - lo)/2;
+            int cmp = key.compareTo(keys[mid]);
+            if (cmp < 0) {
+                hi = mid - 1;
+            } else if (cmp > 0) {
+                lo = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 第一个大于等于key的键在keys[]中的位置，不存在时返回keys.length
+     */
+    private int position(Key key) {
+        int s = segment(key);
+        int i = search(key, s);
+        if (i < (s << shift) + count[s]) return i;
+        return next(s);
+    }
+
+    /**
+     * 第s段之后的第一个键的位置，不存在时返回keys.length
+     */
+    private int next(int s) {
+        return s + 1 < count.length ? (s + 1) << shift : keys.length;
+    }
+
+    public void put(Key key, Value value) {
+        int s = segment(key);
+        int from = s << shift;
+        int i = search(key, s);
+        int end = from + count[s];
+        if (i < end && key.compareTo(keys[i]) == 0) {
+            values[i] = value;
+            return;
+        }
+        if (count[s] < (1 << shift)) {
+            System.arraycopy(keys, i, keys, i + 1, end - i);
+            System.arraycopy(values, i, values, i + 1, end - i);
+            keys[i] = key;
+            values[i] = value;
+            count[s]++;
+            add(s, 1);
+            N++;
+            return;
+        }
+        for (int d = 1; d <= height; d++) {
+            int w = 1 << d;
+            int a = s & -w;
+            int n = prefix(a + w) - prefix(a);
+            if (n + 1 <= upper(d) * (w << shift)) {
+                rebalance(a, w, key, value, prefix(s) - prefix(a) + i - from);
+                N++;
+                return;
+            }
+        }
+        resize(2 * keys.length);
+        put(key, value);
+    }
+
+    public Value get(Key key) {
+        int s = segment(key);
+        int i = search(key, s);
+        if (i < (s << shift) + count[s] && key.compareTo(keys[i]) == 0) return values[i];
+        return null;
+    }
+
+    public boolean contains(Key key) {
+        int s = segment(key);
+        int i = search(key, s);
+        return i < (s << shift) + count[s] && key.compareTo(keys[i]) == 0;
+    }
+
+    public void delete(Key key) {
+        int s = segment(key);
+        int i = search(key, s);
+        int end = (s << shift) + count[s];
+        if (i == end || key.compareTo(keys[i]) != 0) return;
+        System.arraycopy(keys, i + 1, keys, i, end - i - 1);
+        System.arraycopy(values, i + 1, values, i, end - i - 1);
+        keys[end - 1] = null;
+        values[end - 1] = null;
+        count[s]--;
+        add(s, -1);
+        N--;
+        if (height == 0 || count[s] >= LEAF_LOWER * (1 << shift)) return;
+        for (int d = 1; d <= height; d++) {
+            int w = 1 << d;
+            int a = s & -w;
+            int n = prefix(a + w) - prefix(a);
+            if (n >= lower(d) * (w << shift)) {
+                rebalance(a, w, null, null, -1);
+                return;
+            }
+        }
+        resize(keys.length / 2);
+    }
+
+    public boolean isEmpty() {
+        return N == 0;
+    }
+
+    public int size() {
+        return N;
+    }
+
+    public Key min() {
+        if (isEmpty()) return null;
+        return keys[0];
+    }
+
+    public Key max() {
+        if (isEmpty()) return null;
+        int s = count.length - 1;
+        return keys[(s << shift) + count[s] - 1];
+    }
+
+    /**
+     * key小于所在的段的第一个键时，所在的段只能是第0段，key小于所有的键
+     */
+    public Key floor(Key key) {
+        if (isEmpty()) return null;
+        int s = segment(key);
+        int i = search(key, s);
+        if (i < (s << shift) + count[s] && key.compareTo(keys[i]) == 0) return keys[i];
+        if (i == s << shift) return null;
+        return keys[i - 1];
+    }
+
+    public Key ceiling(Key key) {
+        int i = position(key);
+        return i < keys.length ? keys[i] : null;
+    }
+
+    public int rank(Key key) {
+        int s = segment(key);
+        return prefix(s) + search(key, s) - (s << shift);
+    }
+
+    /**
+     * 沿着树状数组从高位到低位确定第k个键所在的段：pos是已经确定在它前面的段的数量，k减去这些段中的键的数量
+     */
+    public Key select(int k) {
+        if (k < 0 || k >= N) return null;
+        int pos = 0;
+        for (int step = Integer.highestOneBit(count.length); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next < tree.length && tree[next] <= k) {
+                pos = next;
+                k -= tree[next];
+            }
+        }
+        return keys[(pos << shift) + k];
+    }
+
+    public void deleteMin() {
+        if (!isEmpty()) delete(min());
+    }
+
+    public void deleteMax() {
+        if (!isEmpty()) delete(max());
+    }
+
+    public int size(Key lo, Key hi) {
+        if (lo.compareTo(hi) > 0) return 0;
+        if (contains(hi)) return rank(hi) - rank(lo) + 1;
+        return rank(hi) - rank(lo);
+    }
+
+    /**
+     * 从第一个大于等于lo的键开始依次返回size(lo, hi)个键，到达一段的最后一个键时跳到下一段的开头
+     */
+    public Iterable<Key> keys(Key lo, Key hi) {
+        int from = position(lo);
+        int n = size(lo, hi);
+        return () -> new Iterator<Key>() {
+            private int i = from;
+            private int remaining = n;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public Key next() {
+                if (remaining == 0) throw new NoSuchElementException();
+                Key key = keys[i];
+                remaining--;
+                int s = i >> shift;
+                if (++i == (s << shift) + count[s]) i = PackedMemoryArrayST.this.next(s);
+                return key;
+            }
+        };
+    }
+
+    public Iterable<Key> keys() {
+        if (isEmpty()) return new LinkedList<>();
+        return keys(min(), max());
+    }
+
+    public void forEachInRange(Key lo, Key hi, BiConsumer<? super Key, ? super Value> action) {
+        int i = position(lo);
+        int n = size(lo, hi);
+        while (n > 0) {
+            int s = i >> shift;
+            int end = Math.min((s << shift) + count[s], i + n);
+            n -= end - i;
+            for (; i < end; i++) action.accept(keys[i], values[i]);
+            i = next(s);
+        }
+    }
+
+    /**
+     * 检查不变式：每一段中的键紧靠在段的开头，后面都是空位，所有的键严格递增，段多于一个时没有空的段，树状数组和N与各段的数量一致
+     */
+    boolean check() {
+        int n = 0;
+        Key last = null;
+        for (int s = 0; s < count.length; s++) {
+            if (count[s] < 0 || count[s] > 1 << shift) return false;
+            if (count.length > 1 && count[s] == 0) return false;
+            if (prefix(s) != n) return false;
+            for (int j = 0; j < 1 << shift; j++) {
+                Key key = keys[(s << shift) + j];
+                if ((j < count[s]) != (key != null)) return false;
+                if (key == null) continue;
+                if (last != null && last.compareTo(key) >= 0) return false;
+                last = key;
+            }
+            n += count[s];
+        }
+        return n == N && prefix(count.length) == N;
+    }
+}
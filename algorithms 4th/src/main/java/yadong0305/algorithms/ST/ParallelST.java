@@ -0,0 +1,140 @@
+package yadong0305.algorithms.ST;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.BinaryOperator;
+
+/**
+ * 有序符号表上的fork-join范围操作：
+ *   先在调用者的线程中用rank()和select()把[lo..hi]切成键的数量几乎相等的P段：rank(lo)给出第一个键的排名r，size(lo, hi)给出键的数量n，
+ *   第i段是排名在[r + i·n/P, r + (i+1)·n/P)之间的键，两端的键由select()得到。每一段是一次独立的forEachInRange()，在ForkJoinPool中并行执行。
+ *   切分只需要2P次select()，在树和有序数组上代价是O(P lgN)，和范围的大小无关。
+ *   P取公共池并行度的4倍（让先完成的线程可以窃取剩下的段），但是每段至少有MIN_SPLIT个键，小的范围直接在一个线程中完成。
+ *   reduce()和count()按段的顺序两两合并各段的结果，combiner只需要满足结合律，不需要交换律。
+ *
+ * 各段同时读取同一张表，因此表必须支持并发的读操作：BST、RedBlackBST、BinarySearchST、BTreeST、PersistentRedBlackBST和ConcurrentSkipListST都可以；
+ * SplayBST的查找会改变树的结构，不能用在这里。执行期间修改表（ConcurrentSkipListST除外）的结果是未定义的。
+ * ConcurrentSkipListST的结点没有子树计数器，rank()、select()和size(lo, hi)都要沿第0层链表计数，是线性级别的：
+ * 切分在fork之前就要在调用者的线程中花费O(P·N)的时间，通常比整个范围操作本身还要慢，只适合在执行期间有并发写入、不能使用其他表的时候使用
+ */
+public final class ParallelST {
+
+    static final int MIN_SPLIT = 1 << 12;
+
+    private ParallelST() {
+    }
+
+    /**
+     * 返回P段的边界，第i段是[bounds.get(2i)..bounds.get(2i+1)]，范围为空时返回空的列表
+     */
+    static <Key extends Comparable<Key>> List<Key> split(OrderedST<Key, ?> st, Key lo, Key hi) {
+        int n = st.size(lo, hi);
+        if (n == 0) return new ArrayList<>();
+        int parts = Math.max(1, Math.min(4 * ForkJoinPool.getCommonPoolParallelism(), n / MIN_SPLIT));
+        List<Key> bounds = new ArrayList<>(2 * parts);
+        bounds.add(lo);
+        int r = st.rank(lo);
+        for (int i = 1; i < parts; i++) {
+            int from = r + (int) ((long) i * n / parts);
+            bounds.add(st.select(from - 1));
+            bounds.add(st.select(from));
+        }
+        bounds.add(hi);
+        return bounds;
+    }
+
+    private static class Task<Key, R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Key> bounds;
+        private final int from;
+        private final int to;
+        private final BiFunction<Key, Key, R> leaf;
+        private final BinaryOperator<R> combiner;
+
+        Task(List<Key> bounds, int from, int to, BiFunction<Key, Key, R> leaf, BinaryOperator<R> combiner) {
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from == 1) return leaf.apply(bounds.get(2 * from), bounds.get(2 * from + 1));
+            int mid = (from + to) >>> 1;
+            Task<Key, R> left = new Task<>(bounds, from, mid, leaf, combiner);
+            left.fork();
+            R right = new Task<>(bounds, mid, to, leaf, combiner).compute();
+            return combiner.apply(left.join(), right);
+        }
+    }
+
+    private static <Key extends Comparable<Key>, R> R invoke(OrderedST<Key, ?> st, Key lo, Key hi, R identity, BiFunction<Key, Key, R> leaf, BinaryOperator<R> combiner) {
+        List<Key> bounds = split(st, lo, hi);
+        if (bounds.isEmpty()) return identity;
+        if (bounds.size() == 2) return leaf.apply(lo, hi);
+        return ForkJoinPool.commonPool().invoke(new Task<>(bounds, 0, bounds.size() / 2, leaf, combiner));
+    }
+
+    /**
+     * 并行地对[lo..hi]之间的每个键值对调用action。不同段的键在不同的线程中处理，action必须是线程安全的，调用的顺序是不确定的
+     */
+    public static <Key extends Comparable<Key>, Value> void forEach(OrderedST<Key, Value> st, Key lo, Key hi, BiConsumer<? super Key, ? super Value> action) {
+        invoke(st, lo, hi, null, (a, b) -> {
+            st.forEachInRange(a, b, action);
+            return null;
+        }, (x, y) -> null);
+    }
+
+    public static <Key extends Comparable<Key>, Value> void forEach(OrderedST<Key, Value> st, BiConsumer<? super Key, ? super Value> action) {
+        if (!st.isEmpty()) forEach(st, st.min(), st.max(), action);
+    }
+
+    /**
+     * 把[lo..hi]之间的每个键值对用mapper转换，再按键的顺序用combiner合并，范围为空时返回identity
+     * （和ConcurrentHashMap.reduce()一样分成转换和合并两个函数）。identity必须是combiner的单位元
+     */
+    public static <Key extends Comparable<Key>, Value, R> R reduce(OrderedST<Key, Value> st, Key lo, Key hi, R identity,
+                                                                   BiFunction<? super Key, ? super Value, ? extends R> mapper, BinaryOperator<R> combiner) {
+        return invoke(st, lo, hi, identity, (a, b) -> reduceRange(st, a, b, identity, mapper, combiner), combiner);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Key extends Comparable<Key>, Value, R> R reduceRange(OrderedST<Key, Value> st, Key lo, Key hi, R identity,
+                                                                         BiFunction<? super Key, ? super Value, ? extends R> mapper, BinaryOperator<R> combiner) {
+        R[] acc = (R[]) new Object[]{identity};
+        st.forEachInRange(lo, hi, (key, value) -> acc[0] = combiner.apply(acc[0], mapper.apply(key, value)));
+        return acc[0];
+    }
+
+    public static <Key extends Comparable<Key>, Value, R> R reduce(OrderedST<Key, Value> st, R identity,
+                                                                   BiFunction<? super Key, ? super Value, ? extends R> mapper, BinaryOperator<R> combiner) {
+        if (st.isEmpty()) return identity;
+        return reduce(st, st.min(), st.max(), identity, mapper, combiner);
+    }
+
+    /**
+     * [lo..hi]之间满足predicate的键值对的数量。每段用一个局部的计数器，只在合并时装箱
+     */
+    public static <Key extends Comparable<Key>, Value> long count(OrderedST<Key, Value> st, Key lo, Key hi, BiPredicate<? super Key, ? super Value> predicate) {
+        return invoke(st, lo, hi, 0L, (a, b) -> {
+            long[] count = new long[1];
+            st.forEachInRange(a, b, (key, value) -> {
+                if (predicate.test(key, value)) count[0]++;
+            });
+            return count[0];
+        }, Long::sum);
+    }
+
+    public static <Key extends Comparable<Key>, Value> long count(OrderedST<Key, Value> st, BiPredicate<? super Key, ? super Value> predicate) {
+        if (st.isEmpty()) return 0;
+        return count(st, st.min(), st.max(), predicate);
+    }
+}
@@ -0,0 +1,466 @@
+package yadong0305.algorithms.ST;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * 持久化（写时复制）的红黑树：算法和RedBlackBST完全相同，区别在于已经发布的结点永远不会再被修改。
+ *
+ * 路径复制：put()和delete()只会修改从根结点到被修改结点的路径上的结点（以及旋转和颜色转换涉及的它们的子结点），
+ * 因此只需要复制这O(logN)个结点，其他所有的子树都和旧版本共享。修改完成后用一次volatile写发布新的根结点，
+ * 持有旧的根结点的读者看到的仍然是一棵完整、一致、不会再变化的树。
+ *
+ * 每次写操作都从全局计数器中取得一个新的编号edit，这次写操作中创建或复制的结点都带有这个编号：
+ *   own(x)在x的编号不等于当前编号时复制x，否则直接返回x，所以同一次写操作中一个结点最多只被复制一次，复制之后就可以像RedBlackBST中那样直接修改它；
+ *   编号全局唯一，因此不同的表（包括snapshot()得到的表）之间共享的结点也不会被任何一方修改。
+ *
+ * snapshot()只复制根结点的引用，代价是O(1)。读操作不加锁，每个读操作（以及每次迭代）开始时读取一次根结点，在这个版本上完成；写操作之间用synchronized串行化。
+ */
+public class PersistentRedBlackBST<Key extends Comparable<Key>, Value> extends OrderedST<Key, Value> {
+
+    private static final boolean RED = true;
+    private static final boolean BLACK = false;
+    private static final int MAX_HEIGHT = 64;
+    private static final AtomicLong EDITS = new AtomicLong();
+
+    private volatile Node root;
+
+    private long edit;    // 当前写操作的编号
+    @SuppressWarnings("unchecked")
+    private final Node[] path = (Node[]) new PersistentRedBlackBST.Node[MAX_HEIGHT];
+    private final boolean[] less = new boolean[MAX_HEIGHT];
+
+    private class Node {
+        Key key;
+        Value value;
+        Node left;
+        Node right;
+        int N;
+        boolean color;
+        final long edit;    // 创建这个结点的写操作的编号
+
+        Node(Key key, Value value, int N, boolean color, long edit) {
+            this.key = key;
+            this.value = value;
+            this.N = N;
+            this.color = color;
+            this.edit = edit;
+        }
+    }
+
+    /**
+     * 返回一张和当前版本共享所有结点的新表，之后对两张表的修改互不影响
+     */
+    public PersistentRedBlackBST<Key, Value> snapshot() {
+        PersistentRedBlackBST<Key, Value> st = new PersistentRedBlackBST<>();
+        st.root = root;
+        return st;
+    }
+
+    /**
+     * 返回x在当前写操作中可以修改的版本
+     */
+    private Node own(Node x) {
+        if (x == null || x.edit == edit) return x;
+        Node t = new Node(x.key, x.value, x.N, x.color, edit);
+        t.left = x.left;
+        t.right = x.right;
+        return t;
+    }
+
+    private boolean isRed(Node x) {
+        if (x == null) return false;
+        return x.color == RED;
+    }
+
+    private int size(Node x) {
+        if (x == null) return 0;
+        return x.N;
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    @Override
+    public Value get(Key key) {
+        int depth = 0;
+        Node x = root;
+        while (x != null) {
+            depth++;
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0) x = x.left;
+            else if (cmp > 0) x = x.right;
+            else break;
+        }
+        if (STMetrics.ENABLED) STMetrics.search(depth);
+        return x == null ? null : x.value;
+    }
+
+    @Override
+    public boolean contains(Key key) {
+        return get(key) != null;
+    }
+
+    /**
+     * 和RedBlackBST.put()相同，只是查找命中时也要复制从根结点到命中结点的路径，因为旧版本中的结点不能被修改
+     */
+    @Override
+    public synchronized void put(Key key, Value value) {
+        edit = EDITS.incrementAndGet();
+        int depth = 0;
+        Node x = root;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) break;
+            path[depth] = x;
+            less[depth++] = cmp < 0;
+            x = cmp < 0 ? x.left : x.right;
+        }
+        if (STMetrics.ENABLED) STMetrics.search(x == null ? depth : depth + 1);
+        if (x != null) {
+            x = own(x);
+            x.value = value;
+        } else {
+            x = new Node(key, value, 1, RED, edit);
+        }
+        Node h = fixUp(depth, x);
+        h.color = BLACK;
+        root = h;
+    }
+
+    /**
+     * 用h替换path[0..depth)所记录的路径末端的子树，自下而上地复制路径上的结点、重置链接并完成局部变换，返回新的根结点
+     */
+    private Node fixUp(int depth, Node h) {
+        while (depth > 0) {
+            Node parent = own(path[--depth]);
+            path[depth] = null;
+            if (less[depth]) parent.left = h;
+            else parent.right = h;
+            h = balance(parent);
+        }
+        return h;
+    }
+
+    /**
+     * h必须已经属于当前写操作
+     */
+    private Node balance(Node h) {
+        if (isRed(h.right) && !isRed(h.left)) h = rotateLeft(h);
+        if (isRed(h.left) && isRed(h.left.left)) h = rotateRight(h);
+        if (isRed(h.left) && isRed(h.right)) flipColors(h);
+        h.N = size(h.left) + size(h.right) + 1;
+        return h;
+    }
+
+    private Node rotateLeft(Node h) {
+        if (STMetrics.ENABLED) STMetrics.rotation();
+        Node x = own(h.right);
+        h.right = x.left;
+        x.left = h;
+        x.color = h.color;
+        h.color = RED;
+        x.N = h.N;
+        h.N = size(h.left) + size(h.right) + 1;
+        return x;
+    }
+
+    private Node rotateRight(Node h) {
+        if (STMetrics.ENABLED) STMetrics.rotation();
+        Node x = own(h.left);
+        h.left = x.right;
+        x.right = h;
+        x.color = h.color;
+        h.color = RED;
+        x.N = h.N;
+        h.N = size(h.left) + size(h.right) + 1;
+        return x;
+    }
+
+    private void flipColors(Node h) {
+        h.left = own(h.left);
+        h.right = own(h.right);
+        h.color = !h.color;
+        h.left.color = !h.left.color;
+        h.right.color = !h.right.color;
+    }
+
+    private Node moveRedLeft(Node h) {
+        flipColors(h);
+        if (isRed(h.right.left)) {
+            h.right = rotateRight(h.right);
+            h = rotateLeft(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    private Node moveRedRight(Node h) {
+        flipColors(h);
+        if (isRed(h.left.left)) {
+            h = rotateRight(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    /**
+     * 开始一次删除：复制根结点，如果它的两个子结点都是2-结点则将它变红
+     */
+    private Node beginDelete() {
+        edit = EDITS.incrementAndGet();
+        Node h = own(root);
+        if (!isRed(h.left) && !isRed(h.right)) h.color = RED;
+        return h;
+    }
+
+    private void endDelete(Node h) {
+        if (h != null) h.color = BLACK;
+        root = h;
+    }
+
+    public synchronized void deleteMin() {
+        if (isEmpty()) return;
+        endDelete(deleteMin(0, beginDelete()));
+    }
+
+    private Node deleteMin(int depth, Node h) {
+        h = own(h);
+        while (h.left != null) {
+            if (!isRed(h.left) && !isRed(h.left.left)) h = moveRedLeft(h);
+            path[depth] = h;
+            less[depth++] = true;
+            h = own(h.left);
+        }
+        return fixUp(depth, null);
+    }
+
+    public synchronized void deleteMax() {
+        if (isEmpty()) return;
+        int depth = 0;
+        Node h = beginDelete();
+        while (true) {
+            if (isRed(h.left)) h = rotateRight(h);
+            if (h.right == null) break;
+            if (!isRed(h.right) && !isRed(h.right.left)) h = moveRedRight(h);
+            path[depth] = h;
+            less[depth++] = false;
+            h = own(h.right);
+        }
+        endDelete(fixUp(depth, h.left));
+    }
+
+    @Override
+    public synchronized void delete(Key key) {
+        if (!contains(key)) return;
+        int depth = 0;
+        Node h = beginDelete();
+        while (true) {
+            if (key.compareTo(h.key) < 0) {
+                if (!isRed(h.left) && !isRed(h.left.left)) h = moveRedLeft(h);
+                path[depth] = h;
+                less[depth++] = true;
+                h = own(h.left);
+                continue;
+            }
+            if (isRed(h.left)) h = rotateRight(h);
+            if (key.compareTo(h.key) == 0 && h.right == null) {
+                endDelete(fixUp(depth, null));
+                return;
+            }
+            if (!isRed(h.right) && !isRed(h.right.left)) h = moveRedRight(h);
+            path[depth] = h;
+            less[depth++] = false;
+            if (key.compareTo(h.key) == 0) {
+                Node x = h.right;
+                while (x.left != null) x = x.left;
+                h.key = x.key;
+                h.value = x.value;
+                endDelete(deleteMin(depth, h.right));
+                return;
+            }
+            h = own(h.right);
+        }
+    }
+
+    public Key min() {
+        Node x = root;
+        if (x == null) return null;
+        while (x.left != null) x = x.left;
+        return x.key;
+    }
+
+    public Key max() {
+        Node x = root;
+        if (x == null) return null;
+        while (x.right != null) x = x.right;
+        return x.key;
+    }
+
+    public Key floor(Key key) {
+        Node x = root;
+        Node t = null;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) return x.key;
+            if (cmp < 0) {
+                x = x.left;
+            } else {
+                t = x;
+                x = x.right;
+            }
+        }
+        if (t == null) return null;
+        return t.key;
+    }
+
+    public Key ceiling(Key key) {
+        Node x = root;
+        Node t = null;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) return x.key;
+            if (cmp > 0) {
+                x = x.right;
+            } else {
+                t = x;
+                x = x.left;
+            }
+        }
+        if (t == null) return null;
+        return t.key;
+    }
+
+    public int rank(Key key) {
+        return rank(root, key);
+    }
+
+    private int rank(Node x, Key key) {
+        int r = 0;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0) {
+                x = x.left;
+            } else if (cmp > 0) {
+                r += size(x.left) + 1;
+                x = x.right;
+            } else {
+                return r + size(x.left);
+            }
+        }
+        return r;
+    }
+
+    public Key select(int k) {
+        Node x = root;
+        if (k < 0 || k >= size(x)) return null;
+        while (true) {
+            int t = size(x.left);
+            if (t > k) {
+                x = x.left;
+            } else if (t < k) {
+                k = k - t - 1;
+                x = x.right;
+            } else {
+                return x.key;
+            }
+        }
+    }
+
+    /**
+     * 两次rank()必须在同一个版本上进行
+     */
+    public int size(Key lo, Key hi) {
+        if (lo.compareTo(hi) > 0) return 0;
+        Node x = root;
+        int n = rank(x, hi) - rank(x, lo);
+        for (Node t = x; t != null; ) {
+            int cmp = hi.compareTo(t.key);
+            if (cmp == 0) return n + 1;
+            t = cmp < 0 ? t.left : t.right;
+        }
+        return n;
+    }
+
+    @Override
+    public Iterable<Key> keys() {
+        Node x = root;
+        if (x == null) return new LinkedList<>();
+        Node lo = x, hi = x;
+        while (lo.left != null) lo = lo.left;
+        while (hi.right != null) hi = hi.right;
+        return keys(x, lo.key, hi.key);
+    }
+
+    /**
+     * 返回的Iterable固定在调用时的版本上，之后的修改对它不可见，可以在写者继续修改的同时不加锁地遍历
+     */
+    public Iterable<Key> keys(Key lo, Key hi) {
+        return keys(root, lo, hi);
+    }
+
+    private Iterable<Key> keys(Node root, Key lo, Key hi) {
+        return () -> new RangeIterator(root, lo, hi);
+    }
+
+    public void forEachInRange(Key lo, Key hi, BiConsumer<? super Key, ? super Value> action) {
+        RangeIterator it = new RangeIterator(root, lo, hi);
+        while (it.hasNext()) {
+            Node x = it.nextNode();
+            action.accept(x.key, x.value);
+        }
+    }
+
+    private class RangeIterator implements Iterator<Key> {
+        @SuppressWarnings("unchecked")
+        private final Node[] stack = (Node[]) new PersistentRedBlackBST.Node[MAX_HEIGHT];
+        private int top;
+        private final Key hi;
+
+        RangeIterator(Node x, Key lo, Key hi) {
+            this.hi = hi;
+            while (x != null) {
+                int cmp = lo.compareTo(x.key);
+                if (cmp < 0) {
+                    stack[top++] = x;
+                    x = x.left;
+                } else if (cmp == 0) {
+                    stack[top++] = x;
+                    break;
+                } else {
+                    x = x.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return top > 0 && hi.compareTo(stack[top - 1].key) >= 0;
+        }
+
+        @Override
+        public Key next() {
+            return nextNode().key;
+        }
+
+        Node nextNode() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Node x = stack[--top];
+            stack[top] = null;
+            for (Node t = x.right; t != null; t = t.left) {
+                stack[top++] = t;
+            }
+            return x;
+        }
+    }
+}
@@ -1,6 +1,13 @@
 package yadong0305.algorithms.ST;
 
-import com.sun.org.apache.regexp.internal.RE;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
 
 /**
  * 一棵2-3查找树或为一棵空树，或由以下结点组成：
@@ -21,11 +28,24 @@ import com.sun.org.apache.regexp.internal.RE;
  * @param <Key>
  * @param <Value>
  */
-public class RedBlackBST<Key extends Comparable<Key>, Value> extends ST<Key, Value> {
+public class RedBlackBST<Key extends Comparable<Key>, Value> extends OrderedST<Key, Value> {
 
     private Node root;
     private static final boolean RED = true;
     private static final boolean BLACK = false;
+    private static final int MAX_HEIGHT = 64;
+
+    /**
+     * put()向下查找时经过的结点及在每个结点处是否走向了左子树
+     */
+    @SuppressWarnings("unchecked")
+    private final Node[] path = (Node[]) new RedBlackBST.Node[MAX_HEIGHT];
+    private final boolean[] less = new boolean[MAX_HEIGHT];
+
+    /**
+     * 值的幺半群，为null时不维护聚合值
+     */
+    private final Monoid<Value> monoid;
 
     private class Node {
         Key key;    // 键
@@ -33,16 +53,129 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> extends ST<Key, Val
         Node left;    // 左子树
         Node right;    // 右子树
         int N;    // 这棵子树中的结点总数
+        Value agg;    // 这棵子树中所有的值按键的顺序合并的结果（只在monoid不为null时维护）
         boolean color;    // 由其父结点指向它的链接的颜色
 
         Node(Key key, Value value, int N, boolean color) {
             this.key = key;
             this.value = value;
             this.N = N;
+            this.agg = value;    // 叶结点的聚合值就是它自己的值
             this.color = color;
         }
     }
 
+    public RedBlackBST() {
+        this(null);
+    }
+
+    /**
+     * 范围聚合：和结点计数器N一样，每个结点再保存一个聚合值agg = left.agg ⊕ value ⊕ right.agg（⊕是monoid的combine()）。
+     * N在哪里重新计算agg就在哪里重新计算（balance()和两个旋转），插入和删除只改变查找路径上的结点，代价仍然是对数级别的；
+     * 只有put()命中时值变了而树的结构没有变，需要额外沿查找路径向上重新计算一次。
+     * 之后aggregate(lo, hi)不需要遍历范围内的每个键，见aggregate()
+     */
+    public RedBlackBST(Monoid<Value> monoid) {
+        this.monoid = monoid;
+    }
+
+    /**
+     * 批量装载：用严格递增的键直接构造一棵红黑树，而不是逐个put()。
+     * 一棵黑色高度为b的2-3树含有的键的数量在2^b-1（全部是2-结点）和3^b-1（全部是3-结点）之间。取b = ⌊lg(N+1)⌋，则2^b-1 <= N <= 3^b-1，
+     * 然后自顶向下地决定每个结点是2-结点还是3-结点：
+     *   如果剩下的键可以平均分给两棵高度为b-1的子树，根结点就是一个2-结点（黑色结点）；
+     *   否则根结点是一个3-结点，三棵子树平均分配剩下的键，较小的键用红色的左链接连接在较大的键下面。
+     * 每棵子树的键的数量都在高度b-1所允许的范围之内，因此所有空链接到根结点的黑链接数量相同，也不存在红色的右链接和连续的红链接。
+     * 每个键只访问一次，计数器在构造时直接算出，总时间是线性的。
+     */
+    public static <Key extends Comparable<Key>, Value> RedBlackBST<Key, Value> fromSorted(Key[] keys, Value[] values) {
+        BulkLoad.checkLengths(keys, values);
+        BulkLoad.checkSorted(keys, keys.length);
+        RedBlackBST<Key, Value> st = new RedBlackBST<>();
+        st.root = st.build(keys, values, 0, keys.length);
+        return st;
+    }
+
+    /**
+     * 批量装载任意顺序的键：先排序并去除重复的键，再用fromSorted()的方法构造
+     */
+    public static <Key extends Comparable<Key>, Value> RedBlackBST<Key, Value> fromUnsorted(Key[] keys, Value[] values) {
+        BulkLoad.checkLengths(keys, values);
+        keys = keys.clone();
+        values = values.clone();
+        int n = BulkLoad.sortAndDedupe(keys, values);
+        RedBlackBST<Key, Value> st = new RedBlackBST<>();
+        st.root = st.build(keys, values, 0, n);
+        return st;
+    }
+
+    /**
+     * 并行的批量装载：在ForkJoinPool中用BulkLoad.parallelSortAndDedupe()排序，然后并行地构造：
+     *   每个结点的几棵子树由互不相交的键区间构造，互相独立，含有不少于BulkLoad.PARALLEL_BUILD个键时把除最后一棵以外的子树fork出去，
+     *   当前线程构造最后一棵子树后再join，结果和fromUnsorted()完全相同
+     */
+    public static <Key extends Comparable<Key>, Value> RedBlackBST<Key, Value> parallelFromUnsorted(Key[] keys, Value[] values) {
+        BulkLoad.checkLengths(keys, values);
+        Key[] k = keys.clone();
+        Value[] v = values.clone();
+        int n = BulkLoad.parallelSortAndDedupe(k, v);
+        RedBlackBST<Key, Value> st = new RedBlackBST<>();
+        st.root = ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> st.build(k, v, 0, n)));
+        return st;
+    }
+
+    private Node build(Key[] keys, Value[] values, int lo, int hi) {
+        int n = hi - lo;
+        return build(keys, values, lo, hi, 31 - Integer.numberOfLeadingZeros(n + 1));
+    }
+
+    /**
+     * 用keys[lo..hi)构造一棵黑色高度为b的红黑树，返回它的（黑色）根结点
+     */
+    private Node build(Key[] keys, Value[] values, int lo, int hi, int b) {
+        int n = hi - lo;
+        if (n == 0) return null;
+        long max = 1;    // 高度为b-1的子树最多含有的键的数量
+        for (int i = 1; i < b; i++) max *= 3;
+        max -= 1;
+        if (n - 1 <= 2 * max) {
+            int mid = lo + (n - 1) / 2;
+            Node x = new Node(keys[mid], values[mid], n, BLACK);
+            if (n >= BulkLoad.PARALLEL_BUILD && ForkJoinTask.inForkJoinPool()) {
+                ForkJoinTask<Node> left = ForkJoinTask.adapt(() -> build(keys, values, lo, mid, b - 1)).fork();
+                x.right = build(keys, values, mid + 1, hi, b - 1);
+                x.left = left.join();
+            } else {
+                x.left = build(keys, values, lo, mid, b - 1);
+                x.right = build(keys, values, mid + 1, hi, b - 1);
+            }
+            if (monoid != null) pull(x);
+            return x;
+        }
+        int rest = n - 2;
+        int small = lo + rest / 3;
+        int large = small + 1 + (rest - rest / 3) / 2;
+        Node l = new Node(keys[small], values[small], large - lo, RED);
+        Node x = new Node(keys[large], values[large], n, BLACK);
+        x.left = l;
+        if (n >= BulkLoad.PARALLEL_BUILD && ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask<Node> ll = ForkJoinTask.adapt(() -> build(keys, values, lo, small, b - 1)).fork();
+            ForkJoinTask<Node> lr = ForkJoinTask.adapt(() -> build(keys, values, small + 1, large, b - 1)).fork();
+            x.right = build(keys, values, large + 1, hi, b - 1);
+            l.right = lr.join();
+            l.left = ll.join();
+        } else {
+            l.left = build(keys, values, lo, small, b - 1);
+            l.right = build(keys, values, small + 1, large, b - 1);
+            x.right = build(keys, values, large + 1, hi, b - 1);
+        }
+        if (monoid != null) {
+            pull(l);
+            pull(x);
+        }
+        return x;
+    }
+
     /**
      * 测试一个结点和它的父结点之间的链接的颜色
      * @param x
@@ -62,6 +195,18 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> extends ST<Key, Val
         return x.N;
     }
 
+    private Value agg(Node x) {
+        if (x == null) return monoid.identity();
+        return x.agg;
+    }
+
+    /**
+     * 用子结点的聚合值重新计算x的聚合值
+     */
+    private void pull(Node x) {
+        x.agg = monoid.combine(monoid.combine(agg(x.left), x.value), agg(x.right));
+    }
+
     /**
      * 要在2-3查找树中插入一个新结点，先进行一次未命中的查找，
      *   如果未命中的查找结束于一个2-结点，只要把这个2-结点替换为一个3-结点，将要插入的键保存在其中即可；
@@ -90,26 +235,64 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> extends ST<Key, Val
      *   如果右子结点是红色的而左子结点是黑色的，进行左旋转；
      *   如果左子结点是红色的且它的左子结点也是红色的，进行右旋转；
      *   如果左右子结点均为红色，进行颜色转换。
+     *
+     * 这里不使用递归，而是把向下查找时经过的结点和方向记录在path[]和less[]中，向上爬时按相反的顺序取出：
+     *   如果查找命中，只需要更新值，树的结构没有变化，只需要清空path[]中记录的结点（有聚合值时同时沿路径更新聚合值）；
+     *   否则在路径末端挂上新的红色结点，然后从下往上对路径上的每个结点重置指向子树的链接、完成上面三种局部变换并更新计数器。
+     * 红黑树的高度不超过2lgN，因此路径数组的长度是有界的。
      * @param key
      * @param value
      */
     @Override
     public void put(Key key, Value value) {
-        root = put(root, key, value);
+        int depth = 0;
+        Node x = root;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) {
+                if (STMetrics.ENABLED) STMetrics.search(depth + 1);
+                x.value = value;
+                if (monoid != null) pull(x);
+                while (depth > 0) {
+                    Node parent = path[--depth];
+                    path[depth] = null;
+                    if (monoid != null) pull(parent);
+                }
+                return;
+            }
+            path[depth] = x;
+            less[depth++] = cmp < 0;
+            x = cmp < 0 ? x.left : x.right;
+        }
+        if (STMetrics.ENABLED) STMetrics.search(depth);
+        root = fixUp(depth, new Node(key, value, 1, RED));
         root.color = BLACK;
     }
 
-    private Node put(Node h, Key key, Value value) {
-        if (h == null) return new Node(key, value, 1, RED);
-        int cmp = key.compareTo(h.key);
-        if (cmp < 0) h.left = put(h.left, key, value);
-        else if (cmp > 0) h.right = put(h.right, key, value);
-        else h.value = value;
+    /**
+     * 用h替换path[0..depth)所记录的路径末端的子树，然后自下而上地重置路径上每个父结点指向子结点的链接并完成局部变换，返回新的根结点
+     */
+    private Node fixUp(int depth, Node h) {
+        while (depth > 0) {
+            Node parent = path[--depth];
+            path[depth] = null;
+            if (less[depth]) parent.left = h;
+            else parent.right = h;
+            h = balance(parent);
+        }
+        return h;
+    }
+
+    /**
+     * 向上爬时在每个结点中顺序完成的局部变换，返回变换后这棵子树的根结点
+     */
+    private Node balance(Node h) {
         if (isRed(h.right) && !isRed(h.left)) h = rotateLeft(h);
         if (isRed(h.left) && isRed(h.left.left)) h = rotateRight(h);
         if (isRed(h.left) && isRed(h.right)) flipColors(h);
 
         h.N = size(h.left) + size(h.right) + 1;
+        if (monoid != null) pull(h);
         return h;
     }
 
@@ -118,6 +301,7 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> extends ST<Key, Val
      * rotateLeft()接收一条指向红黑树中的某个结点的链接作为参数，假设被指向的结点的右链接是红色的，这个方法会对树进行必要的调整（将用两个键中的较小者作为根结点变为较大者作为根结点）并返回一个指向包含同一组键的子树且其左链接为红色的根结点的链接。
      */
     private Node rotateLeft(Node h) {
+        if (STMetrics.ENABLED) STMetrics.rotation();
         Node x = h.right;
         h.right = x.left;
         x.left = h;
@@ -125,6 +309,10 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> extends ST<Key, Val
         h.color = RED;
         x.N = h.N;
         h.N = size(h.left) + size(h.right) + 1;
+        if (monoid != null) {
+            x.agg = h.agg;
+            pull(h);
+        }
         return x;
     }
 
@@ -134,6 +322,7 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> extends ST<Key, Val
      * @return
      */
     private Node rotateRight(Node h) {
+        if (STMetrics.ENABLED) STMetrics.rotation();
         Node x = h.left;
         h.left = x.right;
         x.right = h;
@@ -141,16 +330,21 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> extends ST<Key, Val
         h.color = RED;
         x.N = h.N;
         h.N = size(h.left) + size(h.right) + 1;
+        if (monoid != null) {
+            x.agg = h.agg;
+            pull(h);
+        }
         return x;
     }
 
     /**
      * flipColors()用来转换一个结点的两个红色子结点的颜色。将子结点的颜色由红变黑，将父结点的颜色由黑变红
+     * 删除操作需要反过来把父结点的红色送给两个子结点，因此这里对三个结点的颜色取反，两个方向都适用
      */
     private void flipColors(Node h) {
-        h.color = RED;
-        h.left.color = BLACK;
-        h.right.color =BLACK;
+        h.color = !h.color;
+        h.left.color = !h.left.color;
+        h.right.color = !h.right.color;
     }
 
     /**
@@ -161,26 +355,642 @@ public class RedBlackBST<Key extends Comparable<Key>, Value> extends ST<Key, Val
      */
     @Override
     public Value get(Key key) {
-        return null;
+        int depth = 0;
+        Node x = root;
+        while (x != null) {
+            depth++;
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0) x = x.left;
+            else if (cmp > 0) x = x.right;
+            else break;
+        }
+        if (STMetrics.ENABLED) STMetrics.search(depth);
+        return x == null ? null : x.value;
     }
 
     @Override
-    public void delete(Key key) {
-
+    public boolean contains(Key key) {
+        return get(key) != null;
     }
 
     @Override
-    public boolean contains(Key key) {
-        return false;
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * 删除操作：
+     *   从2-3树底部的3-结点中删除键是很简单的，但从2-结点中删除一个键会留下一个空结点，破坏树的完美平衡性。
+     *   因此沿着查找路径向下的过程中进行变换，保证当前结点不是2-结点（可能是3-结点，也可能是临时的4-结点），到达树底时就可以直接删除键，再沿路径向上分解所有临时的4-结点。
+     *
+     * 删除最小键时，如果根结点的两个子结点都是2-结点，可以直接将这三个结点变成一个4-结点（根结点的链接设为红色）；否则需要保证根结点的左子结点不是2-结点。向下的过程中保证当前结点的左子结点不是2-结点：
+     *   如果当前结点的左子结点不是2-结点，完成；
+     *   如果当前结点的左子结点是2-结点而它的亲兄弟结点不是2-结点，将左子结点的兄弟结点中的一个键移动到左子结点中（moveRedLeft()）；
+     *   如果当前结点的左子结点和它的亲兄弟结点都是2-结点，将左子结点、父结点中的最小键和左子结点最近的兄弟结点合并为一个4-结点（同样由moveRedLeft()完成），使父结点由3-结点变为2-结点或者由4-结点变为3-结点。
+     * 删除最大键与之对称，只是红链接都是左链接，向右走之前需要先把左边的红链接旋转到右边（moveRedRight()）。
+     * 删除任意键时，在查找路径上进行和删除最小键相同的变换；如果被查找的键在树的底部，可以直接删除它；否则将它和它的后继结点交换（和二叉查找树一样），问题就变成了在一棵根结点不是2-结点的子树中删除最小键。
+     *
+     * 和put()一样，向下走时把变换后的结点和方向记录在path[]中，到达树底后用fixUp()沿路径向上恢复红黑树的性质并更新计数器，避免递归。
+     */
+    public void deleteMin() {
+        if (isEmpty()) return;
+        if (!isRed(root.left) && !isRed(root.right)) root.color = RED;
+        root = deleteMin(0, root);
+        if (!isEmpty()) root.color = BLACK;
+    }
+
+    /**
+     * 删除以h为根的子树中的最小键，path[0..depth)记录了从根结点到h的路径，返回整棵树新的根结点
+     */
+    private Node deleteMin(int depth, Node h) {
+        while (h.left != null) {
+            if (!isRed(h.left) && !isRed(h.left.left)) h = moveRedLeft(h);
+            path[depth] = h;
+            less[depth++] = true;
+            h = h.left;
+        }
+        return fixUp(depth, null);
+    }
+
+    public void deleteMax() {
+        if (isEmpty()) return;
+        if (!isRed(root.left) && !isRed(root.right)) root.color = RED;
+        int depth = 0;
+        Node h = root;
+        while (true) {
+            if (isRed(h.left)) h = rotateRight(h);
+            if (h.right == null) break;
+            if (!isRed(h.right) && !isRed(h.right.left)) h = moveRedRight(h);
+            path[depth] = h;
+            less[depth++] = false;
+            h = h.right;
+        }
+        root = fixUp(depth, h.left);
+        if (!isEmpty()) root.color = BLACK;
     }
 
     @Override
-    public boolean isEmpty() {
-        return false;
+    public void delete(Key key) {
+        if (!contains(key)) return;
+        if (!isRed(root.left) && !isRed(root.right)) root.color = RED;
+        int depth = 0;
+        Node h = root;
+        while (true) {
+            if (key.compareTo(h.key) < 0) {
+                if (!isRed(h.left) && !isRed(h.left.left)) h = moveRedLeft(h);
+                path[depth] = h;
+                less[depth++] = true;
+                h = h.left;
+                continue;
+            }
+            if (isRed(h.left)) h = rotateRight(h);
+            if (key.compareTo(h.key) == 0 && h.right == null) {
+                root = fixUp(depth, null);
+                break;
+            }
+            if (!isRed(h.right) && !isRed(h.right.left)) h = moveRedRight(h);
+            path[depth] = h;
+            less[depth++] = false;
+            if (key.compareTo(h.key) == 0) {
+                Node x = min(h.right);
+                h.key = x.key;
+                h.value = x.value;
+                root = deleteMin(depth, h.right);
+                break;
+            }
+            h = h.right;
+        }
+        if (!isEmpty()) root.color = BLACK;
+    }
+
+    /**
+     * 假设结点h为红色，h.left和h.left.left都是黑色，将h.left或者h.left的子结点之一变红
+     */
+    private Node moveRedLeft(Node h) {
+        flipColors(h);
+        if (isRed(h.right.left)) {
+            h.right = rotateRight(h.right);
+            h = rotateLeft(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    /**
+     * 假设结点h为红色，h.right和h.right.left都是黑色，将h.right或者h.right的子结点之一变红
+     */
+    private Node moveRedRight(Node h) {
+        flipColors(h);
+        if (isRed(h.left.left)) {
+            h = rotateRight(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    /**
+     * 红黑树是一棵二叉查找树，二叉查找树中的有序性相关的操作（min()、max()、floor()、ceiling()、rank()、select()和范围查找）都可以直接使用。
+     * 因为树的高度不超过2lgN，这些操作在最坏情况下都是对数级别的。
+     */
+    public Key min() {
+        if (isEmpty()) return null;
+        return min(root).key;
+    }
+
+    private Node min(Node x) {
+        while (x.left != null) x = x.left;
+        return x;
+    }
+
+    public Key max() {
+        if (isEmpty()) return null;
+        Node x = root;
+        while (x.right != null) x = x.right;
+        return x.key;
+    }
+
+    public Key floor(Key key) {
+        Node x = root;
+        Node t = null;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) return x.key;
+            if (cmp < 0) {
+                x = x.left;
+            } else {
+                t = x;
+                x = x.right;
+            }
+        }
+        if (t == null) return null;
+        return t.key;
+    }
+
+    public Key ceiling(Key key) {
+        Node x = root;
+        Node t = null;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) return x.key;
+            if (cmp > 0) {
+                x = x.right;
+            } else {
+                t = x;
+                x = x.left;
+            }
+        }
+        if (t == null) return null;
+        return t.key;
+    }
+
+    /**
+     * 如果给定的键和根结点的键相等，返回左子树中的结点总数t；如果给定的键小于根结点，返回该键在左子树中的排名；如果给定的键大于根结点，返回t+1（根结点）加上它在右子树中的排名
+     */
+    public int rank(Key key) {
+        int r = 0;
+        Node x = root;
+        while (x != null) {
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0) {
+                x = x.left;
+            } else if (cmp > 0) {
+                r += size(x.left) + 1;
+                x = x.right;
+            } else {
+                return r + size(x.left);
+            }
+        }
+        return r;
+    }
+
+    public Key select(int k) {
+        if (k < 0 || k >= size()) return null;
+        Node x = root;
+        while (true) {
+            int t = size(x.left);
+            if (t > k) {
+                x = x.left;
+            } else if (t < k) {
+                k = k - t - 1;
+                x = x.right;
+            } else {
+                return x.key;
+            }
+        }
+    }
+
+    public int size(Key lo, Key hi) {
+        if (lo.compareTo(hi) > 0) return 0;
+        if (contains(hi)) return rank(hi) - rank(lo) + 1;
+        return rank(hi) - rank(lo);
+    }
+
+    /**
+     * [lo..hi]之间所有的值按键的顺序合并的结果，范围为空时返回单位元。
+     * 先从根结点向下找到第一个键在[lo..hi]之间的结点x（两条查找路径在这里分开），x的值一定在结果中，然后：
+     *   在x的左子树中沿着lo的查找路径向下，每遇到一个键不小于lo的结点，它和它的整棵右子树都在范围内，把它们合并到左边的部分的前面；
+     *   在x的右子树中沿着hi的查找路径向下，每遇到一个键不大于hi的结点，它的整棵左子树和它都在范围内，把它们合并到右边的部分的后面。
+     * 两条路径的长度都不超过树高，整棵子树的贡献直接取结点中的聚合值，因此只需要O(lgN)次combine()，和范围内的键的数量无关
+     */
+    public Value aggregate(Key lo, Key hi) {
+        if (monoid == null) throw new IllegalStateException("no monoid");
+        if (lo.compareTo(hi) > 0) return monoid.identity();
+        Node x = root;
+        while (x != null) {
+            if (hi.compareTo(x.key) < 0) x = x.left;
+            else if (lo.compareTo(x.key) > 0) x = x.right;
+            else break;
+        }
+        if (x == null) return monoid.identity();
+        Value left = monoid.identity();
+        for (Node t = x.left; t != null; ) {
+            int cmp = lo.compareTo(t.key);
+            if (cmp <= 0) {
+                left = monoid.combine(monoid.combine(t.value, agg(t.right)), left);
+                if (cmp == 0) break;
+                t = t.left;
+            } else {
+                t = t.right;
+            }
+        }
+        Value right = monoid.identity();
+        for (Node t = x.right; t != null; ) {
+            int cmp = hi.compareTo(t.key);
+            if (cmp >= 0) {
+                right = monoid.combine(right, monoid.combine(agg(t.left), t.value));
+                if (cmp == 0) break;
+                t = t.right;
+            } else {
+                t = t.left;
+            }
+        }
+        return monoid.combine(monoid.combine(left, x.value), right);
+    }
+
+    /**
+     * 整张表所有的值按键的顺序合并的结果
+     */
+    public Value aggregate() {
+        if (monoid == null) throw new IllegalStateException("no monoid");
+        return agg(root);
     }
 
     @Override
     public Iterable<Key> keys() {
-        return null;
+        if (isEmpty()) return new LinkedList<>();
+        return keys(min(), max());
+    }
+
+    /**
+     * 返回的Iterable每次迭代都创建一个中序遍历的游标，而不是把所有的键放进一个队列。
+     * 游标用一个显式的栈代替递归，栈中只保存从根结点到当前结点的路径上还没有访问的结点，因为树高不超过2lgN，栈的大小是有界的
+     */
+    public Iterable<Key> keys(Key lo, Key hi) {
+        return () -> new RangeIterator(lo, hi);
+    }
+
+    /**
+     * 对[lo..hi]之间的每个键值对按顺序调用action
+     */
+    public void forEachInRange(Key lo, Key hi, BiConsumer<? super Key, ? super Value> action) {
+        RangeIterator it = new RangeIterator(lo, hi);
+        while (it.hasNext()) {
+            Node x = it.nextNode();
+            action.accept(x.key, x.value);
+        }
+    }
+
+    private class RangeIterator implements Iterator<Key> {
+        @SuppressWarnings("unchecked")
+        private final Node[] stack = (Node[]) new RedBlackBST.Node[MAX_HEIGHT];
+        private int top;
+        private final Key hi;
+
+        RangeIterator(Key lo, Key hi) {
+            this.hi = hi;
+            Node x = root;
+            while (x != null) {
+                int cmp = lo.compareTo(x.key);
+                if (cmp < 0) {
+                    stack[top++] = x;
+                    x = x.left;
+                } else if (cmp == 0) {
+                    stack[top++] = x;
+                    break;
+                } else {
+                    x = x.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return top > 0 && hi.compareTo(stack[top - 1].key) >= 0;
+        }
+
+        @Override
+        public Key next() {
+            return nextNode().key;
+        }
+
+        Node nextNode() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Node x = stack[--top];
+            stack[top] = null;
+            for (Node t = x.right; t != null; t = t.left) {
+                stack[top++] = t;
+            }
+            return x;
+        }
+    }
+
+    /**
+     * 基于join的集合操作：
+     *   join(L, m, R)：L中所有的键都小于结点m的键，R中所有的键都大于m的键，把它们连接成一棵红黑树。设L的黑色高度不低于R，
+     *     沿着L的右边缘（右链接都是黑色的）向下，每一步黑色高度减1，找到黑色高度和R相同的黑色结点c，用红色的m代替c，c和R作为m的左右子树。
+     *     这和插入一个新结点的情况完全相同：路径上所有空链接到根结点的黑链接数量没有变化，只可能出现红色的右链接或者连续的红链接，
+     *     只需要用balance()沿这段路径向上修复，代价是两棵树黑色高度的差。R更高时沿R的左边缘向下，是对称的。
+     *   split(T, k)：沿着k的查找路径向下，路径左边的子树和路径上小于k的结点依次join成左边的树，右边同理。
+     *     这些join的代价是相邻的子树黑色高度的差，加起来是O(lgN)。
+     *   union(A, B)：用A的根结点x的键分割B，A的左子树和B的左半部分、A的右子树和B的右半部分分别递归地合并，最后用x把两半join起来；
+     *     intersection()和difference()的结构相同，x不在结果中时用两棵树的join（取出左边的树中最大的结点作为m）。
+     *     总代价是O(m lg(n/m + 1))（m <= n是两棵树的大小），两半的递归是互相独立的，可以在ForkJoinPool中并行执行。
+     * 所有的操作都直接重新连接原来的结点，不创建新的结点；参与操作的两棵树都被消耗掉了（结果留在this中，that变为空表）。
+     * 递归时黑色高度和子树一起向下传递（Tree），不需要在结点中保存，也不需要每次重新计算。
+     * 两棵树必须都有或者都没有幺半群，并且计算的是同一种聚合（that的子树被直接重用，子树中保存的聚合值不会重新计算），
+     * 重新连接的结点的聚合值和计数器一样在balance()中重新计算
+     */
+    private final class Tree {
+        final Node root;    // 黑色或者null
+        final int height;    // 黑色高度：从根结点到空链接的路径上黑色结点的数量
+
+        Tree(Node root, int height) {
+            this.root = root;
+            this.height = height;
+        }
+    }
+
+    private final class Split {
+        final Tree left;
+        final Node mid;
+        final Tree right;
+
+        Split(Tree left, Node mid, Tree right) {
+            this.left = left;
+            this.mid = mid;
+            this.right = right;
+        }
+    }
+
+    /**
+     * 把黑色高度为h（计入x本身）的子树x作为一棵独立的树：红色的根结点变为黑色，黑色高度加1
+     */
+    private Tree tree(Node x, int h) {
+        if (isRed(x)) {
+            x.color = BLACK;
+            h++;
+        }
+        return new Tree(x, h);
+    }
+
+    private Tree tree() {
+        int h = 0;
+        for (Node x = root; x != null; x = x.right) h++;
+        return new Tree(root, h);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Tree join(Tree l, Node m, Tree r) {
+        m.color = RED;
+        if (l.height == r.height) {
+            m.left = l.root;
+            m.right = r.root;
+            m.color = BLACK;
+            balance(m);
+            return new Tree(m, l.height + 1);
+        }
+        Node[] path = (Node[]) new RedBlackBST.Node[2 * Math.abs(l.height - r.height) + 2];
+        int depth = 0;
+        Node x;
+        if (l.height > r.height) {
+            Node c = l.root;
+            for (int h = l.height; h > r.height; h--) {
+                path[depth++] = c;
+                c = c.right;
+            }
+            m.left = c;
+            m.right = r.root;
+            x = balance(m);
+            while (depth > 0) {
+                Node parent = path[--depth];
+                parent.right = x;
+                x = balance(parent);
+            }
+        } else {
+            Node c = r.root;
+            int h = r.height;
+            while (isRed(c) || h > l.height) {
+                path[depth++] = c;
+                if (!isRed(c)) h--;
+                c = c.left;
+            }
+            m.left = l.root;
+            m.right = c;
+            x = balance(m);
+            while (depth > 0) {
+                Node parent = path[--depth];
+                parent.left = x;
+                x = balance(parent);
+            }
+        }
+        return tree(x, Math.max(l.height, r.height));
+    }
+
+    /**
+     * 没有中间结点的join：取出l中最大的结点作为中间结点
+     */
+    private Tree join(Tree l, Tree r) {
+        if (l.root == null) return r;
+        if (r.root == null) return l;
+        Split s = splitLast(l);
+        return join(s.left, s.mid, r);
+    }
+
+    /**
+     * 分割为小于key的部分、含有key的结点（不存在时为null）和大于key的部分
+     */
+    private Split split(Tree t, Key key) {
+        if (t.root == null) return new Split(t, null, t);
+        Node x = t.root;
+        Tree l = tree(x.left, t.height - 1);
+        Tree r = tree(x.right, t.height - 1);
+        int cmp = key.compareTo(x.key);
+        if (cmp == 0) return new Split(l, x, r);
+        if (cmp < 0) {
+            Split s = split(l, key);
+            return new Split(s.left, s.mid, join(s.right, x, r));
+        }
+        Split s = split(r, key);
+        return new Split(join(l, x, s.left), s.mid, s.right);
+    }
+
+    private Split splitLast(Tree t) {
+        Node x = t.root;
+        Tree l = tree(x.left, t.height - 1);
+        Tree r = tree(x.right, t.height - 1);
+        if (r.root == null) return new Split(l, x, r);
+        Split s = splitLast(r);
+        return new Split(join(l, x, s.left), s.mid, s.right);
+    }
+
+    /**
+     * 两棵子树足够大时把左半部分fork出去，当前线程计算右半部分
+     */
+    @SuppressWarnings("unchecked")
+    private Tree[] halves(Callable<Tree> left, Callable<Tree> right, boolean parallel, int n) throws Exception {
+        if (parallel && n >= BulkLoad.PARALLEL_BUILD) {
+            ForkJoinTask<Tree> l = ForkJoinTask.adapt(left).fork();
+            Tree r = right.call();
+            return (Tree[]) new RedBlackBST.Tree[]{l.join(), r};
+        }
+        return (Tree[]) new RedBlackBST.Tree[]{left.call(), right.call()};
+    }
+
+    private Tree union(Tree a, Tree b, boolean parallel) throws Exception {
+        if (a.root == null) return b;
+        if (b.root == null) return a;
+        int n = a.root.N + b.root.N;
+        Node x = a.root;
+        Tree al = tree(x.left, a.height - 1);
+        Tree ar = tree(x.right, a.height - 1);
+        Split s = split(b, x.key);
+        if (s.mid != null) x.value = s.mid.value;
+        Tree[] t = halves(() -> union(al, s.left, parallel), () -> union(ar, s.right, parallel), parallel, n);
+        return join(t[0], x, t[1]);
+    }
+
+    private Tree intersection(Tree a, Tree b, boolean parallel) throws Exception {
+        if (a.root == null) return a;
+        if (b.root == null) return b;
+        int n = a.root.N + b.root.N;
+        Node x = a.root;
+        Tree al = tree(x.left, a.height - 1);
+        Tree ar = tree(x.right, a.height - 1);
+        Split s = split(b, x.key);
+        Tree[] t = halves(() -> intersection(al, s.left, parallel), () -> intersection(ar, s.right, parallel), parallel, n);
+        if (s.mid == null) return join(t[0], t[1]);
+        return join(t[0], x, t[1]);
+    }
+
+    private Tree difference(Tree a, Tree b, boolean parallel) throws Exception {
+        if (a.root == null || b.root == null) return a;
+        int n = a.root.N + b.root.N;
+        Node y = b.root;
+        Tree bl = tree(y.left, b.height - 1);
+        Tree br = tree(y.right, b.height - 1);
+        Split s = split(a, y.key);
+        Tree[] t = halves(() -> difference(s.left, bl, parallel), () -> difference(s.right, br, parallel), parallel, n);
+        return join(t[0], t[1]);
+    }
+
+    private interface SetOperation<T> {
+        T apply(T a, T b) throws Exception;
+    }
+
+    /**
+     * 执行一个集合操作，结果放在this中，that变为空表
+     */
+    private void combine(RedBlackBST<Key, Value> that, SetOperation<Tree> op, boolean parallel) {
+        if ((monoid == null) != (that.monoid == null) && that.root != null && root != null) throw new IllegalArgumentException("different monoids");
+        Tree a = tree();
+        Tree b = that.tree();
+        that.root = null;
+        root = null;
+        try {
+            if (parallel) root = ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> op.apply(a, b))).root;
+            else root = op.apply(a, b).root;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 把this分成两部分：小于key的键留在this中，不小于key的键放在返回的表中。代价是O(lgN)
+     */
+    public RedBlackBST<Key, Value> split(Key key) {
+        Split s = split(tree(), key);
+        RedBlackBST<Key, Value> st = new RedBlackBST<>(monoid);
+        root = s.left.root;
+        st.root = s.mid == null ? s.right.root : join(new Tree(null, 0), s.mid, s.right).root;
+        return st;
+    }
+
+    /**
+     * 把that连接到this的后面，that中所有的键都必须大于this中所有的键。代价是O(lgN)，that变为空表
+     */
+    public void join(RedBlackBST<Key, Value> that) {
+        if (that == this || that.isEmpty()) return;
+        if (!isEmpty() && max().compareTo(that.min()) >= 0) throw new IllegalArgumentException("keys not strictly ascending");
+        combine(that, this::join, false);
+    }
+
+    /**
+     * this变为两张表的并集，键在两张表中都存在时使用that中的值（和对that中的每个键值对调用put()的结果相同），that变为空表
+     */
+    public void union(RedBlackBST<Key, Value> that) {
+        if (that != this) combine(that, (a, b) -> union(a, b, false), false);
+    }
+
+    public void parallelUnion(RedBlackBST<Key, Value> that) {
+        if (that != this) combine(that, (a, b) -> union(a, b, true), true);
+    }
+
+    /**
+     * this中只留下两张表中都存在的键（值来自this），that变为空表
+     */
+    public void intersection(RedBlackBST<Key, Value> that) {
+        if (that != this) combine(that, (a, b) -> intersection(a, b, false), false);
+    }
+
+    public void parallelIntersection(RedBlackBST<Key, Value> that) {
+        if (that != this) combine(that, (a, b) -> intersection(a, b, true), true);
+    }
+
+    /**
+     * 从this中删除that中存在的所有的键，that变为空表
+     */
+    public void difference(RedBlackBST<Key, Value> that) {
+        if (that == this) root = null;
+        else combine(that, (a, b) -> difference(a, b, false), false);
+    }
+
+    public void parallelDifference(RedBlackBST<Key, Value> that) {
+        if (that == this) root = null;
+        else combine(that, (a, b) -> difference(a, b, true), true);
+    }
+
+    /**
+     * 检查红黑树的全部性质：有序性、计数器的一致性、没有红色的右链接和连续的红链接、完美黑色平衡
+     */
+    boolean check() {
+        int black = 0;
+        for (Node x = root; x != null; x = x.left) {
+            if (!isRed(x)) black++;
+        }
+        return !isRed(root) && check(root, null, null, black);
+    }
+
+    private boolean check(Node x, Key lo, Key hi, int black) {
+        if (x == null) return black == 0;
+        if (lo != null && x.key.compareTo(lo) <= 0) return false;
+        if (hi != null && x.key.compareTo(hi) >= 0) return false;
+        if (x.N != size(x.left) + size(x.right) + 1) return false;
+        if (monoid != null && !Objects.equals(x.agg, monoid.combine(monoid.combine(agg(x.left), x.value), agg(x.right)))) return false;
+        if (isRed(x.right)) return false;
+        if (isRed(x) && isRed(x.left)) return false;
+        if (!isRed(x)) black--;
+        return check(x.left, lo, x.key, black) && check(x.right, x.key, hi, black);
     }
 }
@@ -7,5 +7,11 @@ public abstract class ST<Key, Value> {
     public abstract void delete(Key key);
     public abstract boolean contains(Key key);
     public abstract boolean isEmpty();
+
+    /**
+     * 键的数量。大多数实现是常数时间的；LSMST这样同一个键可能有多个版本的实现需要归并所有的版本，是线性级别的，
+     * 只需要判断是否为空时应该使用isEmpty()
+     */
+    public abstract int size();
     public abstract Iterable<Key> keys();
 }
@@ -0,0 +1,175 @@
+package yadong0305.algorithms.ST;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 符号表内部的计数器：比较次数、访问的结点数、查找路径的最大长度（树的高度）、旋转、B树结点分裂和扩容的次数。
+ *   各个实现在热点路径上调用这里的方法之前都先检查ENABLED：
+ *     if (STMetrics.ENABLED) STMetrics.search(depth);
+ *   ENABLED是static final的常量，由启动时的系统属性-Dyadong0305.algorithms.ST.metrics=true决定，
+ *   没有打开时JIT把整个if语句连同只为它计数的局部变量一起消除，编译后的代码和没有这些调用时完全相同。
+ *   打开时计数器是LongAdder，多个线程同时计数时不会争用同一个缓存行。
+ *
+ *   计数器是全局的，所有的表共用；每次操作的次数和延迟由MetricsST和MetricsOrderedST包装单张表记录，快照同时包含两部分
+ */
+public final class STMetrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("yadong0305.algorithms.ST.metrics");
+
+    private static final LongAdder comparisons = new LongAdder();
+    private static final LongAdder visits = new LongAdder();
+    private static final LongAdder rotations = new LongAdder();
+    private static final LongAdder resizes = new LongAdder();
+    private static final LongAdder splits = new LongAdder();
+    private static final LongAccumulator height = new LongAccumulator(Math::max, 0);
+
+    private STMetrics() {
+    }
+
+    /**
+     * 一次在树中的查找：从根结点开始访问了n个结点，每个结点比较一次
+     */
+    static void search(int n) {
+        visits.add(n);
+        comparisons.add(n);
+        height.accumulate(n);
+    }
+
+    /**
+     * 一次查找访问了n个结点，比较的次数由compare()另外计数（例如B树的每个结点中要二分查找）
+     */
+    static void visit(int n) {
+        visits.add(n);
+        height.accumulate(n);
+    }
+
+    static void compare(int n) {
+        comparisons.add(n);
+    }
+
+    static void rotation() {
+        rotations.increment();
+    }
+
+    static void resize() {
+        resizes.increment();
+    }
+
+    static void split() {
+        splits.increment();
+    }
+
+    public static void reset() {
+        comparisons.reset();
+        visits.reset();
+        rotations.reset();
+        resizes.reset();
+        splits.reset();
+        height.reset();
+    }
+
+    public static Snapshot snapshot() {
+        return snapshot(Collections.emptyMap());
+    }
+
+    static Snapshot snapshot(Map<MetricsST.Operation, LatencyHistogram.Snapshot> operations) {
+        return new Snapshot(comparisons.sum(), visits.sum(), height.get(), rotations.sum(), resizes.sum(), splits.sum(), operations);
+    }
+
+    /**
+     * 某一时刻的计数器和每种操作的延迟直方图。toString()是每行一个指标的文本格式，可以直接交给Prometheus这样的监控系统抓取
+     */
+    public static class Snapshot {
+        private final long comparisons;
+        private final long visits;
+        private final long height;
+        private final long rotations;
+        private final long resizes;
+        private final long splits;
+        private final Map<MetricsST.Operation, LatencyHistogram.Snapshot> operations;
+
+        private Snapshot(long comparisons, long visits, long height, long rotations, long resizes, long splits,
+                         Map<MetricsST.Operation, LatencyHistogram.Snapshot> operations) {
+            this.comparisons = comparisons;
+            this.visits = visits;
+            this.height = height;
+            this.rotations = rotations;
+            this.resizes = resizes;
+            this.splits = splits;
+            this.operations = operations;
+        }
+
+        public long comparisons() {
+            return comparisons;
+        }
+
+        public long visits() {
+            return visits;
+        }
+
+        /**
+         * 查找路径上结点数量的最大值
+         */
+        public long height() {
+            return height;
+        }
+
+        public long rotations() {
+            return rotations;
+        }
+
+        public long resizes() {
+            return resizes;
+        }
+
+        public long splits() {
+            return splits;
+        }
+
+        /**
+         * 每种操作的延迟（单位为纳秒），不包含没有执行过的操作
+         */
+        public Map<MetricsST.Operation, LatencyHistogram.Snapshot> operations() {
+            return operations;
+        }
+
+        public long count(MetricsST.Operation op) {
+            LatencyHistogram.Snapshot s = operations.get(op);
+            return s == null ? 0 : s.count();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("st_comparisons_total ").append(comparisons).append('\n');
+            sb.append("st_node_visits_total ").append(visits).append('\n');
+            sb.append("st_height_max ").append(height).append('\n');
+            sb.append("st_rotations_total ").append(rotations).append('\n');
+            sb.append("st_resizes_total ").append(resizes).append('\n');
+            sb.append("st_node_splits_total ").append(splits).append('\n');
+            for (Map.Entry<MetricsST.Operation, LatencyHistogram.Snapshot> e : operations.entrySet()) {
+                String op = e.getKey().name().toLowerCase();
+                LatencyHistogram.Snapshot s = e.getValue();
+                sb.append("st_operations_total{op=\"").append(op).append("\"} ").append(s.count()).append('\n');
+                for (double q : new double[]{0.5, 0.9, 0.99, 0.999}) {
+                    sb.append("st_latency_nanos{op=\"").append(op).append("\",quantile=\"").append(q).append("\"} ").append(s.percentile(q)).append('\n');
+                }
+                sb.append("st_latency_nanos_max{op=\"").append(op).append("\"} ").append(s.max()).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
+    static Map<MetricsST.Operation, LatencyHistogram.Snapshot> snapshots(LatencyHistogram[] latencies) {
+        Map<MetricsST.Operation, LatencyHistogram.Snapshot> m = new EnumMap<>(MetricsST.Operation.class);
+        for (MetricsST.Operation op : MetricsST.Operation.values()) {
+            LatencyHistogram.Snapshot s = latencies[op.ordinal()].snapshot();
+            if (s.count() > 0) m.put(op, s);
+        }
+        return Collections.unmodifiableMap(m);
+    }
+}
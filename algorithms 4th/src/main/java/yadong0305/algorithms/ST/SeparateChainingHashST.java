@@ -0,0 +1,112 @@
+package yadong0305.algorithms.ST;
+
+import java.util.ArrayList;
+
+/**
+ * 基于拉链法的散列表：
+ *   散列函数能够将键转化为数组索引，散列算法的第二步是碰撞处理，也就是处理两个或多个键的散列值相同的情况。
+ *   拉链法将大小为M的数组中的每个元素指向一条链表，链表中的每个结点都存储了散列值为该元素的索引的键值对。
+ *   查找分两步：首先根据散列值找到对应的链表，然后沿着链表顺序查找相应的键。这里直接用SequentialSearchST作为链表。
+ *
+ *   在一张含有M条链表和N个键的散列表中，链表的平均长度为N/M。当平均长度超过MAX_CHAIN时将链表的数量加倍，低于MIN_CHAIN时减半，
+ *   因此无论表有多大，查找和插入的预期代价都是常数级别的。散列表不保存键的顺序，因此只实现ST中的无序操作。
+ */
+@SuppressWarnings("unchecked")
+public class SeparateChainingHashST<Key, Value> extends ST<Key, Value> {
+
+    private static final int MAX_CHAIN = 8;
+    private static final int MIN_CHAIN = 2;
+
+    private int N;    // 键值对总数
+    private int M;    // 散列表的大小，总是2的幂
+    private SequentialSearchST<Key, Value>[] st;    // 存放链表对象的数组
+
+    public SeparateChainingHashST() {
+        this(16);
+    }
+
+    public SeparateChainingHashST(int M) {
+        this.M = Integer.highestOneBit(Math.max(M, 2) - 1) << 1;
+        st = (SequentialSearchST<Key, Value>[]) new SequentialSearchST[this.M];
+        for (int i = 0; i < this.M; i++) {
+            st[i] = new SequentialSearchST<>();
+        }
+    }
+
+    /**
+     * 将hashCode()的高位混入低位后再和M-1取与，M为2的幂时不需要昂贵的取模运算，低位分布不好的hashCode()也不会集中在少数链表中
+     */
+    static int hash(Object key, int M) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (M - 1);
+    }
+
+    private void resize(int chains) {
+        if (STMetrics.ENABLED) STMetrics.resize();
+        SeparateChainingHashST<Key, Value> t = new SeparateChainingHashST<>(chains);
+        for (int i = 0; i < M; i++) {
+            for (Key key : st[i].keys()) {
+                t.st[hash(key, t.M)].put(key, st[i].get(key));
+            }
+        }
+        this.M = t.M;
+        this.st = t.st;
+    }
+
+    @Override
+    public Value get(Key key) {
+        return st[hash(key, M)].get(key);
+    }
+
+    @Override
+    public void put(Key key, Value value) {
+        if (value == null) {
+            delete(key);
+            return;
+        }
+        SequentialSearchST<Key, Value> chain = st[hash(key, M)];
+        int n = chain.size();
+        chain.put(key, value);
+        if (chain.size() > n) {
+            N++;
+            if (N > MAX_CHAIN * M) resize(2 * M);
+        }
+    }
+
+    @Override
+    public void delete(Key key) {
+        SequentialSearchST<Key, Value> chain = st[hash(key, M)];
+        int n = chain.size();
+        chain.delete(key);
+        if (chain.size() < n) {
+            N--;
+            if (M > 16 && N < MIN_CHAIN * M) resize(M / 2);
+        }
+    }
+
+    @Override
+    public boolean contains(Key key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return N == 0;
+    }
+
+    @Override
+    public int size() {
+        return N;
+    }
+
+    @Override
+    public Iterable<Key> keys() {
+        ArrayList<Key> keys = new ArrayList<>(N);
+        for (int i = 0; i < M; i++) {
+            for (Key key : st[i].keys()) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
@@ -4,12 +4,14 @@ import java.util.ArrayList;
 
 /**
  * 顺序查找：在查找中一个一个地顺序遍历符号表中的所有键并使用equals()方法来寻找与被查找地键匹配的键
+ * 前移（move-to-front）模式：每次命中之后把这个结点移动到链表的开头，访问集中在少数热点键上时，热点键总是在链表的前面，大部分查找只需要比较几次
  */
 
 public class SequentialSearchST<Key, Value> extends ST<Key, Value>
 {
     private Node first;
     private int n;
+    private final boolean moveToFront;
 
     private class Node
     {
@@ -25,22 +27,47 @@ public class SequentialSearchST<Key, Value> extends ST<Key, Value>
     }
 
     public SequentialSearchST() {
-        n = 0;
+        this(false);
     }
 
     /**
-     * 遍历链表，用equals()方法比较需被查找的键和每个结点中的键，如果匹配成功就返回相应的值，否则返回null
+     * @param moveToFront：是否在命中之后把结点移动到链表的开头
+     */
+    public SequentialSearchST(boolean moveToFront) {
+        n = 0;
+        this.moveToFront = moveToFront;
+    }
 
+    /**
+     * 返回键为key的结点，不存在时返回null。前移模式下把找到的结点从原来的位置摘下，放到链表的开头
      */
-    public Value get(Key key) {
-        for (Node x = first; x != null; x = x.next) {
+    private Node node(Key key) {
+        Node prev = null;
+        for (Node x = first; x != null; prev = x, x = x.next) {
             if (key.equals(x.key)) {
-                return x.value;
+                if (moveToFront && prev != null) {
+                    prev.next = x.next;
+                    x.next = first;
+                    first = x;
+                }
+                return x;
             }
         }
         return null;
     }
 
+    /**
+     * 遍历链表，用equals()方法比较需被查找的键和每个结点中的键，如果匹配成功就返回相应的值，否则返回null
+
+     */
+    public Value get(Key key) {
+        Node x = node(key);
+        if (x == null) {
+            return null;
+        }
+        return x.value;
+    }
+
     /**
      * 遍历链表，用equals()方法比较需被查找的键和每个结点中的键，如果匹配成功就用第二个参数指定的值更新和该键相关联的值，否则用给定的键值对创建一个新的结点并将其插入到链表的开头
      */
@@ -49,11 +76,10 @@ public class SequentialSearchST<Key, Value> extends ST<Key, Value>
             delete(key);
             return;
         }
-        for (Node x = first; x != null; x=x.next) {
-            if (key.equals(x.key)) {
-                x.value = value;
-                return;
-            }
+        Node x = node(key);
+        if (x != null) {
+            x.value = value;
+            return;
         }
         first = new Node(key, value, first);
         n++;
@@ -77,11 +103,13 @@ public class SequentialSearchST<Key, Value> extends ST<Key, Value>
         }
         if (key.equals(first.key)) {
             first = first.next;
+            n--;
             return;
         }
         for (Node x = first; x.next != null; x = x.next) {
             if (key.equals(x.next.key)) {
                 x.next = x.next.next;
+                n--;
                 return;
             }
         }
@@ -89,7 +117,7 @@ public class SequentialSearchST<Key, Value> extends ST<Key, Value>
 
     @Override
     public boolean contains(Key key) {
-        return get(key) == null;
+        return get(key) != null;
     }
 
     @Override
@@ -0,0 +1,378 @@
+package yadong0305.algorithms.ST;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * 伸展树：
+ *   BST和红黑树中结点的位置只由插入的顺序决定，访问频率很高的键可能一直位于树的深处。伸展树在每次访问一个结点之后都通过一系列旋转把它移动到根结点（伸展，splay），
+ *   最近访问过的键总是在根结点附近，在Zipf分布这样访问集中在少数热点键上的查询中，大部分查找只需要几次比较。
+ *   伸展树不保证平衡，单次操作最坏可能是线性的，但是任意M次操作的总代价是O(M lgN)（均摊对数级别）。
+ *
+ *   伸展：设x的父结点为p、祖父结点为g，
+ *     zig-zig：x和p同为左（右）子结点时，先旋转g再旋转p；
+ *     zig-zag：x和p一个是左子结点一个是右子结点时，先旋转p再旋转g；
+ *     zig：p是根结点时旋转p。
+ *   zig-zig先旋转祖父结点，使得伸展在把x移到根结点的同时把整条访问路径的深度大约减半，这是均摊对数级别的保证的来源。
+ *
+ *   查找时用一个数组记录访问路径（伸展树的高度没有上界，数组按需扩容），然后自下而上地伸展，和RedBlackBST一样不使用递归。
+ *   每个结点都有结点计数器N，rank()和select()和BST一样是基于计数器的；旋转时和红黑树一样更新计数器。
+ *   get()、floor()、rank()等查找操作也会改变树的结构，因此遍历keys()时不能同时访问这张表。
+ */
+@SuppressWarnings("unchecked")
+public class SplayBST<Key extends Comparable<Key>, Value> extends OrderedST<Key, Value> {
+
+    private Node root;
+    private Node[] path = (Node[]) new SplayBST.Node[64];
+
+    private class Node {
+        private Key key;
+        private Value value;
+        private Node left;
+        private Node right;
+        private int N;
+
+        Node(Key key, Value value) {
+            this.key = key;
+            this.value = value;
+            this.N = 1;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    private int size(Node x) {
+        if (x == null) return 0;
+        return x.N;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    private void push(int depth, Node x) {
+        if (depth == path.length) path = Arrays.copyOf(path, 2 * depth);
+        path[depth] = x;
+    }
+
+    private Node rotateLeft(Node h) {
+        if (STMetrics.ENABLED) STMetrics.rotation();
+        Node x = h.right;
+        h.right = x.left;
+        x.left = h;
+        x.N = h.N;
+        h.N = size(h.left) + size(h.right) + 1;
+        return x;
+    }
+
+    private Node rotateRight(Node h) {
+        if (STMetrics.ENABLED) STMetrics.rotation();
+        Node x = h.left;
+        h.left = x.right;
+        x.right = h;
+        x.N = h.N;
+        h.N = size(h.left) + size(h.right) + 1;
+        return x;
+    }
+
+    /**
+     * 从根结点开始查找key，把访问路径记录在path[0..depth]中，返回depth：path[depth]是含有key的结点，key不存在时是查找结束前访问的最后一个结点
+     */
+    private int search(Key key) {
+        int depth = 0;
+        Node x = root;
+        while (true) {
+            push(depth, x);
+            int cmp = key.compareTo(x.key);
+            Node next = cmp < 0 ? x.left : cmp > 0 ? x.right : null;
+            if (next == null) {
+                if (STMetrics.ENABLED) STMetrics.search(depth + 1);
+                return depth;
+            }
+            x = next;
+            depth++;
+        }
+    }
+
+    /**
+     * 沿着path[0..depth)把path[depth]伸展到path[0]的位置，返回伸展后的子树的根结点（即path[depth]）。
+     * 和RedBlackBST.fixUp()一样，取出的结点在path[]中的位置随即清空：一次很深的访问之后path[]不会继续引用那些结点（包括之后被删除的结点）
+     */
+    private Node splay(int depth) {
+        Node x = path[depth];
+        path[depth] = null;
+        while (depth >= 2) {
+            Node p = path[depth - 1];
+            Node g = path[depth - 2];
+            path[depth - 1] = null;
+            path[depth - 2] = null;
+            Node t;
+            if (p == g.left) {
+                if (x == p.left) {
+                    t = rotateRight(rotateRight(g));
+                } else {
+                    g.left = rotateLeft(p);
+                    t = rotateRight(g);
+                }
+            } else {
+                if (x == p.right) {
+                    t = rotateLeft(rotateLeft(g));
+                } else {
+                    g.right = rotateRight(p);
+                    t = rotateLeft(g);
+                }
+            }
+            depth -= 2;
+            if (depth > 0) {
+                Node a = path[depth - 1];
+                if (a.left == g) a.left = t;
+                else a.right = t;
+            }
+        }
+        if (depth == 1) {
+            Node p = path[0];
+            path[0] = null;
+            x = x == p.left ? rotateRight(p) : rotateLeft(p);
+        }
+        return x;
+    }
+
+    @Override
+    public Value get(Key key) {
+        if (root == null) return null;
+        root = splay(search(key));
+        if (key.compareTo(root.key) == 0) return root.value;
+        return null;
+    }
+
+    @Override
+    public boolean contains(Key key) {
+        return get(key) != null;
+    }
+
+    /**
+     * 键不存在时把新结点作为查找结束时的结点的子结点插入，路径上每个结点的计数器加1，然后把新结点伸展到根结点
+     */
+    @Override
+    public void put(Key key, Value value) {
+        if (root == null) {
+            root = new Node(key, value);
+            return;
+        }
+        int depth = search(key);
+        Node x = path[depth];
+        int cmp = key.compareTo(x.key);
+        if (cmp == 0) {
+            x.value = value;
+            root = splay(depth);
+            return;
+        }
+        Node t = new Node(key, value);
+        if (cmp < 0) x.left = t;
+        else x.right = t;
+        for (int i = 0; i <= depth; i++) path[i].N++;
+        push(depth + 1, t);
+        root = splay(depth + 1);
+    }
+
+    /**
+     * 把要删除的结点伸展到根结点，然后把左子树中最大的结点伸展到左子树的根（它没有右子结点），再把右子树接在它的右边
+     */
+    @Override
+    public void delete(Key key) {
+        if (root == null) return;
+        root = splay(search(key));
+        if (key.compareTo(root.key) != 0) return;
+        Node right = root.right;
+        if (root.left == null) {
+            root = right;
+            return;
+        }
+        int depth = 0;
+        Node x = root.left;
+        push(depth, x);
+        while (x.right != null) {
+            x = x.right;
+            push(++depth, x);
+        }
+        x = splay(depth);
+        x.right = right;
+        x.N = size(x.left) + size(right) + 1;
+        root = x;
+    }
+
+    public Key min() {
+        if (root == null) return null;
+        int depth = 0;
+        Node x = root;
+        push(depth, x);
+        while (x.left != null) {
+            x = x.left;
+            push(++depth, x);
+        }
+        root = splay(depth);
+        return root.key;
+    }
+
+    public Key max() {
+        if (root == null) return null;
+        int depth = 0;
+        Node x = root;
+        push(depth, x);
+        while (x.right != null) {
+            x = x.right;
+            push(++depth, x);
+        }
+        root = splay(depth);
+        return root.key;
+    }
+
+    /**
+     * 把查找结束时的结点伸展到根结点：根结点的键不大于key时它就是结果，否则结果是左子树中最大的键
+     */
+    public Key floor(Key key) {
+        if (root == null) return null;
+        root = splay(search(key));
+        if (key.compareTo(root.key) >= 0) return root.key;
+        Node x = root.left;
+        if (x == null) return null;
+        while (x.right != null) x = x.right;
+        return x.key;
+    }
+
+    public Key ceiling(Key key) {
+        if (root == null) return null;
+        root = splay(search(key));
+        if (key.compareTo(root.key) <= 0) return root.key;
+        Node x = root.right;
+        if (x == null) return null;
+        while (x.left != null) x = x.left;
+        return x.key;
+    }
+
+    public int rank(Key key) {
+        if (root == null) return 0;
+        root = splay(search(key));
+        if (key.compareTo(root.key) <= 0) return size(root.left);
+        return size(root.left) + 1;
+    }
+
+    public Key select(int k) {
+        if (k < 0 || k >= size()) return null;
+        int depth = 0;
+        Node x = root;
+        while (true) {
+            push(depth, x);
+            int t = size(x.left);
+            if (t > k) {
+                x = x.left;
+            } else if (t < k) {
+                k = k - t - 1;
+                x = x.right;
+            } else {
+                break;
+            }
+            depth++;
+        }
+        root = splay(depth);
+        return root.key;
+    }
+
+    public void deleteMin() {
+        if (root != null) delete(min());
+    }
+
+    public void deleteMax() {
+        if (root != null) delete(max());
+    }
+
+    public int size(Key lo, Key hi) {
+        if (lo.compareTo(hi) > 0) return 0;
+        if (contains(hi)) return rank(hi) - rank(lo) + 1;
+        return rank(hi) - rank(lo);
+    }
+
+    @Override
+    public Iterable<Key> keys() {
+        if (root == null) return new LinkedList<>();
+        return keys(min(), max());
+    }
+
+    /**
+     * 和BST一样用一个显式的栈进行中序遍历，遍历不伸展任何结点
+     */
+    public Iterable<Key> keys(Key lo, Key hi) {
+        return () -> new RangeIterator(lo, hi);
+    }
+
+    public void forEachInRange(Key lo, Key hi, BiConsumer<? super Key, ? super Value> action) {
+        RangeIterator it = new RangeIterator(lo, hi);
+        while (it.hasNext()) {
+            Node x = it.nextNode();
+            action.accept(x.key, x.value);
+        }
+    }
+
+    /**
+     * key所在结点的深度（根结点为0），key不存在时返回-1。只比较不伸展，不改变树的结构
+     */
+    int depth(Key key) {
+        int depth = 0;
+        for (Node x = root; x != null; depth++) {
+            int cmp = key.compareTo(x.key);
+            if (cmp == 0) return depth;
+            x = cmp < 0 ? x.left : x.right;
+        }
+        return -1;
+    }
+
+    private class RangeIterator implements Iterator<Key> {
+        private final Deque<Node> stack = new ArrayDeque<>();
+        private final Key hi;
+
+        RangeIterator(Key lo, Key hi) {
+            this.hi = hi;
+            Node x = root;
+            while (x != null) {
+                int cmp = lo.compareTo(x.key);
+                if (cmp < 0) {
+                    stack.push(x);
+                    x = x.left;
+                } else if (cmp == 0) {
+                    stack.push(x);
+                    break;
+                } else {
+                    x = x.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty() && hi.compareTo(stack.peek().key) >= 0;
+        }
+
+        @Override
+        public Key next() {
+            return nextNode().key;
+        }
+
+        Node nextNode() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Node x = stack.pop();
+            for (Node t = x.right; t != null; t = t.left) {
+                stack.push(t);
+            }
+            return x;
+        }
+    }
+}
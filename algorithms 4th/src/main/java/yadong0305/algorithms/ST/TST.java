@@ -0,0 +1,450 @@
+package yadong0305.algorithms.ST;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * 三向单词查找树（TST）：键是字符串的有序符号表。
+ *   每个结点含有一个字符c、三条链接和一个值：左链接和右链接指向字符（同一位置上）小于和大于c的结点，中链接指向下一个位置上的字符；
+ *   从根结点到某个结点的路径上所有沿中链接离开的结点的字符加上这个结点的字符组成一个字符串，结点的值不为null时这个字符串就是表中的一个键。
+ *   查找时每次只比较一个字符：相等时沿中链接前进到下一个字符，不等时在左右子树中继续比较同一个字符，因此已经匹配的前缀不会被再次比较，
+ *   而基于比较的树中每次String.compareTo()都要从第一个字符开始，共享前缀很长的单词在每一层都会被重新扫描一遍。
+ *   查找的代价是键的长度加上在各层的左右子树中的比较次数（对随机的键是对数级别的），和表的大小基本无关。
+ *
+ *   和BST一样每个结点都有结点计数器N，它等于左右子树、中子树中键的数量，再加上这个结点本身是否是一个键，于是：
+ *     键的顺序和String.compareTo()相同（逐个比较字符，前缀小于更长的字符串），左子树 < 这个结点的键 < 中子树 < 右子树；
+ *     rank()沿查找路径累加在左边的键的数量，select()根据计数器决定走哪条链接，都是一次自顶向下的查找；
+ *     floor()和ceiling()由rank()和select()得到。
+ *   所有的操作都不使用递归，删除时计数器变为0的子树直接被剪掉。
+ * 空字符串不能作为键；put()的值为null时删除这个键
+ */
+public class TST<Value> extends OrderedST<String, Value> {
+
+    private Node root;
+
+    private class Node {
+        private final char c;
+        private Node left;
+        private Node mid;
+        private Node right;
+        private Value value;
+        private int N;
+
+        Node(char c) {
+            this.c = c;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    private int size(Node x) {
+        if (x == null) return 0;
+        return x.N;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    private static void check(String key) {
+        if (key == null) throw new IllegalArgumentException("null key");
+        if (key.isEmpty()) throw new IllegalArgumentException("empty key");
+    }
+
+    /**
+     * 返回key的最后一个字符所在的结点（它的值可能为null），不存在时返回null
+     */
+    private Node node(String key) {
+        Node x = root;
+        int d = 0;
+        while (x != null) {
+            char c = key.charAt(d);
+            if (c < x.c) {
+                x = x.left;
+            } else if (c > x.c) {
+                x = x.right;
+            } else if (d < key.length() - 1) {
+                d++;
+                x = x.mid;
+            } else {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Value get(String key) {
+        check(key);
+        Node x = node(key);
+        if (x == null) return null;
+        return x.value;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return get(key) != null;
+    }
+
+    /**
+     * 和BST一样先查找一次，命中时只更新值；未命中时再走一遍同样的路径，把路径上每个结点的计数器加1，遇到空链接时创建新的结点
+     */
+    @Override
+    public void put(String key, Value value) {
+        check(key);
+        if (value == null) {
+            delete(key);
+            return;
+        }
+        Node t = node(key);
+        if (t != null && t.value != null) {
+            t.value = value;
+            return;
+        }
+        if (root == null) root = new Node(key.charAt(0));
+        Node x = root;
+        int d = 0;
+        while (true) {
+            x.N++;
+            char c = key.charAt(d);
+            if (c < x.c) {
+                if (x.left == null) x.left = new Node(c);
+                x = x.left;
+            } else if (c > x.c) {
+                if (x.right == null) x.right = new Node(c);
+                x = x.right;
+            } else if (d < key.length() - 1) {
+                d++;
+                if (x.mid == null) x.mid = new Node(key.charAt(d));
+                x = x.mid;
+            } else {
+                x.value = value;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 确认键存在之后沿查找路径向下，把每个结点的计数器减1；第一个计数器变为0的结点下面已经没有任何键，直接把指向它的链接置为null
+     */
+    @Override
+    public void delete(String key) {
+        check(key);
+        Node t = node(key);
+        if (t == null || t.value == null) return;
+        Node parent = null;
+        int link = 0;    // parent指向x的链接：-1为左链接，0为中链接，1为右链接
+        Node x = root;
+        int d = 0;
+        while (true) {
+            if (--x.N == 0) {
+                if (parent == null) root = null;
+                else if (link < 0) parent.left = null;
+                else if (link > 0) parent.right = null;
+                else parent.mid = null;
+                return;
+            }
+            if (x == t) {
+                x.value = null;
+                return;
+            }
+            parent = x;
+            char c = key.charAt(d);
+            if (c < x.c) {
+                link = -1;
+                x = x.left;
+            } else if (c > x.c) {
+                link = 1;
+                x = x.right;
+            } else {
+                link = 0;
+                d++;
+                x = x.mid;
+            }
+        }
+    }
+
+    /**
+     * 小于key的键的数量：
+     *   key的字符小于结点的字符时进入左子树；
+     *   大于时，左子树、这个结点本身和中子树中的键都小于key，加上N - size(right)后进入右子树；
+     *   相等时左子树中的键都小于key，如果这已经是key的最后一个字符就结束，否则这个结点本身的键是key的前缀，也小于key，再进入中子树
+     */
+    public int rank(String key) {
+        if (key == null) throw new IllegalArgumentException("null key");
+        int r = 0;
+        Node x = root;
+        int d = 0;
+        if (key.isEmpty()) return 0;
+        while (x != null) {
+            char c = key.charAt(d);
+            if (c < x.c) {
+                x = x.left;
+            } else if (c > x.c) {
+                r += x.N - size(x.right);
+                x = x.right;
+            } else {
+                r += size(x.left);
+                if (d == key.length() - 1) return r;
+                if (x.value != null) r++;
+                d++;
+                x = x.mid;
+            }
+        }
+        return r;
+    }
+
+    public String select(int k) {
+        if (k < 0 || k >= size()) return null;
+        StringBuilder sb = new StringBuilder();
+        Node x = root;
+        while (true) {
+            int t = size(x.left);
+            if (k < t) {
+                x = x.left;
+                continue;
+            }
+            k -= t;
+            int m = x.N - t - size(x.right);    // 这个结点本身和中子树中的键的数量
+            if (k >= m) {
+                k -= m;
+                x = x.right;
+                continue;
+            }
+            sb.append(x.c);
+            if (x.value != null) {
+                if (k == 0) return sb.toString();
+                k--;
+            }
+            x = x.mid;
+        }
+    }
+
+    public String min() {
+        return select(0);
+    }
+
+    public String max() {
+        return select(size() - 1);
+    }
+
+    public String floor(String key) {
+        if (!key.isEmpty() && contains(key)) return key;
+        int r = rank(key);
+        if (r == 0) return null;
+        return select(r - 1);
+    }
+
+    public String ceiling(String key) {
+        return select(rank(key));
+    }
+
+    public void deleteMin() {
+        if (!isEmpty()) delete(min());
+    }
+
+    public void deleteMax() {
+        if (!isEmpty()) delete(max());
+    }
+
+    public int size(String lo, String hi) {
+        if (lo.compareTo(hi) > 0) return 0;
+        if (!hi.isEmpty() && contains(hi)) return rank(hi) - rank(lo) + 1;
+        return rank(hi) - rank(lo);
+    }
+
+    /**
+     * 以s为前缀的键中最长的那个，不存在时返回null。沿着s的查找路径记住最后一个值不为null的结点对应的长度即可
+     */
+    public String longestPrefixOf(String s) {
+        if (s == null) throw new IllegalArgumentException("null key");
+        int length = 0;
+        Node x = root;
+        int d = 0;
+        while (x != null && d < s.length()) {
+            char c = s.charAt(d);
+            if (c < x.c) {
+                x = x.left;
+            } else if (c > x.c) {
+                x = x.right;
+            } else {
+                d++;
+                if (x.value != null) length = d;
+                x = x.mid;
+            }
+        }
+        if (length == 0) return null;
+        return s.substring(0, length);
+    }
+
+    /**
+     * 所有以prefix为前缀的键：先找到prefix的最后一个字符所在的结点，它本身（如果是一个键）和它的中子树中的键就是全部的结果，按顺序遍历这部分即可
+     */
+    public Iterable<String> keysWithPrefix(String prefix) {
+        if (prefix == null) throw new IllegalArgumentException("null prefix");
+        if (prefix.isEmpty()) return keys();
+        Node x = node(prefix);
+        if (x == null) return new LinkedList<>();
+        return () -> new RangeIterator(x, prefix);
+    }
+
+    @Override
+    public Iterable<String> keys() {
+        return () -> new RangeIterator("", null);
+    }
+
+    public Iterable<String> keys(String lo, String hi) {
+        return () -> new RangeIterator(lo, hi);
+    }
+
+    public void forEachInRange(String lo, String hi, BiConsumer<? super String, ? super Value> action) {
+        RangeIterator it = new RangeIterator(lo, hi);
+        while (it.hasNext()) {
+            String key = it.next();
+            action.accept(key, it.last.value);
+        }
+    }
+
+    /**
+     * 按顺序遍历的游标，用显式的栈代替递归。栈中的每一帧是一个结点、它之前的前缀的长度和下一步要做的事：
+     *   0：遍历左子树；1：结点本身是一个键时返回它；2：遍历中子树；3：出栈并遍历右子树。
+     * 所有的帧都在从根结点出发的同一条路径上，因此当前的前缀可以共用一个StringBuilder，处理一帧之前把长度截回这一帧的前缀长度即可。
+     * 从lo开始时沿lo的查找路径向下，跳过所有小于lo的部分（不入栈），只把还需要访问的结点以合适的状态入栈
+     */
+    private class RangeIterator implements Iterator<String> {
+        @SuppressWarnings("unchecked")
+        private Node[] nodes = (Node[]) new TST.Node[16];
+        private int[] depths = new int[16];
+        private byte[] stages = new byte[16];
+        private int top;
+        private final StringBuilder sb = new StringBuilder();
+        private final String hi;
+        private Node bottom;    // 只遍历一棵子树时，不能离开这个结点进入它的右子树
+        private Node next;
+        private String nextKey;
+        private Node last;
+
+        RangeIterator(String lo, String hi) {
+            this.hi = hi;
+            if (root == null) return;
+            if (lo.isEmpty()) {
+                push(root, 0, 0);
+            } else {
+                Node x = root;
+                int d = 0;
+                while (x != null) {
+                    char c = lo.charAt(d);
+                    if (c < x.c) {
+                        push(x, d, 1);
+                        x = x.left;
+                    } else if (c > x.c) {
+                        x = x.right;
+                    } else if (d == lo.length() - 1) {
+                        push(x, d, 1);
+                        break;
+                    } else {
+                        push(x, d, 3);
+                        sb.append(c);
+                        d++;
+                        x = x.mid;
+                    }
+                }
+            }
+            advance();
+        }
+
+        RangeIterator(Node x, String prefix) {
+            this.hi = null;
+            this.bottom = x;
+            sb.append(prefix, 0, prefix.length() - 1);
+            push(x, prefix.length() - 1, 1);
+            advance();
+        }
+
+        private void push(Node x, int depth, int stage) {
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * top);
+                depths = Arrays.copyOf(depths, 2 * top);
+                stages = Arrays.copyOf(stages, 2 * top);
+            }
+            nodes[top] = x;
+            depths[top] = depth;
+            stages[top++] = (byte) stage;
+        }
+
+        private void advance() {
+            while (top > 0) {
+                int i = top - 1;
+                Node x = nodes[i];
+                int p = depths[i];
+                switch (stages[i]++) {
+                    case 0:
+                        if (x.left != null) push(x.left, p, 0);
+                        break;
+                    case 1:
+                        if (x.value != null) {
+                            sb.setLength(p);
+                            sb.append(x.c);
+                            next = x;
+                            nextKey = sb.toString();
+                            return;
+                        }
+                        break;
+                    case 2:
+                        if (x.mid != null) {
+                            sb.setLength(p);
+                            sb.append(x.c);
+                            push(x.mid, p + 1, 0);
+                        }
+                        break;
+                    default:
+                        nodes[--top] = null;
+                        if (x.right != null && x != bottom) push(x.right, p, 0);
+                }
+            }
+            next = null;
+            nextKey = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null && (hi == null || nextKey.compareTo(hi) <= 0);
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            String key = nextKey;
+            last = next;
+            advance();
+            return key;
+        }
+    }
+
+    /**
+     * 检查每个结点的计数器，以及没有计数器为0的结点（删除时没有剪掉的空子树）
+     */
+    @SuppressWarnings("unchecked")
+    boolean check() {
+        Node[] stack = (Node[]) new TST.Node[Math.max(16, 2 * size())];
+        int top = 0;
+        if (root != null) stack[top++] = root;
+        while (top > 0) {
+            Node x = stack[--top];
+            int n = size(x.left) + size(x.mid) + size(x.right) + (x.value != null ? 1 : 0);
+            if (x.N != n || n == 0) return false;
+            if (top + 3 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+            if (x.left != null) stack[top++] = x.left;
+            if (x.mid != null) stack[top++] = x.mid;
+            if (x.right != null) stack[top++] = x.right;
+        }
+        return true;
+    }
+}
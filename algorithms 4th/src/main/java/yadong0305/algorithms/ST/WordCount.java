@@ -0,0 +1,312 @@
+package yadong0305.algorithms.ST;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 并行的单词计数：统计输入中每个单词（由空白字符分隔的字节序列，按UTF-8解码）出现的次数，结果是一张按单词排序的有序符号表。
+ *   Scanner用正则表达式切分单词，并且为每个单词创建一个String，只能用一个线程，每秒只能处理几MB。这里分成三步：
+ *   1. 切块：调用者的线程把文件按CHUNK字节切块，每块的结束位置向后移动到第一个空白字符，使得没有单词跨越两块，
+ *      然后用FileChannel.map()把这一块映射到内存（不复制数据），放进一个有界的队列；标准输入没法映射，就按块读进数组，把末尾不完整的单词留给下一块。
+ *   2. 计数：每个工作线程从队列中取出块，逐个字节扫描，不使用正则表达式：空白字符（和Character.isWhitespace()相同的ASCII字符）分隔单词，
+ *      扫描的同时计算散列值，在线程自己的WordTable中查找这个字节序列并把计数加1。WordTable直接比较字节，只在第一次遇到一个单词时复制它的字节，
+ *      所以重复的单词不会创建任何对象，线程之间也没有任何共享的可变状态。
+ *   3. 合并：每个线程的WordTable在ForkJoinPool中两两合并（计数相加），最后只为每个不同的单词创建一个String，
+ *      用RedBlackBST.parallelFromUnsorted()并行排序并以线性时间构造出红黑树。
+ *   队列是有界的，读得太快时调用者的线程会等待，同时被映射的块的数量是有限的。
+ * 多字节的Unicode空白字符（例如U+3000）不作为分隔符
+ */
+public final class WordCount {
+
+    static final int CHUNK = 1 << 24;
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private WordCount() {
+    }
+
+    public static OrderedST<String, Integer> count(Path... files) throws IOException {
+        return count(Arrays.asList(files), null, Runtime.getRuntime().availableProcessors(), CHUNK);
+    }
+
+    public static OrderedST<String, Integer> count(InputStream in) throws IOException {
+        return count(new ArrayList<>(), in, Runtime.getRuntime().availableProcessors(), CHUNK);
+    }
+
+    /**
+     * 依次处理files中的文件，in不为null时再处理in
+     */
+    static OrderedST<String, Integer> count(List<Path> files, InputStream in, int threads, int chunk) throws IOException {
+        BlockingQueue<ByteBuffer> queue = new ArrayBlockingQueue<>(2 * threads);
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "word-count");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<WordTable>> tables = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                tables.add(workers.submit(() -> count(queue)));
+            }
+            try {
+                for (Path file : files) split(file, chunk, queue);
+                if (in != null) split(Channels.newChannel(in), chunk, queue);
+            } finally {
+                for (int i = 0; i < threads; i++) queue.put(END);
+            }
+            WordTable[] partial = new WordTable[threads];
+            for (int i = 0; i < threads; i++) partial[i] = tables.get(i).get();
+            WordTable table = ForkJoinPool.commonPool().invoke(new Merge(partial, 0, threads));
+            String[] keys = new String[table.n];
+            Integer[] counts = new Integer[table.n];
+            int n = 0;
+            for (int i = 0; i < table.words.length; i++) {
+                if (table.words[i] == null) continue;
+                keys[n] = new String(table.words[i], StandardCharsets.UTF_8);
+                counts[n++] = table.counts[i];
+            }
+            return RedBlackBST.parallelFromUnsorted(keys, counts);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * 工作线程：从队列中取出块计数，直到取出END。出错时（例如词汇量很大时WordTable扩容引起的OutOfMemoryError）
+     * 先丢弃这张表，继续取出并丢弃队列中的块直到END，然后再抛出异常：否则所有的工作线程都出错之后没有人再从有界的队列中取出块，
+     * 调用者的线程会永远阻塞在put()上，永远不会等到Future.get()报告这个错误
+     */
+    private static WordTable count(BlockingQueue<ByteBuffer> queue) throws Exception {
+        WordTable table = new WordTable();
+        ByteBuffer buf = queue.take();
+        try {
+            for (; buf != END; buf = queue.take()) table.addAll(buf);
+            return table;
+        } catch (Throwable e) {
+            table = null;
+            while (buf != END) buf = queue.take();
+            throw e;
+        }
+    }
+
+    static boolean isWhitespace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1c && b <= 0x1f);
+    }
+
+    /**
+     * 把文件切成大约chunk字节的块映射到内存，每一块的结束位置移动到它之后的第一个空白字符（或者文件末尾）
+     */
+    private static void split(Path file, int chunk, BlockingQueue<ByteBuffer> queue) throws IOException, InterruptedException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            ByteBuffer probe = ByteBuffer.allocate(4096);
+            long pos = 0;
+            while (pos < size) {
+                long end = Math.min(pos + chunk, size);
+                while (end < size) {
+                    probe.clear();
+                    int n = ch.read(probe, end);
+                    if (n <= 0) break;
+                    int i = 0;
+                    while (i < n && !isWhitespace(probe.get(i))) i++;
+                    end += i;
+                    if (i < n) break;
+                }
+                if (end - pos > Integer.MAX_VALUE) throw new IOException("word longer than 2GB in " + file);
+                queue.put(ch.map(FileChannel.MapMode.READ_ONLY, pos, end - pos));
+                pos = end;
+            }
+        }
+    }
+
+    /**
+     * 按块读取一个不能映射的通道：每次读满一块，最后一个空白字符之后的部分（可能是不完整的单词）复制到下一块的开头。
+     * 下一块至少是这部分的两倍大，一块中没有空白字符时块的大小因此加倍
+     */
+    private static void split(ReadableByteChannel ch, int chunk, BlockingQueue<ByteBuffer> queue) throws IOException, InterruptedException {
+        ByteBuffer buf = ByteBuffer.allocate(chunk);
+        while (true) {
+            boolean eof = false;
+            while (buf.hasRemaining()) {
+                if (ch.read(buf) < 0) {
+                    eof = true;
+                    break;
+                }
+            }
+            if (eof) {
+                buf.flip();
+                if (buf.hasRemaining()) queue.put(buf);
+                return;
+            }
+            int last = buf.position() - 1;
+            while (last >= 0 && !isWhitespace(buf.get(last))) last--;
+            int rest = buf.position() - last - 1;
+            ByteBuffer next = ByteBuffer.allocate(Math.max(chunk, 2 * rest));
+            buf.flip();
+            buf.position(last + 1);
+            next.put(buf);
+            if (last >= 0) {
+                buf.position(0);
+                buf.limit(last + 1);
+                queue.put(buf);
+            }
+            buf = next;
+        }
+    }
+
+    /**
+     * 以字节序列为键、计数为值的线性探测散列表，和LinearProbingHashST相同，但是可以直接用ByteBuffer中的一段字节查找，不需要先创建String
+     */
+    static final class WordTable {
+        private byte[][] words = new byte[1 << 10][];
+        private int[] hashes = new int[1 << 10];
+        private int[] counts = new int[1 << 10];
+        private int n;
+
+        /**
+         * 扫描buf中的所有单词，把每个单词的计数加1
+         */
+        void addAll(ByteBuffer buf) {
+            int limit = buf.limit();
+            int i = buf.position();
+            while (i < limit) {
+                while (i < limit && isWhitespace(buf.get(i))) i++;
+                int start = i;
+                int h = 0;
+                while (i < limit) {
+                    byte b = buf.get(i);
+                    if (isWhitespace(b)) break;
+                    h = 31 * h + b;
+                    i++;
+                }
+                if (i > start) add(buf, start, i, h);
+            }
+        }
+
+        private static int mix(int h) {
+            return h ^ (h >>> 16);
+        }
+
+        private void add(ByteBuffer buf, int from, int to, int hash) {
+            int len = to - from;
+            int mask = words.length - 1;
+            int i;
+            for (i = mix(hash) & mask; words[i] != null; i = (i + 1) & mask) {
+                if (hashes[i] == hash && equals(words[i], buf, from, len)) {
+                    counts[i]++;
+                    return;
+                }
+            }
+            byte[] word = new byte[len];
+            for (int j = 0; j < len; j++) word[j] = buf.get(from + j);
+            insert(i, word, hash, 1);
+        }
+
+        private static boolean equals(byte[] word, ByteBuffer buf, int from, int len) {
+            if (word.length != len) return false;
+            for (int j = 0; j < len; j++) {
+                if (word[j] != buf.get(from + j)) return false;
+            }
+            return true;
+        }
+
+        private void add(byte[] word, int hash, int count) {
+            int mask = words.length - 1;
+            int i;
+            for (i = mix(hash) & mask; words[i] != null; i = (i + 1) & mask) {
+                if (hashes[i] == hash && Arrays.equals(words[i], word)) {
+                    counts[i] += count;
+                    return;
+                }
+            }
+            insert(i, word, hash, count);
+        }
+
+        private void insert(int i, byte[] word, int hash, int count) {
+            words[i] = word;
+            hashes[i] = hash;
+            counts[i] = count;
+            if (++n > words.length / 2) resize(2 * words.length);
+        }
+
+        private void resize(int capacity) {
+            byte[][] w = words;
+            int[] h = hashes;
+            int[] c = counts;
+            words = new byte[capacity][];
+            hashes = new int[capacity];
+            counts = new int[capacity];
+            n = 0;
+            for (int i = 0; i < w.length; i++) {
+                if (w[i] != null) add(w[i], h[i], c[i]);
+            }
+        }
+
+        /**
+         * 把另一张表的计数加到这张表中，单词的字节数组直接共用
+         */
+        void addAll(WordTable that) {
+            for (int i = 0; i < that.words.length; i++) {
+                if (that.words[i] != null) add(that.words[i], that.hashes[i], that.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * 两两合并tables[lo..hi)，总是把较小的表合并到较大的表中
+     */
+    private static class Merge extends RecursiveTask<WordTable> {
+        private static final long serialVersionUID = 1L;
+
+        private final WordTable[] tables;
+        private final int lo;
+        private final int hi;
+
+        Merge(WordTable[] tables, int lo, int hi) {
+            this.tables = tables;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected WordTable compute() {
+            if (hi - lo == 1) return tables[lo];
+            int mid = (lo + hi) >>> 1;
+            Merge left = new Merge(tables, lo, mid);
+            left.fork();
+            WordTable b = new Merge(tables, mid, hi).compute();
+            WordTable a = left.join();
+            if (a.n < b.n) {
+                WordTable t = a;
+                a = b;
+                b = t;
+            }
+            a.addAll(b);
+            return a;
+        }
+    }
+}
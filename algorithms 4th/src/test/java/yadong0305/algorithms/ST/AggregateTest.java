@@ -0,0 +1,108 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class AggregateTest {
+
+    private static long sum(TreeMap<Integer, Long> map, int lo, int hi) {
+        long s = 0;
+        if (lo > hi) return s;
+        for (long v : map.subMap(lo, true, hi, true).values()) s += v;
+        return s;
+    }
+
+    @Test
+    public void sumMatchesTreeMap() {
+        RedBlackBST<Integer, Long> rb = new RedBlackBST<>(Monoid.longSum());
+        BST<Integer, Long> bst = new BST<>(Monoid.longSum());
+        TreeMap<Integer, Long> expected = new TreeMap<>();
+        Random random = new Random(19);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000);
+            int op = random.nextInt(10);
+            if (op == 0) {
+                rb.delete(key);
+                bst.delete(key);
+                expected.remove(key);
+            } else if (op == 1) {
+                rb.deleteMin();
+                bst.deleteMin();
+                if (!expected.isEmpty()) expected.pollFirstEntry();
+            } else if (op == 2) {
+                rb.deleteMax();
+                bst.deleteMax();
+                if (!expected.isEmpty()) expected.pollLastEntry();
+            } else {
+                long value = random.nextInt(1000) - 500;
+                rb.put(key, value);
+                bst.put(key, value);
+                expected.put(key, value);
+            }
+            int lo = random.nextInt(2100) - 50;
+            int hi = lo + random.nextInt(600) - 50;
+            assertEquals(sum(expected, lo, hi), (long) rb.aggregate(lo, hi));
+            assertEquals(sum(expected, lo, hi), (long) bst.aggregate(lo, hi));
+        }
+        assertTrue(rb.check());
+        assertEquals(sum(expected, Integer.MIN_VALUE, Integer.MAX_VALUE), (long) rb.aggregate());
+        assertEquals(sum(expected, Integer.MIN_VALUE, Integer.MAX_VALUE), (long) bst.aggregate());
+    }
+
+    /**
+     * 字符串连接没有交换律，结果必须按键的顺序合并
+     */
+    @Test
+    public void nonCommutativeMonoidKeepsKeyOrder() {
+        Integer[] keys = new Integer[26];
+        String[] values = new String[26];
+        for (int i = 0; i < 26; i++) {
+            keys[i] = 2 * i;
+            values[i] = String.valueOf((char) ('a' + i));
+        }
+        RedBlackBST<Integer, String> rb = new RedBlackBST<>(Monoid.of("", String::concat));
+        BST<Integer, String> bst = new BST<>(Monoid.of("", String::concat));
+        for (int i : new Random(19).ints(0, 26).distinct().limit(26).toArray()) {
+            rb.put(keys[i], values[i]);
+            bst.put(keys[i], values[i]);
+        }
+        assertEquals("abcdefghijklmnopqrstuvwxyz", rb.aggregate());
+        assertEquals("defg", rb.aggregate(5, 13));
+        assertEquals("defg", bst.aggregate(6, 12));
+        assertEquals("", bst.aggregate(7, 7));
+        assertEquals("", rb.aggregate(12, 6));
+        rb.delete(8);
+        bst.delete(8);
+        assertEquals("abcdfg", rb.aggregate(0, 12));
+        assertEquals("abcdfg", bst.aggregate(-5, 13));
+    }
+
+    @Test
+    public void minAndMax() {
+        RedBlackBST<Integer, Integer> min = new RedBlackBST<>(Monoid.min(Integer::compare));
+        BST<Integer, Integer> max = new BST<>(Monoid.max(Integer::compare));
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(190);
+        for (int i = 0; i < 1000; i++) {
+            int key = random.nextInt(500);
+            int value = random.nextInt();
+            min.put(key, value);
+            max.put(key, value);
+            expected.put(key, value);
+        }
+        for (int i = 0; i < 1000; i++) {
+            int lo = random.nextInt(500);
+            int hi = lo + random.nextInt(100);
+            Map<Integer, Integer> range = expected.subMap(lo, true, hi, true);
+            Integer lowest = range.values().stream().min(Integer::compare).orElse(null);
+            Integer highest = range.values().stream().max(Integer::compare).orElse(null);
+            assertEquals(lowest, min.aggregate(lo, hi));
+            assertEquals(highest, max.aggregate(lo, hi));
+        }
+    }
+}
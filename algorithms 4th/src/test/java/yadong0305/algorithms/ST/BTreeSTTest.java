@@ -0,0 +1,69 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class BTreeSTTest {
+
+    @Test
+    public void randomOperationsMatchTreeMap() {
+        for (int order : new int[]{4, 6, 64}) {
+            Random random = new Random(order);
+            BTreeST<Integer, Integer> st = new BTreeST<>(order);
+            TreeMap<Integer, Integer> expected = new TreeMap<>();
+            for (int i = 0; i < 20000; i++) {
+                int key = random.nextInt(1000);
+                int op = random.nextInt(10);
+                if (op < 5) {
+                    st.put(key, i);
+                    expected.put(key, i);
+                } else if (op < 8) {
+                    st.delete(key);
+                    expected.remove(key);
+                } else if (op == 8) {
+                    st.deleteMin();
+                    expected.pollFirstEntry();
+                } else {
+                    st.deleteMax();
+                    expected.pollLastEntry();
+                }
+                assertEquals(expected.size(), st.size());
+                int q = random.nextInt(1100) - 50;
+                assertEquals(expected.get(q), st.get(q));
+                assertEquals(expected.floorKey(q), st.floor(q));
+                assertEquals(expected.ceilingKey(q), st.ceiling(q));
+                assertEquals(expected.headMap(q).size(), st.rank(q));
+                if (i % 500 == 0) assertTrue(st.check());
+            }
+            assertTrue(st.check());
+            List<Integer> keys = new ArrayList<>();
+            for (Integer key : st.keys()) keys.add(key);
+            assertEquals(new ArrayList<>(expected.keySet()), keys);
+            for (int k = 0; k < keys.size(); k++) assertEquals(keys.get(k), st.select(k));
+        }
+    }
+
+    @Test
+    public void growsAndShrinksEvenly() {
+        BTreeST<Integer, Integer> st = new BTreeST<>(4);
+        for (int i = 0; i < 100000; i++) st.put(i, i);
+        assertTrue(st.check());
+        for (int i = 0; i < 100000; i += 2) st.delete(i);
+        assertTrue(st.check());
+        assertEquals(50000, st.size());
+        assertEquals(Integer.valueOf(1), st.min());
+        assertEquals(Integer.valueOf(99999), st.max());
+        assertEquals(Integer.valueOf(2001), st.select(1000));
+        for (int i = 1; i < 100000; i += 2) st.delete(i);
+        assertTrue(st.check());
+        assertTrue(st.isEmpty());
+        assertNull(st.min());
+        assertFalse(st.keys().iterator().hasNext());
+    }
+}
@@ -0,0 +1,189 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class BinarySearchSTTest {
+
+    @Test
+    public void batchOperationsMatchTreeMap() {
+        Random random = new Random(7);
+        BinarySearchST<Integer, Integer> st = new BinarySearchST<>(1);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int round = 0; round < 300; round++) {
+            int k = random.nextInt(50);
+            Integer[] keys = new Integer[k];
+            Integer[] values = new Integer[k];
+            for (int j = 0; j < k; j++) {
+                keys[j] = random.nextInt(2000);
+                values[j] = round * 100 + j;
+            }
+            int op = random.nextInt(3);
+            if (op == 0) {
+                st.putAll(keys, values);
+                for (int j = 0; j < k; j++) expected.put(keys[j], values[j]);
+            } else if (op == 1) {
+                st.deleteAll(keys);
+                for (Integer key : keys) expected.remove(key);
+            } else {
+                List<Integer> actual = st.getAll(keys);
+                for (int j = 0; j < k; j++) assertEquals(expected.get(keys[j]), actual.get(j));
+            }
+            assertEquals(expected.size(), st.size());
+            int q = random.nextInt(2100) - 50;
+            assertEquals(expected.floorKey(q), st.floor(q));
+            assertEquals(expected.ceilingKey(q), st.ceiling(q));
+            assertEquals(expected.containsKey(q), st.contains(q));
+            assertEquals(q < 500 ? 0 : expected.subMap(500, true, q, true).size(), st.size(500, q));
+        }
+        List<Integer> actual = new ArrayList<>();
+        for (Integer key : st.keys()) {
+            actual.add(key);
+            assertEquals(expected.get(key), st.get(key));
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), actual);
+    }
+
+    @Test
+    public void fenceIndexMatchesTreeMap() {
+        Random random = new Random(14);
+        Integer[] keys = new Integer[100000];
+        for (int i = 0; i < keys.length; i++) keys[i] = 2 * i;
+        BinarySearchST<Integer, Integer> st = BinarySearchST.fromSorted(keys, keys);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (Integer key : keys) expected.put(key, key);
+        for (int i = 0; i < 20000; i++) {
+            int q = random.nextInt(200100) - 50;
+            assertEquals(expected.headMap(q).size(), st.rank(q));
+            assertEquals(expected.get(q), st.get(q));
+            if (i % 100 == 0) {
+                st.put(q, q);
+                expected.put(q, q);
+                int d = random.nextInt(200000);
+                st.delete(d);
+                expected.remove(d);
+            }
+        }
+        assertEquals(expected.size(), st.size());
+    }
+
+    /**
+     * 表超过FENCE_THRESHOLD之后逐个插入：put()和get()都不能重建稀疏索引，否则每次插入都要多付出O(N/64)的代价，
+     * 1M次顺序插入会从零点几秒变为一分钟以上。中间的putAll()重新建立稀疏索引，之后的查找走稀疏索引，再次put()之后又退回二分查找
+     */
+    @Test(timeout = 20000)
+    public void incrementalPutsAboveFenceThreshold() {
+        int n = 1000000;
+        BinarySearchST<Integer, Integer> st = new BinarySearchST<>(1);
+        for (int i = 0; i < n; i++) {
+            st.put(2 * i, i);
+            assertEquals(Integer.valueOf(i), st.get(2 * i));
+            if (i == n / 2) st.putAll(new Integer[]{-1, -3}, new Integer[]{-1, -3});
+        }
+        assertEquals(n + 2, st.size());
+        Random random = new Random(27);
+        for (int i = 0; i < 10000; i++) {
+            int q = random.nextInt(2 * n);
+            assertEquals(q % 2 == 0 ? q / 2 + 2 : (q + 1) / 2 + 2, st.rank(q));
+        }
+        st.deleteAll(new Integer[]{-1, -3, 1});
+        for (int i = 0; i < 10000; i++) {
+            int q = random.nextInt(2 * n);
+            assertEquals(q % 2 == 0 ? q / 2 : (q + 1) / 2, st.rank(q));
+            assertEquals(q % 2 == 0 ? Integer.valueOf(q / 2) : null, st.get(q));
+        }
+    }
+
+    @Test
+    public void frozenLayoutMatchesTreeMap() {
+        for (int n : new int[]{0, 1, 2, 7, 8, 1000, 50000}) {
+            Random random = new Random(n);
+            BinarySearchST<Integer, Integer> st = new BinarySearchST<>(1);
+            TreeMap<Integer, Integer> expected = new TreeMap<>();
+            while (expected.size() < n) {
+                int key = random.nextInt(4 * n);
+                st.put(key, key);
+                expected.put(key, key);
+            }
+            st.freeze();
+            assertTrue(st.isFrozen());
+            for (int i = 0; i < 5000; i++) {
+                int q = random.nextInt(4 * n + 10) - 5;
+                assertEquals(expected.headMap(q).size(), st.rank(q));
+                assertEquals(expected.get(q), st.get(q));
+                assertEquals(expected.floorKey(q), st.floor(q));
+                assertEquals(expected.ceilingKey(q), st.ceiling(q));
+            }
+            st.put(-1, -1);
+            assertFalse(st.isFrozen());
+            assertEquals(0, st.rank(-1));
+        }
+    }
+
+    /**
+     * 学习型索引：平滑的分布（等距、均匀随机、指数增长的间隔）上建立索引，精度不够的大long和分段的分布上也要给出完全相同的结果
+     */
+    @Test
+    public void learnedIndexMatchesTreeMap() {
+        int n = 100000;
+        Random random = new Random(25);
+        long[][] distributions = new long[5][n];
+        for (int i = 0; i < n; i++) {
+            distributions[0][i] = 3L * i;
+            distributions[1][i] = random.nextInt(1 << 30);
+            distributions[2][i] = (long) Math.exp(i / 5000.0);
+            distributions[3][i] = Long.MAX_VALUE / 2 + random.nextInt(1 << 20);
+            distributions[4][i] = (i % 2 == 0 ? 0 : 1L << 40) + random.nextInt(1 << 20);
+        }
+        for (long[] keys : distributions) {
+            TreeMap<Long, Long> expected = new TreeMap<>();
+            for (long key : keys) expected.put(key, key);
+            Long[] sorted = expected.keySet().toArray(new Long[0]);
+            BinarySearchST<Long, Long> st = BinarySearchST.fromSorted(sorted, sorted);
+            List<Long> queries = new ArrayList<>();
+            for (int i = 0; i < 20000; i++) {
+                long key = sorted[random.nextInt(sorted.length)];
+                queries.add(key);
+                queries.add(key + 1);
+                queries.add(key - 1);
+            }
+            queries.add(Long.MIN_VALUE);
+            queries.add(Long.MAX_VALUE);
+            for (long q : queries) {
+                int r = Arrays.binarySearch(sorted, q);
+                assertEquals(r >= 0 ? r : -r - 1, st.rank(q));
+                assertEquals(expected.get(q), st.get(q));
+                assertEquals(expected.floorKey(q), st.floor(q));
+                assertEquals(expected.ceilingKey(q), st.ceiling(q));
+            }
+        }
+    }
+
+    @Test
+    public void learnedIndexOnlyForSmoothNumericKeys() {
+        int n = 100000;
+        Integer[] even = new Integer[n];
+        Integer[] noisy = new Integer[n];
+        String[] strings = new String[n];
+        Random random = new Random(26);
+        for (int i = 0; i < n; i++) {
+            even[i] = 2 * i;
+            noisy[i] = i == 0 ? 0 : noisy[i - 1] + 1 + (random.nextInt(8) == 0 ? random.nextInt(1 << 20) : 0);
+            strings[i] = String.valueOf(i);
+        }
+        LearnedIndex index = LearnedIndex.build(even, n);
+        assertNotNull(index);
+        assertEquals(1, index.segments());
+        assertTrue(Math.abs(index.predict(2 * 777, n) - 777) <= LearnedIndex.EPSILON);
+        assertNull(LearnedIndex.build(noisy, n));
+        assertNull(LearnedIndex.build(strings, n));
+        assertNull(LearnedIndex.build(new Double[]{1.0, Double.NaN}, 2));
+    }
+}
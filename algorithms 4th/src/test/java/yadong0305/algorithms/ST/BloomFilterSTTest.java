@@ -0,0 +1,54 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterSTTest {
+
+    @Test
+    public void filteredTablesMatchHashMap() {
+        List<ST<Integer, Integer>> tables = Arrays.asList(new SequentialSearchST<>(), new BinarySearchST<>(1), new BST<>());
+        for (ST<Integer, Integer> table : tables) {
+            Random random = new Random(14);
+            BloomFilterST<Integer, Integer> st = new BloomFilterST<>(table, 16, 0.01);
+            HashMap<Integer, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 20000; i++) {
+                int key = random.nextInt(3000);
+                if (random.nextInt(3) == 0) {
+                    st.delete(key);
+                    expected.remove(key);
+                } else {
+                    st.put(key, i);
+                    expected.put(key, i);
+                }
+                int q = random.nextInt(6000);
+                assertEquals(expected.get(q), st.get(q));
+                assertEquals(expected.containsKey(q), st.contains(q));
+            }
+            assertEquals(expected.size(), st.size());
+        }
+    }
+
+    /**
+     * 目标误判率是1%，100000次查询中的误判不能超过1.3%
+     */
+    @Test
+    public void falsePositiveRateIsNearTarget() {
+        BloomFilter<Integer> filter = new BloomFilter<>(10000, 0.01);
+        for (int i = 0; i < 10000; i++) filter.add(i);
+        for (int i = 0; i < 10000; i++) assertTrue(filter.mightContain(i));
+        int falsePositives = 0;
+        for (int i = 10000; i < 110000; i++) {
+            if (filter.mightContain(i)) falsePositives++;
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < 1300);
+        for (int i = 0; i < 10000; i += 2) filter.remove(i);
+        for (int i = 1; i < 10000; i += 2) assertTrue(filter.mightContain(i));
+    }
+}
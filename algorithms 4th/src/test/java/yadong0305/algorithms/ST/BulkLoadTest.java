@@ -0,0 +1,64 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class BulkLoadTest {
+
+    @Test
+    public void redBlackFromSortedIsValidForEverySize() {
+        for (int n = 0; n < 2000; n++) {
+            Integer[] keys = new Integer[n];
+            String[] values = new String[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = 2 * i;
+                values[i] = "v" + i;
+            }
+            RedBlackBST<Integer, String> st = RedBlackBST.fromSorted(keys, values);
+            assertTrue("n = " + n, st.check());
+            assertEquals(n, st.size());
+            for (int i = 0; i < n; i++) assertEquals(values[i], st.get(2 * i));
+            st.put(-1, "x");
+            st.delete(0);
+            assertTrue(st.check());
+        }
+    }
+
+    @Test
+    public void fromUnsortedKeepsLastValue() {
+        Random random = new Random(6);
+        Integer[] keys = new Integer[10000];
+        Integer[] values = new Integer[keys.length];
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt(3000);
+            values[i] = i;
+            expected.put(keys[i], i);
+        }
+        List<OrderedST<Integer, Integer>> tables = new ArrayList<>();
+        tables.add(BinarySearchST.fromUnsorted(keys, values));
+        tables.add(BST.fromUnsorted(keys, values));
+        tables.add(RedBlackBST.fromUnsorted(keys, values));
+        for (OrderedST<Integer, Integer> st : tables) {
+            assertEquals(expected.size(), st.size());
+            List<Integer> actual = new ArrayList<>();
+            for (Integer key : st.keys()) {
+                actual.add(key);
+                assertEquals(expected.get(key), st.get(key));
+            }
+            assertEquals(new ArrayList<>(expected.keySet()), actual);
+        }
+        assertEquals(Integer.valueOf(0), values[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromSortedRejectsUnsortedKeys() {
+        BST.fromSorted(new Integer[]{1, 3, 2}, new Integer[]{1, 2, 3});
+    }
+}
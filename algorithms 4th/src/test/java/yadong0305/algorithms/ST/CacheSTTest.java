@@ -0,0 +1,113 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CacheSTTest {
+
+    @Test
+    public void lruMatchesLinkedHashMap() {
+        Random random = new Random(17);
+        CacheST<Integer, Integer> st = new CacheST<>(100, CacheST.Eviction.LRU);
+        Map<Integer, Integer> expected = new LinkedHashMap<Integer, Integer>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > 100;
+            }
+        };
+        for (int i = 0; i < 50000; i++) {
+            int key = random.nextInt(300);
+            int op = random.nextInt(10);
+            if (op < 4) {
+                st.put(key, i);
+                if (expected.containsKey(key)) expected.remove(key);
+                expected.put(key, i);
+            } else if (op == 4) {
+                st.delete(key);
+                expected.remove(key);
+            } else {
+                assertEquals(expected.get(key), st.get(key));
+            }
+            assertEquals(expected.size(), st.size());
+        }
+        assertEquals(st.size(), st.weight());
+        assertTrue(st.evictions() > 0);
+    }
+
+    @Test
+    public void lfuKeepsFrequentKeys() {
+        CacheST<Integer, Integer> st = new CacheST<>(10, CacheST.Eviction.LFU);
+        for (int i = 0; i < 10; i++) st.put(i, i);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 9; i++) st.get(i);
+        }
+        for (int i = 100; i < 200; i++) st.put(i, i);
+        for (int i = 0; i < 9; i++) assertTrue(st.contains(i));
+        assertFalse(st.contains(9));
+        assertEquals(10, st.size());
+        assertEquals(27, st.hits());
+    }
+
+    /**
+     * 100个热点键各读10次之后，100个只访问一次的新键扫过缓存：LRU把热点键全部冲掉，TINY_LFU中扫描的键频率低，在准入比较中被淘汰
+     */
+    private static int hotKeysAfterScan(CacheST.Eviction eviction) {
+        CacheST<Integer, Integer> st = new CacheST<>(100, eviction, (k, v) -> 1, k -> k);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 100; i++) st.get(i);
+        }
+        for (int i = 1000; i < 1100; i++) st.get(i);
+        assertEquals(100, st.size());
+        int hot = 0;
+        for (int i = 0; i < 100; i++) if (st.contains(i)) hot++;
+        return hot;
+    }
+
+    @Test
+    public void tinyLfuResistsScans() {
+        assertEquals(0, hotKeysAfterScan(CacheST.Eviction.LRU));
+        int hot = hotKeysAfterScan(CacheST.Eviction.TINY_LFU);
+        assertTrue("hot keys retained: " + hot, hot >= 95);
+    }
+
+    /**
+     * 热点键和扫描交替出现：TINY_LFU的命中次数不少于LRU，并且留下了绝大部分热点键
+     */
+    @Test
+    public void tinyLfuBeatsLruOnMixedWorkload() {
+        CacheST<Integer, Integer> st = new CacheST<>(1000, CacheST.Eviction.TINY_LFU);
+        CacheST<Integer, Integer> lru = new CacheST<>(1000, CacheST.Eviction.LRU);
+        Random random = new Random(18);
+        int scan = 1_000_000;
+        for (int i = 0; i < 200000; i++) {
+            int key = random.nextInt(4) == 0 ? scan++ : random.nextInt(500);
+            if (st.get(key) == null) st.put(key, key);
+            if (lru.get(key) == null) lru.put(key, key);
+            assertTrue(st.size() <= 1000);
+        }
+        assertTrue(st.hits() >= lru.hits());
+        int hot = 0;
+        for (int i = 0; i < 500; i++) if (st.contains(i)) hot++;
+        assertTrue("hot keys retained: " + hot, hot > 450);
+    }
+
+    @Test
+    public void loaderAndWeights() {
+        CacheST<Integer, String> st = new CacheST<>(20, CacheST.Eviction.TINY_LFU, (k, v) -> v.length(), k -> k < 0 ? null : "v" + k);
+        assertEquals("v7", st.get(7));
+        assertEquals("v7", st.get(7));
+        assertNull(st.get(-1));
+        assertEquals(1, st.hits());
+        assertEquals(2, st.misses());
+        assertEquals(2, st.loads());
+        for (int i = 0; i < 100; i++) st.get(i);
+        assertTrue(st.weight() <= 20);
+        st.put(1000, "a very long value that does not fit");
+        assertTrue(st.weight() <= 20);
+        assertFalse(st.contains(1000));
+    }
+}
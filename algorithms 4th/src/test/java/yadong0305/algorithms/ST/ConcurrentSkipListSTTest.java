@@ -0,0 +1,96 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentSkipListSTTest {
+
+    @Test
+    public void sequentialOperationsMatchTreeMap() {
+        Random random = new Random(9);
+        ConcurrentSkipListST<Integer, Integer> st = new ConcurrentSkipListST<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(1000);
+            int op = random.nextInt(10);
+            if (op < 5) {
+                st.put(key, i);
+                expected.put(key, i);
+            } else if (op < 8) {
+                st.delete(key);
+                expected.remove(key);
+            } else if (op == 8) {
+                st.deleteMin();
+                expected.pollFirstEntry();
+            } else {
+                st.deleteMax();
+                expected.pollLastEntry();
+            }
+            assertEquals(expected.size(), st.size());
+            int q = random.nextInt(1100) - 50;
+            assertEquals(expected.get(q), st.get(q));
+            assertEquals(expected.floorKey(q), st.floor(q));
+            assertEquals(expected.ceilingKey(q), st.ceiling(q));
+            assertEquals(expected.headMap(q).size(), st.rank(q));
+            assertEquals(expected.isEmpty() ? null : expected.lastKey(), st.max());
+        }
+    }
+
+    /**
+     * 每个写线程只修改属于自己的键（key % WRITERS == id），读线程同时检查每个读到的值都属于它的键
+     */
+    @Test
+    public void concurrentWritersAndReaders() throws InterruptedException {
+        final int WRITERS = 4;
+        final int KEYS = 20000;
+        ConcurrentSkipListST<Integer, Integer> st = new ConcurrentSkipListST<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            final int id = w;
+            threads.add(new Thread(() -> {
+                Random random = new Random(id);
+                for (int i = 0; i < 100000; i++) {
+                    int key = random.nextInt(KEYS / WRITERS) * WRITERS + id;
+                    if (random.nextBoolean()) st.put(key, -key);
+                    else st.delete(key);
+                }
+                for (int key = id; key < KEYS; key += WRITERS) {
+                    if (key % 2 == 0) st.put(key, -key);
+                    else st.delete(key);
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            try {
+                Random random = new Random(100);
+                for (int i = 0; i < 200000; i++) {
+                    int key = random.nextInt(KEYS);
+                    Integer value = st.get(key);
+                    if (value != null) assertEquals(-key, value.intValue());
+                    Integer floor = st.floor(key);
+                    if (floor != null) assertTrue(floor <= key);
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }));
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+        assertNull(failure.get());
+        assertEquals(KEYS / 2, st.size());
+        int expected = 0;
+        for (Integer key : st.keys()) {
+            assertEquals(expected, key.intValue());
+            expected += 2;
+        }
+        assertEquals(KEYS, expected);
+    }
+}
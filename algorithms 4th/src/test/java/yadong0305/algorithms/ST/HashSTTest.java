@@ -0,0 +1,46 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HashSTTest {
+
+    private static void checkAgainstHashMap(ST<Integer, Integer> st, Random random) {
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            // 键的hashCode()低位相同，集中在同一个键簇或链表中
+            int key = random.nextInt(5000) << 4;
+            if (random.nextInt(5) < 3) {
+                st.put(key, i);
+                expected.put(key, i);
+            } else {
+                st.delete(key);
+                expected.remove(key);
+            }
+            assertEquals(expected.size(), st.size());
+            int q = random.nextInt(5000) << 4;
+            assertEquals(expected.get(q), st.get(q));
+            assertEquals(expected.containsKey(q), st.contains(q));
+        }
+        HashSet<Integer> keys = new HashSet<>();
+        for (Integer key : st.keys()) assertTrue(keys.add(key));
+        assertEquals(expected.keySet(), keys);
+        for (Integer key : keys) st.delete(key);
+        assertTrue(st.isEmpty());
+    }
+
+    @Test
+    public void separateChaining() {
+        checkAgainstHashMap(new SeparateChainingHashST<>(), new Random(4));
+    }
+
+    @Test
+    public void linearProbing() {
+        checkAgainstHashMap(new LinearProbingHashST<>(), new Random(5));
+    }
+}
@@ -0,0 +1,168 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class LSMSTTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void check(TreeMap<Integer, Integer> expected, LSMST<Integer, Integer> st, Random random) {
+        for (int i = 0; i < 200; i++) {
+            int q = random.nextInt(2200) - 100;
+            assertEquals(expected.get(q), st.get(q));
+            assertEquals(expected.floorKey(q), st.floor(q));
+            assertEquals(expected.ceilingKey(q), st.ceiling(q));
+        }
+        int lo = random.nextInt(2000) - 500;
+        int hi = lo + random.nextInt(1000);
+        List<Integer> keys = new ArrayList<>();
+        for (Integer key : st.keys(lo, hi)) keys.add(key);
+        assertEquals(new ArrayList<>(expected.subMap(lo, true, hi, true).keySet()), keys);
+    }
+
+    @Test
+    public void randomOperationsMatchTreeMap() throws IOException {
+        Random random = new Random(13);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        try (LSMST<Integer, Integer> st = new LSMST<>(folder.getRoot().toPath(), LSMST.Codec.integers(), LSMST.Codec.integers(), 100, 3)) {
+            for (int i = 0; i < 20000; i++) {
+                int key = random.nextInt(2000) - 1000;
+                if (random.nextInt(3) == 0) {
+                    st.delete(key);
+                    expected.remove(key);
+                } else {
+                    st.put(key, i);
+                    expected.put(key, i);
+                }
+                if (i % 1000 == 0) check(expected, st, random);
+            }
+            st.compact();
+            assertEquals(1, st.runs());
+            check(expected, st, random);
+            assertEquals(expected.size(), st.size());
+            List<Integer> keys = new ArrayList<>();
+            for (Integer key : st.keys()) keys.add(key);
+            assertEquals(new ArrayList<>(expected.keySet()), keys);
+        }
+    }
+
+    @Test
+    public void reopenRecoversFlushedRuns() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        TreeMap<String, String> expected = new TreeMap<>();
+        try (LSMST<String, String> st = new LSMST<>(dir, LSMST.Codec.strings(), LSMST.Codec.strings(), 64, 100)) {
+            for (int i = 0; i < 1000; i++) {
+                st.put("key" + i, "value" + i);
+                expected.put("key" + i, "value" + i);
+            }
+            for (int i = 0; i < 1000; i += 3) {
+                st.delete("key" + i);
+                expected.remove("key" + i);
+            }
+        }
+        try (LSMST<String, String> st = new LSMST<>(dir, LSMST.Codec.strings(), LSMST.Codec.strings())) {
+            assertTrue(st.runs() > 1);
+            List<String> keys = new ArrayList<>();
+            for (String key : st.keys()) keys.add(key);
+            assertEquals(new ArrayList<>(expected.keySet()), keys);
+            st.compact();
+            assertEquals("value1", st.get("key1"));
+            assertNull(st.get("key0"));
+        }
+    }
+
+    private static int runFiles(Path dir) throws IOException {
+        int n = 0;
+        for (Path file : Files.newDirectoryStream(dir, "*.sst")) n++;
+        return n;
+    }
+
+    /**
+     * 遍历的过程中合并：输入的run在迭代器结束之前不会被关闭和删除，迭代器仍然看到遍历开始时的内容
+     */
+    @Test
+    public void compactionWaitsForOpenIterators() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (LSMST<Integer, Integer> st = new LSMST<>(dir, LSMST.Codec.integers(), LSMST.Codec.integers(), 10, 100)) {
+            for (int i = 0; i < 100; i++) st.put(i, i);
+            assertEquals(10, runFiles(dir));
+            Iterator<Integer> it = st.keys().iterator();
+            assertEquals(Integer.valueOf(0), it.next());
+            for (int i = 0; i < 100; i += 2) st.delete(i);
+            st.compact();
+            assertEquals(1, st.runs());
+            assertEquals(11, runFiles(dir));
+            for (int i = 1; i < 100; i++) assertEquals(Integer.valueOf(i), it.next());
+            assertFalse(it.hasNext());
+            assertEquals(1, runFiles(dir));
+            assertEquals(50, st.size());
+            assertFalse(st.isEmpty());
+            assertEquals(1, runFiles(dir));
+        }
+    }
+
+    @Test
+    public void isEmptySkipsTombstones() throws IOException {
+        try (LSMST<Integer, Integer> st = new LSMST<>(folder.getRoot().toPath(), LSMST.Codec.integers(), LSMST.Codec.integers(), 100, 100)) {
+            assertTrue(st.isEmpty());
+            for (int i = 0; i < 1000; i++) st.put(i, i);
+            for (int i = 0; i < 999; i++) st.delete(i);
+            assertFalse(st.isEmpty());
+            assertEquals(Integer.valueOf(999), st.ceiling(0));
+            st.delete(999);
+            assertTrue(st.isEmpty());
+            assertNull(st.ceiling(0));
+            st.put(500, 1);
+            assertFalse(st.isEmpty());
+            st.compact();
+            assertEquals(1, st.size());
+            assertEquals(Integer.valueOf(500), st.ceiling(500));
+            assertNull(st.ceiling(501));
+        }
+    }
+
+    /**
+     * 合并结果的临时文件位置上有一个目录，后台合并失败：close()抛出这个异常，原来的run不受影响
+     */
+    @Test
+    public void compactionFailureIsReported() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        LSMST<Integer, Integer> st = new LSMST<>(dir, LSMST.Codec.integers(), LSMST.Codec.integers(), 1, 4);
+        Files.createDirectory(dir.resolve("run-0-3.sst.tmp"));
+        for (int i = 0; i < 4; i++) st.put(i, i);
+        try {
+            st.close();
+            fail();
+        } catch (IOException e) {
+            assertNotNull(e.getCause());
+        }
+        try (LSMST<Integer, Integer> reopened = new LSMST<>(dir, LSMST.Codec.integers(), LSMST.Codec.integers())) {
+            assertEquals(4, reopened.runs());
+            for (int i = 0; i < 4; i++) assertEquals(Integer.valueOf(i), reopened.get(i));
+        }
+    }
+
+    @Test
+    public void integerCodecPreservesOrder() {
+        LSMST.Codec<Integer> codec = LSMST.Codec.integers();
+        int[] values = {Integer.MIN_VALUE, -1000, -1, 0, 1, 1000, Integer.MAX_VALUE};
+        for (int i = 0; i + 1 < values.length; i++) {
+            assertTrue(MappedBinarySearchST.compare(codec.encode(values[i]), codec.encode(values[i + 1])) < 0);
+            assertEquals(Integer.valueOf(values[i]), codec.decode(codec.encode(values[i])));
+        }
+    }
+}
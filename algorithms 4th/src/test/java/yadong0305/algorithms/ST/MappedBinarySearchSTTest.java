@@ -0,0 +1,134 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class MappedBinarySearchSTTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static TreeMap<byte[], byte[]> randomTable(Random random, int n, int width) {
+        TreeMap<byte[], byte[]> table = new TreeMap<>(MappedBinarySearchST::compare);
+        while (table.size() < n) {
+            byte[] key = new byte[width > 0 ? width : random.nextInt(6)];
+            random.nextBytes(key);
+            table.put(key, ("v" + table.size()).getBytes(StandardCharsets.UTF_8));
+        }
+        return table;
+    }
+
+    private Path write(TreeMap<byte[], byte[]> table) throws IOException {
+        Path file = folder.newFile().toPath();
+        MappedBinarySearchST.write(file, table.keySet().toArray(new byte[0][]), table.values().toArray(new byte[0][]));
+        return file;
+    }
+
+    private static void check(TreeMap<byte[], byte[]> expected, MappedBinarySearchST st, Random random, int width) {
+        assertEquals(expected.size(), st.size());
+        for (Map.Entry<byte[], byte[]> e : expected.entrySet()) {
+            assertArrayEquals(e.getValue(), st.get(e.getKey()));
+        }
+        List<byte[]> keys = new ArrayList<>(expected.keySet());
+        for (int i = 0; i < keys.size(); i++) {
+            assertArrayEquals(keys.get(i), st.select(i));
+            assertEquals(i, st.rank(keys.get(i)));
+        }
+        for (int i = 0; i < 1000; i++) {
+            byte[] q = new byte[width > 0 ? width : random.nextInt(6)];
+            random.nextBytes(q);
+            assertEquals(expected.containsKey(q), st.contains(q));
+            assertEquals(expected.headMap(q).size(), st.rank(q));
+            assertArrayEquals(expected.floorKey(q), st.floor(q));
+            assertArrayEquals(expected.ceilingKey(q), st.ceiling(q));
+        }
+        byte[] lo = keys.get(keys.size() / 4);
+        byte[] hi = keys.get(keys.size() / 2);
+        int n = 0;
+        for (byte[] key : st.keys(lo, hi)) assertArrayEquals(keys.get(keys.size() / 4 + n++), key);
+        assertEquals(keys.size() / 2 - keys.size() / 4 + 1, n);
+        assertEquals(n, st.size(lo, hi));
+    }
+
+    @Test
+    public void fixedWidthKeys() throws IOException {
+        Random random = new Random(12);
+        TreeMap<byte[], byte[]> expected = randomTable(random, 5000, 8);
+        try (MappedBinarySearchST st = MappedBinarySearchST.open(write(expected))) {
+            check(expected, st, random, 8);
+        }
+    }
+
+    @Test
+    public void variableWidthKeysAcrossSegments() throws IOException {
+        Random random = new Random(13);
+        TreeMap<byte[], byte[]> expected = randomTable(random, 3000, 0);
+        Path file = write(expected);
+        try (MappedBinarySearchST st = MappedBinarySearchST.open(file, 4)) {
+            check(expected, st, random, 0);
+        }
+        try (MappedBinarySearchST st = MappedBinarySearchST.open(file)) {
+            check(expected, st, random, 0);
+        }
+    }
+
+    @Test
+    public void emptyTable() throws IOException {
+        Path file = folder.newFile().toPath();
+        MappedBinarySearchST.write(file, new byte[0][], new byte[0][]);
+        try (MappedBinarySearchST st = MappedBinarySearchST.open(file)) {
+            assertTrue(st.isEmpty());
+            assertNull(st.min());
+            assertNull(st.get(new byte[]{1}));
+            assertFalse(st.keys().iterator().hasNext());
+        }
+    }
+
+    /**
+     * Writer逐项写入的文件和write()一次写入的完全相同，临时文件都被删除
+     */
+    @Test
+    public void writerMatchesWrite() throws IOException {
+        Random random = new Random(14);
+        for (int width : new int[]{8, 0}) {
+            TreeMap<byte[], byte[]> expected = randomTable(random, 2000, width);
+            Path dir = folder.newFolder().toPath();
+            Path file = dir.resolve("table");
+            try (MappedBinarySearchST.Writer writer = MappedBinarySearchST.writer(file)) {
+                for (Map.Entry<byte[], byte[]> e : expected.entrySet()) writer.add(e.getKey(), e.getValue());
+                writer.finish();
+            }
+            assertArrayEquals(Files.readAllBytes(write(expected)), Files.readAllBytes(file));
+            assertEquals(1, dir.toFile().list().length);
+            try (MappedBinarySearchST st = MappedBinarySearchST.open(file)) {
+                check(expected, st, random, width);
+            }
+        }
+        Path dir = folder.newFolder().toPath();
+        try (MappedBinarySearchST.Writer writer = MappedBinarySearchST.writer(dir.resolve("table"))) {
+            writer.add(new byte[]{2}, new byte[]{0});
+            writer.add(new byte[]{1}, new byte[]{0});
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        assertEquals(0, dir.toFile().list().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsortedKeysAreRejected() throws IOException {
+        MappedBinarySearchST.write(folder.newFile().toPath(), new byte[][]{{2}, {1}}, new byte[][]{{0}, {0}});
+    }
+}
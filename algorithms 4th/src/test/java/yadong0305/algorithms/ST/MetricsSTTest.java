@@ -0,0 +1,143 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MetricsSTTest {
+
+    @Test
+    public void bucketsAreContiguousAndBounded() {
+        int last = -1;
+        for (long v = 0; v < 1 << 16; v++) {
+            int i = LatencyHistogram.index(v);
+            assertTrue(i == last || i == last + 1);
+            assertTrue(LatencyHistogram.highest(i) >= v);
+            assertTrue(LatencyHistogram.highest(i) - v <= v / 32);
+            last = i;
+        }
+    }
+
+    @Test
+    public void percentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100000; v++) histogram.record(v);
+        LatencyHistogram.Snapshot s = histogram.snapshot();
+        assertEquals(100000, s.count());
+        assertEquals(100000, s.max());
+        assertEquals(50000.5, s.mean(), 1e-9);
+        for (double p : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            long expected = (long) (p * 100000);
+            long actual = s.percentile(p);
+            assertTrue(p + ": " + actual, actual >= expected && actual <= expected + expected / 32);
+        }
+        assertEquals(1, s.percentile(0));
+        assertEquals(100000, s.percentile(1));
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100000; i++) histogram.record(i % 1000);
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        assertEquals(400000, histogram.snapshot().count());
+    }
+
+    @Test
+    public void decoratorCountsOperations() {
+        MetricsOrderedST<Integer, Integer> st = new MetricsOrderedST<>(new RedBlackBST<Integer, Integer>());
+        Random random = new Random(18);
+        for (int i = 0; i < 1000; i++) st.put(random.nextInt(500), i);
+        for (int i = 0; i < 300; i++) st.get(i);
+        for (int i = 0; i < 200; i++) st.rank(i);
+        st.floor(250);
+        STMetrics.Snapshot s = st.snapshot();
+        assertEquals(1000, s.count(MetricsST.Operation.PUT));
+        assertEquals(300, s.count(MetricsST.Operation.GET));
+        assertEquals(200, s.count(MetricsST.Operation.RANK));
+        assertEquals(1, s.count(MetricsST.Operation.FLOOR));
+        assertEquals(0, s.count(MetricsST.Operation.SELECT));
+        assertFalse(s.operations().containsKey(MetricsST.Operation.SELECT));
+        assertTrue(s.toString().contains("st_operations_total{op=\"get\"} 300\n"));
+        assertTrue(s.toString().contains("st_latency_nanos{op=\"rank\",quantile=\"0.99\"} "));
+
+        MetricsST<Integer, Integer> hash = new MetricsST<>(new LinearProbingHashST<Integer, Integer>());
+        for (int i = 0; i < 100; i++) hash.put(i, i);
+        for (int i = 0; i < 100; i++) assertEquals(Integer.valueOf(i), hash.get(i));
+        assertEquals(100, hash.snapshot().count(MetricsST.Operation.GET));
+    }
+
+    /**
+     * 没有打开-Dyadong0305.algorithms.ST.metrics=true时全局计数器始终为0，打开时记录查找、旋转、结点分裂和扩容。
+     * gradle test运行关闭的分支，gradle metricsTest（check依赖它）在打开计数器的JVM中运行另一个分支
+     */
+    @Test
+    public void hooksFollowSwitch() {
+        STMetrics.Snapshot s = hooks(() -> {
+            RedBlackBST<Integer, Integer> st = new RedBlackBST<>();
+            for (int i = 0; i < 1024; i++) st.put(i, i);
+            st.get(512);
+        });
+        if (STMetrics.ENABLED) {
+            assertTrue(s.height() >= 10 && s.height() <= 20);
+            assertTrue(s.rotations() > 0);
+        }
+        s = hooks(() -> {
+            BinarySearchST<Integer, Integer> st = new BinarySearchST<>(1);
+            for (int i = 0; i < 1024; i++) st.put(i, i);
+        });
+        if (STMetrics.ENABLED) assertTrue(s.resizes() >= 10);
+        s = hooks(() -> {
+            PersistentRedBlackBST<Integer, Integer> st = new PersistentRedBlackBST<>();
+            for (int i = 0; i < 1024; i++) st.put(i, i);
+            st.get(512);
+        });
+        if (STMetrics.ENABLED) {
+            assertTrue(s.height() >= 10 && s.height() <= 20);
+            assertTrue(s.rotations() > 0);
+        }
+        s = hooks(() -> {
+            IntToLongRedBlackBST st = new IntToLongRedBlackBST(1);
+            for (int i = 0; i < 1024; i++) st.put(i, i);
+            st.get(512, -1);
+        });
+        if (STMetrics.ENABLED) {
+            assertTrue(s.height() >= 10 && s.height() <= 20);
+            assertTrue(s.rotations() > 0);
+            assertTrue(s.resizes() >= 10);
+        }
+        s = hooks(() -> {
+            BTreeST<Integer, Integer> st = new BTreeST<>(4);
+            for (int i = 0; i < 1024; i++) st.put(i, i);
+            st.get(512);
+        });
+        if (STMetrics.ENABLED) {
+            assertTrue(s.height() >= 5 && s.height() <= 10);
+            assertTrue(s.splits() >= 1024 / 4);
+            assertEquals(0, s.rotations());
+        }
+    }
+
+    /**
+     * 清零全局计数器，运行ops，返回计数器的快照。关闭时所有的计数器都应该为0，打开时至少有比较
+     */
+    private static STMetrics.Snapshot hooks(Runnable ops) {
+        STMetrics.reset();
+        ops.run();
+        STMetrics.Snapshot s = STMetrics.snapshot();
+        if (STMetrics.ENABLED) {
+            assertTrue(s.comparisons() > 0);
+        } else {
+            assertEquals(0, s.comparisons() + s.visits() + s.height() + s.rotations() + s.resizes() + s.splits());
+        }
+        return s;
+    }
+}
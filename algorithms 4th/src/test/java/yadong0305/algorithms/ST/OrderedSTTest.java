@@ -0,0 +1,70 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.*;
+
+/**
+ * 对所有OrderedST的实现运行相同的范围查找检查
+ */
+public class OrderedSTTest {
+
+    private static List<OrderedST<Integer, Integer>> tables() {
+        List<OrderedST<Integer, Integer>> tables = new ArrayList<>();
+        tables.add(new BinarySearchST<>(1));
+        tables.add(new BST<>());
+        tables.add(new RedBlackBST<>());
+        tables.add(new BTreeST<>(4));
+        tables.add(new BTreeST<>());
+        tables.add(new SplayBST<>());
+        tables.add(new ConcurrentSkipListST<>());
+        tables.add(new PersistentRedBlackBST<>());
+        tables.add(new PackedMemoryArrayST<>());
+        return tables;
+    }
+
+    @Test
+    public void rangeIterationMatchesTreeMap() {
+        for (OrderedST<Integer, Integer> st : tables()) {
+            Random random = new Random(8);
+            TreeMap<Integer, Integer> expected = new TreeMap<>();
+            for (int i = 0; i < 5000; i++) {
+                int key = random.nextInt(10000);
+                st.put(key, i);
+                expected.put(key, i);
+            }
+            for (int i = 0; i < 200; i++) {
+                int lo = random.nextInt(10200) - 100;
+                int hi = lo + random.nextInt(500);
+                List<Integer> keys = new ArrayList<>();
+                for (Integer key : st.keys(lo, hi)) keys.add(key);
+                assertEquals(new ArrayList<>(expected.subMap(lo, true, hi, true).keySet()), keys);
+
+                List<Integer> values = new ArrayList<>();
+                st.forEachInRange(lo, hi, (k, v) -> values.add(v));
+                assertEquals(new ArrayList<>(expected.subMap(lo, true, hi, true).values()), values);
+
+                assertEquals(keys, StreamSupport.stream(st.spliterator(lo, hi), true).collect(Collectors.toList()));
+            }
+        }
+    }
+
+    @Test
+    public void iterationCanStopEarly() {
+        for (OrderedST<Integer, Integer> st : tables()) {
+            for (int i = 0; i < 10000; i++) st.put(i, i);
+            Iterator<Integer> it = st.keys().iterator();
+            assertEquals(Integer.valueOf(0), it.next());
+            assertEquals(Integer.valueOf(1), it.next());
+            assertFalse(st.keys(10000, 20000).iterator().hasNext());
+        }
+    }
+}
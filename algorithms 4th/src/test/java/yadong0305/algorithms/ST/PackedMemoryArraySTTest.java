@@ -0,0 +1,107 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class PackedMemoryArraySTTest {
+
+    private static void assertSameContents(TreeMap<Integer, Integer> expected, PackedMemoryArrayST<Integer, Integer> st) {
+        assertTrue(st.check());
+        assertEquals(expected.size(), st.size());
+        int i = 0;
+        for (Map.Entry<Integer, Integer> e : expected.entrySet()) {
+            assertEquals(e.getValue(), st.get(e.getKey()));
+            assertEquals(e.getKey(), st.select(i));
+            assertEquals(i++, st.rank(e.getKey()));
+        }
+        assertEquals(expected.isEmpty() ? null : expected.firstKey(), st.min());
+        assertEquals(expected.isEmpty() ? null : expected.lastKey(), st.max());
+    }
+
+    @Test
+    public void randomOperationsMatchTreeMap() {
+        PackedMemoryArrayST<Integer, Integer> st = new PackedMemoryArrayST<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(24);
+        for (int i = 0; i < 200000; i++) {
+            int key = random.nextInt(20000);
+            int op = random.nextInt(10);
+            if (op < 5) {
+                st.put(key, i);
+                expected.put(key, i);
+            } else if (op < 8) {
+                st.delete(key);
+                expected.remove(key);
+            } else if (op == 8) {
+                assertEquals(expected.floorKey(key), st.floor(key));
+                assertEquals(expected.ceilingKey(key), st.ceiling(key));
+                assertEquals(expected.headMap(key).size(), st.rank(key));
+                assertEquals(expected.containsKey(key), st.contains(key));
+            } else {
+                st.deleteMin();
+                if (!expected.isEmpty()) expected.pollFirstEntry();
+            }
+            if (i % 10000 == 0) assertSameContents(expected, st);
+        }
+        assertSameContents(expected, st);
+    }
+
+    /**
+     * 有序插入总是插入到最后一段，是需要最多重新分布的情况；全部删除之后数组收缩回最小的容量
+     */
+    @Test
+    public void sequentialInsertsAndDeletes() {
+        PackedMemoryArrayST<Integer, Integer> st = new PackedMemoryArrayST<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        int n = 100000;
+        for (int i = 0; i < n; i++) {
+            st.put(i, i);
+            st.put(-i - 1, i);
+            expected.put(i, i);
+            expected.put(-i - 1, i);
+        }
+        assertSameContents(expected, st);
+        for (int i = 0; i < n; i++) {
+            st.deleteMax();
+            expected.pollLastEntry();
+            if (i % 2 == 0) {
+                st.delete(-i - 1);
+                expected.remove(-i - 1);
+            }
+        }
+        assertSameContents(expected, st);
+        while (!st.isEmpty()) st.deleteMin();
+        assertTrue(st.check());
+        assertNull(st.min());
+        assertFalse(st.keys().iterator().hasNext());
+    }
+
+    @Test
+    public void bulkLoad() {
+        Random random = new Random(25);
+        for (int n : new int[]{0, 1, 15, 16, 17, 1000, 100000}) {
+            Integer[] keys = new Integer[n];
+            Integer[] values = new Integer[n];
+            TreeMap<Integer, Integer> expected = new TreeMap<>();
+            for (int i = 0; i < n; i++) {
+                keys[i] = random.nextInt(2 * n);
+                values[i] = i;
+                expected.put(keys[i], i);
+            }
+            PackedMemoryArrayST<Integer, Integer> st = PackedMemoryArrayST.fromUnsorted(keys, values);
+            assertSameContents(expected, st);
+            for (int i = 0; i < n; i++) {
+                st.put(random.nextInt(4 * n), -i);
+                assertTrue(i % 1000 != 0 || st.check());
+            }
+            assertTrue(st.check());
+            Integer[] sorted = expected.keySet().toArray(new Integer[0]);
+            assertSameContents(expected, PackedMemoryArrayST.fromSorted(sorted, expected.values().toArray(new Integer[0])));
+        }
+    }
+}
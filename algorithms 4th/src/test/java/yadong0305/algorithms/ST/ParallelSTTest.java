@@ -0,0 +1,107 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.*;
+
+public class ParallelSTTest {
+
+    private static final int N = 200000;
+
+    private static List<OrderedST<Integer, Integer>> tables() {
+        Integer[] keys = new Integer[N];
+        Integer[] values = new Integer[N];
+        for (int i = 0; i < N; i++) {
+            keys[i] = 3 * i;
+            values[i] = i;
+        }
+        BTreeST<Integer, Integer> btree = new BTreeST<>();
+        for (int i = 0; i < N; i++) btree.put(keys[i], values[i]);
+        return Arrays.asList(
+                BinarySearchST.fromSorted(keys, values),
+                BST.fromSorted(keys, values),
+                RedBlackBST.fromSorted(keys, values),
+                btree
+        );
+    }
+
+    @Test
+    public void splitCoversRangeWithoutOverlap() {
+        for (OrderedST<Integer, Integer> st : tables()) {
+            List<Integer> bounds = ParallelST.split(st, -7, 3 * N / 2 + 1);
+            assertTrue(bounds.size() > 2);
+            int total = 0;
+            for (int i = 0; i < bounds.size(); i += 2) {
+                assertTrue(bounds.get(i) <= bounds.get(i + 1));
+                if (i > 0) assertTrue(bounds.get(i - 1) < bounds.get(i));
+                total += st.size(bounds.get(i), bounds.get(i + 1));
+            }
+            assertEquals(st.size(-7, 3 * N / 2 + 1), total);
+            assertTrue(ParallelST.split(st, 5, 4).isEmpty());
+        }
+    }
+
+    @Test
+    public void matchesSequential() {
+        for (OrderedST<Integer, Integer> st : tables()) {
+            int lo = 1000;
+            int hi = 2 * N + 1;
+            long expectedSum = 0;
+            long expectedEven = 0;
+            for (Integer key : st.keys(lo, hi)) {
+                expectedSum += st.get(key);
+                if (key % 2 == 0) expectedEven++;
+            }
+            LongAdder sum = new LongAdder();
+            ParallelST.forEach(st, lo, hi, (key, value) -> sum.add(value));
+            assertEquals(expectedSum, sum.sum());
+            assertEquals(expectedSum, (long) ParallelST.reduce(st, lo, hi, 0L, (key, value) -> (long) value, Long::sum));
+            assertEquals(expectedEven, ParallelST.count(st, lo, hi, (key, value) -> key % 2 == 0));
+            assertEquals(N, ParallelST.count(st, (key, value) -> true));
+            assertEquals(0, ParallelST.count(st, hi, lo, (key, value) -> true));
+        }
+    }
+
+    /**
+     * 列表连接没有交换律，结果必须是按键的顺序排列的
+     */
+    @Test
+    public void reduceKeepsKeyOrder() {
+        for (OrderedST<Integer, Integer> st : tables()) {
+            List<Integer> keys = ParallelST.reduce(st, Collections.emptyList(), (key, value) -> Collections.singletonList(key), (a, b) -> {
+                List<Integer> c = new ArrayList<>(a.size() + b.size());
+                c.addAll(a);
+                c.addAll(b);
+                return c;
+            });
+            assertEquals(N, keys.size());
+            for (int i = 0; i < N; i++) assertEquals(3 * i, (int) keys.get(i));
+        }
+    }
+
+    @Test
+    public void parallelBuildMatchesSequential() {
+        Random random = new Random(20);
+        Integer[] keys = new Integer[N];
+        Integer[] values = new Integer[N];
+        for (int i = 0; i < N; i++) {
+            keys[i] = random.nextInt(N);
+            values[i] = i;
+        }
+        RedBlackBST<Integer, Integer> rb = RedBlackBST.parallelFromUnsorted(keys, values);
+        assertTrue(rb.check());
+        List<OrderedST<Integer, Integer>> parallel = Arrays.asList(rb, BST.parallelFromUnsorted(keys, values), BinarySearchST.parallelFromUnsorted(keys, values));
+        OrderedST<Integer, Integer> expected = RedBlackBST.fromUnsorted(keys, values);
+        for (OrderedST<Integer, Integer> st : parallel) {
+            assertEquals(expected.size(), st.size());
+            for (Integer key : expected.keys()) assertEquals(expected.get(key), st.get(key));
+        }
+    }
+}
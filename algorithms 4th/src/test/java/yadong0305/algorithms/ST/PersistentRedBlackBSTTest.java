@@ -0,0 +1,74 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class PersistentRedBlackBSTTest {
+
+    private static void assertSameContents(TreeMap<Integer, Integer> expected, PersistentRedBlackBST<Integer, Integer> st) {
+        assertEquals(expected.size(), st.size());
+        List<Integer> keys = new ArrayList<>();
+        for (Integer key : st.keys()) {
+            keys.add(key);
+            assertEquals(expected.get(key), st.get(key));
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), keys);
+    }
+
+    @Test
+    public void snapshotsAreNotAffectedByLaterUpdates() {
+        Random random = new Random(10);
+        PersistentRedBlackBST<Integer, Integer> st = new PersistentRedBlackBST<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        List<PersistentRedBlackBST<Integer, Integer>> snapshots = new ArrayList<>();
+        List<TreeMap<Integer, Integer>> copies = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(500);
+            int op = random.nextInt(10);
+            if (op < 5) {
+                st.put(key, i);
+                expected.put(key, i);
+            } else if (op < 8) {
+                st.delete(key);
+                expected.remove(key);
+            } else if (op == 8) {
+                st.deleteMin();
+                expected.pollFirstEntry();
+            } else {
+                st.deleteMax();
+                expected.pollLastEntry();
+            }
+            int q = random.nextInt(550) - 20;
+            assertEquals(expected.get(q), st.get(q));
+            assertEquals(expected.headMap(q).size(), st.rank(q));
+            if (i % 1000 == 0) {
+                snapshots.add(st.snapshot());
+                copies.add(new TreeMap<>(expected));
+            }
+        }
+        assertSameContents(expected, st);
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertSameContents(copies.get(i), snapshots.get(i));
+        }
+    }
+
+    @Test
+    public void snapshotCanBeUpdatedIndependently() {
+        PersistentRedBlackBST<Integer, Integer> st = new PersistentRedBlackBST<>();
+        for (int i = 0; i < 1000; i++) st.put(i, i);
+        PersistentRedBlackBST<Integer, Integer> fork = st.snapshot();
+        for (int i = 0; i < 1000; i += 2) fork.delete(i);
+        fork.put(5, -5);
+        assertEquals(1000, st.size());
+        assertEquals(Integer.valueOf(5), st.get(5));
+        assertEquals(500, fork.size());
+        assertEquals(Integer.valueOf(-5), fork.get(5));
+        assertNull(fork.get(4));
+    }
+}
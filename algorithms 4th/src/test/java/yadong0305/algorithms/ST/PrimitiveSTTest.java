@@ -0,0 +1,162 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class PrimitiveSTTest {
+
+    @Test
+    public void intToLongRedBlackBSTMatchesTreeMap() {
+        Random random = new Random(2);
+        IntToLongRedBlackBST st = new IntToLongRedBlackBST(1);
+        TreeMap<Integer, Long> expected = new TreeMap<>();
+        for (int i = 0; i < 50000; i++) {
+            int key = random.nextInt(2000) - 1000;
+            int op = random.nextInt(10);
+            if (op < 5) {
+                st.put(key, i);
+                expected.put(key, (long) i);
+            } else if (op < 8) {
+                st.delete(key);
+                expected.remove(key);
+            } else if (op == 8) {
+                st.deleteMin();
+                expected.pollFirstEntry();
+            } else {
+                st.deleteMax();
+                expected.pollLastEntry();
+            }
+            assertEquals(expected.size(), st.size());
+            int q = random.nextInt(2200) - 1100;
+            assertEquals(expected.getOrDefault(q, -1L).longValue(), st.get(q, -1L));
+            assertEquals(expected.headMap(q).size(), st.rank(q));
+            Integer floor = expected.floorKey(q);
+            if (floor != null) assertEquals(floor.intValue(), st.floor(q));
+            Integer ceiling = expected.ceilingKey(q);
+            if (ceiling != null) assertEquals(ceiling.intValue(), st.ceiling(q));
+        }
+        assertArrayEquals(toArray(expected), st.keys());
+        int k = 0;
+        for (int key : expected.keySet()) assertEquals(key, st.select(k++));
+    }
+
+    @Test
+    public void intBinarySearchSTMatchesTreeMap() {
+        Random random = new Random(3);
+        IntBinarySearchST<Integer> st = new IntBinarySearchST<>(1);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(1000);
+            if (random.nextInt(3) < 2) {
+                st.put(key, i);
+                expected.put(key, i);
+            } else {
+                st.delete(key);
+                expected.remove(key);
+            }
+            int q = random.nextInt(1100) - 50;
+            assertEquals(expected.get(q), st.get(q));
+            assertEquals(expected.headMap(q).size(), st.rank(q));
+            assertEquals(expected.subMap(100, true, 400, true).size(), st.size(100, 400));
+        }
+        assertArrayEquals(toArray(expected), st.keys());
+    }
+
+    @Test
+    public void frozenLayoutMatchesTreeMap() {
+        for (int n : new int[]{0, 1, 2, 7, 8, 1000, 50000}) {
+            Random random = new Random(n);
+            LongBinarySearchST<Integer> st = new LongBinarySearchST<>(1);
+            TreeMap<Long, Integer> expected = new TreeMap<>();
+            while (expected.size() < n) {
+                long key = random.nextInt(4 * n) - 2L * n;
+                st.put(key, (int) key);
+                expected.put(key, (int) key);
+            }
+            st.freeze();
+            assertTrue(st.isFrozen());
+            for (int i = 0; i < 5000; i++) {
+                long q = random.nextInt(4 * n + 10) - 2L * n - 5;
+                assertEquals(expected.headMap(q).size(), st.rank(q));
+                assertEquals(expected.get(q), st.get(q));
+                if (expected.floorKey(q) != null) assertEquals(expected.floorKey(q).longValue(), st.floor(q));
+                if (expected.ceilingKey(q) != null) assertEquals(expected.ceilingKey(q).longValue(), st.ceiling(q));
+            }
+            st.put(Long.MIN_VALUE, 0);
+            assertFalse(st.isFrozen());
+            assertEquals(0, st.rank(Long.MIN_VALUE));
+        }
+    }
+
+    /**
+     * 表中只有偶数键，奇数和两端之外的查询都是不存在的键，rank()要落在正确的空隙中
+     */
+    @Test
+    public void intFrozenLayoutMatchesTreeMap() {
+        for (int n : new int[]{0, 1, 2, 7, 8, 1000, 50000}) {
+            Random random = new Random(n);
+            IntBinarySearchST<Integer> st = new IntBinarySearchST<>(1);
+            TreeMap<Integer, Integer> expected = new TreeMap<>();
+            while (expected.size() < n) {
+                int key = 2 * (random.nextInt(4 * n) - 2 * n);
+                st.put(key, key);
+                expected.put(key, key);
+            }
+            st.freeze();
+            assertTrue(st.isFrozen());
+            int[] queries = new int[5002];
+            for (int i = 0; i < 5000; i++) queries[i] = random.nextInt(16 * n + 10) - 8 * n - 5;
+            queries[5000] = Integer.MIN_VALUE;
+            queries[5001] = Integer.MAX_VALUE;
+            for (int q : queries) {
+                assertEquals(expected.headMap(q).size(), st.rank(q));
+                assertEquals(expected.get(q), st.get(q));
+                assertEquals(expected.containsKey(q), st.contains(q));
+                Integer floor = expected.floorKey(q);
+                if (floor != null) assertEquals(floor.intValue(), st.floor(q));
+                else assertThrowsNoSuchElement(() -> st.floor(q));
+                Integer ceiling = expected.ceilingKey(q);
+                if (ceiling != null) assertEquals(ceiling.intValue(), st.ceiling(q));
+                else assertThrowsNoSuchElement(() -> st.ceiling(q));
+            }
+            assertEquals(expected.subMap(-n, true, n, true).size(), st.size(-n, n));
+            if (n > 0) {
+                int key = expected.firstKey();
+                st.put(key, -1);
+                assertTrue(st.isFrozen());
+                assertEquals(Integer.valueOf(-1), st.get(key));
+                st.delete(key);
+                assertFalse(st.isFrozen());
+                assertNull(st.get(key));
+            }
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void floorBelowMinimumThrows() {
+        LongBinarySearchST<String> st = new LongBinarySearchST<>(4);
+        st.put(10L, "a");
+        st.floor(9L);
+    }
+
+    private static void assertThrowsNoSuchElement(Runnable r) {
+        try {
+            r.run();
+            fail();
+        } catch (NoSuchElementException e) {
+        }
+    }
+
+    private static int[] toArray(Map<Integer, ?> map) {
+        int[] a = new int[map.size()];
+        int i = 0;
+        for (int key : map.keySet()) a[i++] = key;
+        return a;
+    }
+}
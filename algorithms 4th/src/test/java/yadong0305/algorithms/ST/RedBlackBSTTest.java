@@ -0,0 +1,71 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class RedBlackBSTTest {
+
+    @Test
+    public void randomOperationsMatchTreeMap() {
+        Random random = new Random(1);
+        RedBlackBST<Integer, Integer> st = new RedBlackBST<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(1000);
+            int op = random.nextInt(10);
+            if (op < 5) {
+                st.put(key, i);
+                expected.put(key, i);
+            } else if (op < 8) {
+                st.delete(key);
+                expected.remove(key);
+            } else if (op == 8) {
+                st.deleteMin();
+                expected.pollFirstEntry();
+            } else {
+                st.deleteMax();
+                expected.pollLastEntry();
+            }
+            assertEquals(expected.size(), st.size());
+            int q = random.nextInt(1100) - 50;
+            assertEquals(expected.get(q), st.get(q));
+            assertEquals(expected.containsKey(q), st.contains(q));
+            assertEquals(expected.floorKey(q), st.floor(q));
+            assertEquals(expected.ceilingKey(q), st.ceiling(q));
+            assertEquals(expected.headMap(q).size(), st.rank(q));
+            if (i % 500 == 0) assertTrue(st.check());
+        }
+        assertTrue(st.check());
+        assertEquals(expected.isEmpty() ? null : expected.firstKey(), st.min());
+        assertEquals(expected.isEmpty() ? null : expected.lastKey(), st.max());
+        List<Integer> keys = new ArrayList<>();
+        for (Integer key : st.keys()) keys.add(key);
+        assertEquals(new ArrayList<>(expected.keySet()), keys);
+        for (int k = 0; k < keys.size(); k++) assertEquals(keys.get(k), st.select(k));
+        keys.clear();
+        for (Integer key : st.keys(200, 700)) keys.add(key);
+        assertEquals(new ArrayList<>(expected.subMap(200, true, 700, true).keySet()), keys);
+        assertEquals(keys.size(), st.size(200, 700));
+    }
+
+    @Test
+    public void sortedInputStaysBalanced() {
+        RedBlackBST<Integer, Integer> st = new RedBlackBST<>();
+        for (int i = 0; i < 100000; i++) st.put(i, i);
+        assertTrue(st.check());
+        for (int i = 0; i < 100000; i += 2) st.delete(i);
+        assertTrue(st.check());
+        assertEquals(50000, st.size());
+        assertEquals(Integer.valueOf(1), st.min());
+        assertEquals(Integer.valueOf(99999), st.select(49999));
+        while (!st.isEmpty()) st.deleteMin();
+        assertNull(st.min());
+        assertFalse(st.keys().iterator().hasNext());
+    }
+}
@@ -0,0 +1,137 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class SetOperationsTest {
+
+    private static TreeMap<Integer, Long> random(Random random, int n, int range) {
+        TreeMap<Integer, Long> map = new TreeMap<>();
+        while (map.size() < n) map.put(random.nextInt(range), (long) random.nextInt(1000));
+        return map;
+    }
+
+    /**
+     * 逐个插入，使得树的形状和fromSorted()构造的完全平衡的树不同
+     */
+    private static RedBlackBST<Integer, Long> tree(Map<Integer, Long> map, Monoid<Long> monoid) {
+        RedBlackBST<Integer, Long> st = new RedBlackBST<>(monoid);
+        for (Map.Entry<Integer, Long> e : map.entrySet()) st.put(e.getKey(), e.getValue());
+        return st;
+    }
+
+    private static void assertSameContents(TreeMap<Integer, Long> expected, RedBlackBST<Integer, Long> st) {
+        assertTrue(st.check());
+        assertEquals(expected.size(), st.size());
+        int i = 0;
+        for (Integer key : st.keys()) {
+            assertEquals(expected.get(key), st.get(key));
+            i++;
+        }
+        assertEquals(expected.size(), i);
+        if (!expected.isEmpty()) {
+            long sum = 0;
+            for (long v : expected.values()) sum += v;
+            assertEquals(sum, (long) st.aggregate());
+        }
+    }
+
+    @Test
+    public void splitAndJoin() {
+        Random random = new Random(23);
+        for (int n : new int[]{0, 1, 2, 7, 100, 5000}) {
+            TreeMap<Integer, Long> expected = random(random, n, 4 * n + 1);
+            for (int key : new int[]{-1, 0, 2 * n, 4 * n + 1, expected.isEmpty() ? 0 : expected.lastKey()}) {
+                RedBlackBST<Integer, Long> st = tree(expected, Monoid.longSum());
+                RedBlackBST<Integer, Long> tail = st.split(key);
+                assertSameContents(new TreeMap<>(expected.headMap(key)), st);
+                assertSameContents(new TreeMap<>(expected.tailMap(key)), tail);
+                st.join(tail);
+                assertTrue(tail.isEmpty());
+                assertSameContents(expected, st);
+            }
+        }
+        RedBlackBST<Integer, Long> a = tree(random(random, 10, 100), null);
+        RedBlackBST<Integer, Long> b = tree(random(random, 10, 100), null);
+        try {
+            a.join(b);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     * 大小相差悬殊的两棵树，黑色高度也相差很多
+     */
+    @Test
+    public void matchesTreeMap() {
+        Random random = new Random(24);
+        int[][] sizes = {{0, 50}, {50, 0}, {1, 3000}, {3000, 1}, {20, 20000}, {20000, 20}, {5000, 5000}};
+        for (int[] size : sizes) {
+            for (boolean parallel : new boolean[]{false, true}) {
+                int range = 2 * (size[0] + size[1]) + 1;
+                TreeMap<Integer, Long> x = random(random, size[0], range);
+                TreeMap<Integer, Long> y = random(random, size[1], range);
+
+                TreeMap<Integer, Long> union = new TreeMap<>(x);
+                union.putAll(y);
+                RedBlackBST<Integer, Long> a = tree(x, Monoid.longSum());
+                RedBlackBST<Integer, Long> b = tree(y, Monoid.longSum());
+                if (parallel) a.parallelUnion(b);
+                else a.union(b);
+                assertSameContents(union, a);
+                assertTrue(b.isEmpty());
+
+                TreeMap<Integer, Long> intersection = new TreeMap<>(x);
+                intersection.keySet().retainAll(y.keySet());
+                a = tree(x, Monoid.longSum());
+                b = tree(y, Monoid.longSum());
+                if (parallel) a.parallelIntersection(b);
+                else a.intersection(b);
+                assertSameContents(intersection, a);
+
+                TreeMap<Integer, Long> difference = new TreeMap<>(x);
+                difference.keySet().removeAll(y.keySet());
+                a = tree(x, Monoid.longSum());
+                b = tree(y, Monoid.longSum());
+                if (parallel) a.parallelDifference(b);
+                else a.difference(b);
+                assertSameContents(difference, a);
+            }
+        }
+    }
+
+    @Test
+    public void largeParallelUnion() {
+        int n = 200000;
+        Integer[] keys = new Integer[n];
+        Long[] values = new Long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = 2 * i;
+            values[i] = (long) i;
+        }
+        RedBlackBST<Integer, Long> even = RedBlackBST.fromSorted(keys, values);
+        for (int i = 0; i < n; i++) keys[i] = 2 * i + 1;
+        RedBlackBST<Integer, Long> odd = RedBlackBST.fromSorted(keys, values);
+        even.parallelUnion(odd);
+        assertTrue(even.check());
+        assertEquals(2 * n, even.size());
+        for (int i = 0; i < 2 * n; i++) assertEquals(i, (int) even.select(i));
+        even.difference(even);
+        assertTrue(even.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void differentMonoids() {
+        RedBlackBST<Integer, Long> a = new RedBlackBST<>(Monoid.longSum());
+        RedBlackBST<Integer, Long> b = new RedBlackBST<>();
+        a.put(1, 1L);
+        b.put(2, 2L);
+        a.union(b);
+    }
+}
@@ -0,0 +1,93 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class SplayBSTTest {
+
+    @Test
+    public void randomOperationsMatchTreeMap() {
+        Random random = new Random(16);
+        SplayBST<Integer, Integer> st = new SplayBST<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(1000);
+            int op = random.nextInt(10);
+            if (op < 5) {
+                st.put(key, i);
+                expected.put(key, i);
+            } else if (op < 8) {
+                st.delete(key);
+                expected.remove(key);
+            } else if (op == 8) {
+                st.deleteMin();
+                expected.pollFirstEntry();
+            } else {
+                st.deleteMax();
+                expected.pollLastEntry();
+            }
+            assertEquals(expected.size(), st.size());
+            int q = random.nextInt(1100) - 50;
+            assertEquals(expected.get(q), st.get(q));
+            assertEquals(expected.floorKey(q), st.floor(q));
+            assertEquals(expected.ceilingKey(q), st.ceiling(q));
+            assertEquals(expected.headMap(q).size(), st.rank(q));
+        }
+        List<Integer> keys = new ArrayList<>();
+        for (Integer key : st.keys()) keys.add(key);
+        assertEquals(new ArrayList<>(expected.keySet()), keys);
+        for (int k = 0; k < keys.size(); k++) assertEquals(keys.get(k), st.select(k));
+    }
+
+    @Test
+    public void sortedInputAndHotKeys() {
+        SplayBST<Integer, Integer> st = new SplayBST<>();
+        for (int i = 0; i < 100000; i++) st.put(i, i);
+        for (int i = 0; i < 100000; i++) assertEquals(Integer.valueOf(i), st.get(i));
+        assertTrue(st.depth(77) > 0);
+        assertEquals(Integer.valueOf(77), st.get(77));
+        assertEquals(0, st.depth(77));
+        assertEquals(Integer.valueOf(77), st.select(77));
+        assertEquals(100000, st.size());
+
+        // 反复访问少数几个热点键之后，它们都在根结点附近
+        int[] hot = {5, 31337, 50000, 77777, 99999};
+        for (int round = 0; round < 10; round++) {
+            for (int key : hot) {
+                assertEquals(Integer.valueOf(key), st.get(key));
+                assertEquals(0, st.depth(key));
+            }
+        }
+        for (int key : hot) assertTrue(st.depth(key) < 2 * hot.length);
+        assertEquals(-1, st.depth(-1));
+    }
+
+    @Test
+    public void moveToFrontMatchesHashMap() {
+        Random random = new Random(17);
+        SequentialSearchST<Integer, Integer> st = new SequentialSearchST<>(true);
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(300);
+            if (random.nextInt(3) == 0) {
+                st.delete(key);
+                expected.remove(key);
+            } else {
+                st.put(key, i);
+                expected.put(key, i);
+            }
+            int q = random.nextInt(400);
+            assertEquals(expected.get(q), st.get(q));
+            assertEquals(expected.size(), st.size());
+        }
+        st.get(expected.keySet().iterator().next());
+        assertEquals(expected.keySet().iterator().next(), st.keys().iterator().next());
+    }
+}
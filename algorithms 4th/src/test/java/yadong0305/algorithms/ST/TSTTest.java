@@ -0,0 +1,119 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class TSTTest {
+
+    private static String word(Random random) {
+        int length = 1 + random.nextInt(5);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) sb.append((char) ('a' + random.nextInt(3)));
+        return sb.toString();
+    }
+
+    private static List<String> list(Iterable<String> keys) {
+        List<String> list = new ArrayList<>();
+        for (String key : keys) list.add(key);
+        return list;
+    }
+
+    @Test
+    public void randomOperationsMatchTreeMap() {
+        Random random = new Random(21);
+        TST<Integer> st = new TST<>();
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            String key = word(random);
+            int op = random.nextInt(10);
+            if (op < 6) {
+                st.put(key, i);
+                expected.put(key, i);
+            } else if (op < 8) {
+                st.delete(key);
+                expected.remove(key);
+            } else if (op == 8) {
+                st.deleteMin();
+                expected.pollFirstEntry();
+            } else {
+                st.deleteMax();
+                expected.pollLastEntry();
+            }
+            assertEquals(expected.size(), st.size());
+            String q = word(random);
+            assertEquals(expected.get(q), st.get(q));
+            assertEquals(expected.floorKey(q), st.floor(q));
+            assertEquals(expected.ceilingKey(q), st.ceiling(q));
+            assertEquals(expected.headMap(q).size(), st.rank(q));
+            if (!expected.isEmpty()) {
+                int k = random.nextInt(expected.size());
+                assertEquals(new ArrayList<>(expected.keySet()).get(k), st.select(k));
+            }
+        }
+        assertTrue(st.check());
+        assertEquals(expected.firstKey(), st.min());
+        assertEquals(expected.lastKey(), st.max());
+        assertEquals(new ArrayList<>(expected.keySet()), list(st.keys()));
+        for (int i = 0; i < 200; i++) {
+            String lo = word(random);
+            String hi = word(random);
+            List<String> range = lo.compareTo(hi) <= 0 ? new ArrayList<>(expected.subMap(lo, true, hi, true).keySet()) : new ArrayList<>();
+            assertEquals(range, list(st.keys(lo, hi)));
+            assertEquals(range.size(), st.size(lo, hi));
+            List<String> visited = new ArrayList<>();
+            st.forEachInRange(lo, hi, (key, value) -> {
+                assertEquals(expected.get(key), value);
+                visited.add(key);
+            });
+            assertEquals(range, visited);
+        }
+    }
+
+    @Test
+    public void prefixQueries() {
+        TST<Integer> st = new TST<>();
+        String[] words = {"she", "sells", "sea", "shells", "by", "the", "sea", "shore", "s", "shell"};
+        for (int i = 0; i < words.length; i++) st.put(words[i], i);
+        assertEquals(9, st.size());
+        assertEquals(list(st.keysWithPrefix("sh")), java.util.Arrays.asList("she", "shell", "shells", "shore"));
+        assertEquals(list(st.keysWithPrefix("s")), java.util.Arrays.asList("s", "sea", "sells", "she", "shell", "shells", "shore"));
+        assertTrue(list(st.keysWithPrefix("x")).isEmpty());
+        assertTrue(list(st.keysWithPrefix("shellsx")).isEmpty());
+        assertEquals(9, list(st.keysWithPrefix("")).size());
+        assertEquals("shells", st.longestPrefixOf("shellsort"));
+        assertEquals("shell", st.longestPrefixOf("shell"));
+        assertEquals("she", st.longestPrefixOf("shel"));
+        assertEquals("s", st.longestPrefixOf("sx"));
+        assertNull(st.longestPrefixOf("quicksort"));
+
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        Random random = new Random(210);
+        for (int i = 0; i < 2000; i++) {
+            String key = word(random);
+            st.put(key, i);
+            expected.put(key, i);
+        }
+        for (String w : words) expected.put(w, 0);
+        for (int i = 0; i < 100; i++) {
+            String prefix = word(random);
+            List<String> withPrefix = new ArrayList<>();
+            for (Map.Entry<String, Integer> e : expected.tailMap(prefix, true).entrySet()) {
+                if (!e.getKey().startsWith(prefix)) break;
+                withPrefix.add(e.getKey());
+            }
+            assertEquals(withPrefix, list(st.keysWithPrefix(prefix)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyKeyIsRejected() {
+        new TST<Integer>().put("", 1);
+    }
+}
@@ -0,0 +1,84 @@
+package yadong0305.algorithms.ST;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class WordCountTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String text(Random random, int words) {
+        String[] vocabulary = {"the", "a", "sea", "shells", "she", "sells", "海", "naïve", "x", "symbol-table"};
+        String[] separators = {" ", "  ", "\n", "\t", "\r\n", " \f "};
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sb.append(vocabulary[random.nextInt(vocabulary.length)]);
+            if (random.nextInt(50) == 0) sb.append(random.nextInt(1000));
+            sb.append(separators[random.nextInt(separators.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static TreeMap<String, Integer> scan(String text) {
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        Scanner scanner = new Scanner(text);
+        while (scanner.hasNext()) expected.merge(scanner.next(), 1, Integer::sum);
+        return expected;
+    }
+
+    private static void assertSame(TreeMap<String, Integer> expected, OrderedST<String, Integer> st) {
+        List<String> keys = new ArrayList<>();
+        for (String key : st.keys()) {
+            keys.add(key);
+            assertEquals(expected.get(key), st.get(key));
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), keys);
+    }
+
+    /**
+     * 块很小时几乎每个单词都可能跨越块的边界
+     */
+    @Test
+    public void filesMatchScanner() throws Exception {
+        Random random = new Random(22);
+        String a = text(random, 20000);
+        String b = "leading" + text(random, 5000) + "trailing";
+        Path fa = folder.newFile().toPath();
+        Path fb = folder.newFile().toPath();
+        Path empty = folder.newFile().toPath();
+        Files.write(fa, a.getBytes(StandardCharsets.UTF_8));
+        Files.write(fb, b.getBytes(StandardCharsets.UTF_8));
+        TreeMap<String, Integer> expected = scan(a + "\n" + b);
+        for (int chunk : new int[]{1, 7, 4096, WordCount.CHUNK}) {
+            assertSame(expected, WordCount.count(Arrays.asList(fa, empty, fb), null, 3, chunk));
+        }
+    }
+
+    @Test
+    public void streamMatchesScanner() throws Exception {
+        Random random = new Random(220);
+        String text = text(random, 20000) + "unterminated";
+        TreeMap<String, Integer> expected = scan(text);
+        for (int chunk : new int[]{1, 7, 4096}) {
+            ByteArrayInputStream in = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+            assertSame(expected, WordCount.count(Collections.emptyList(), in, 4, chunk));
+        }
+        assertTrue(WordCount.count(new ByteArrayInputStream(new byte[0])).isEmpty());
+    }
+}
@@ -1,19 +1,30 @@
 package yadong0305.algorithms.ST;
 
-import java.util.Scanner;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
+/**
+ * 统计每个单词出现的次数并按顺序输出。命令行参数是输入文件，没有参数时读取标准输入
+ */
 public class testST {
 
-    public static void main(String[] args) {
-        //ST<String, Integer> st = new SequentialSearchST<>();
-        //ST<String, Integer> st = new BinarySearchST<>(2);
-        ST<String, Integer> st = new BST<>();
-        Scanner scanner = new Scanner(System.in);
-        for (int i = 0; scanner.hasNext(); i++) {
-            st.put(scanner.next(), i);
+    public static void main(String[] args) throws IOException {
+        OrderedST<String, Integer> st;
+        if (args.length == 0) {
+            st = WordCount.count(System.in);
+        } else {
+            Path[] files = new Path[args.length];
+            for (int i = 0; i < args.length; i++) files[i] = Paths.get(args[i]);
+            st = WordCount.count(files);
         }
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
         for (String key: st.keys()) {
-            System.out.println(key + " " + st.get(key));
+            out.println(key + " " + st.get(key));
         }
+        out.flush();
     }
 }